@@ -15,10 +15,30 @@
  */
 package org.fedoraproject.xmvn.deployer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author Mikolaj Izdebski
  */
 public interface Deployer
 {
     DeploymentResult deploy( DeploymentRequest request );
+
+    /**
+     * Deploy several artifacts at once.
+     * <p>
+     * The effect is the same as deploying every artifact separately, in order, but implementations can read and write
+     * every installation plan only once.
+     * 
+     * @param requests deployment requests
+     * @return deployment results, in the same order as corresponding requests
+     */
+    default List<DeploymentResult> deploy( List<DeploymentRequest> requests )
+    {
+        List<DeploymentResult> results = new ArrayList<>( requests.size() );
+        for ( DeploymentRequest request : requests )
+            results.add( deploy( request ) );
+        return results;
+    }
 }
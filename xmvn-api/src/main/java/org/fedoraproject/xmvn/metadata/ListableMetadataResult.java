@@ -0,0 +1,35 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metadata;
+
+import java.util.Collection;
+
+/**
+ * Results of metadata resolution which, in addition to looking up metadata of particular artifacts, can list metadata
+ * of all artifacts they contain.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public interface ListableMetadataResult
+    extends MetadataResult
+{
+    /**
+     * Get metadata of all artifacts which can be looked up in this result.
+     * 
+     * @return collection of artifact metadata, never {@code null}
+     */
+    Collection<ArtifactMetadata> getArtifactMetadata();
+}
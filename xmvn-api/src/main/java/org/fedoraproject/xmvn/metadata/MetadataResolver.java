@@ -15,6 +15,9 @@
  */
 package org.fedoraproject.xmvn.metadata;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Resolves artifact metadata from specified metadata repositories.
  * 
@@ -29,4 +32,21 @@ public interface MetadataResolver
      * @return results of metadata resolution, never {@code null}
      */
     MetadataResult resolveMetadata( MetadataRequest request );
+
+    /**
+     * Resolve artifact metadata for several requests at once.
+     * <p>
+     * The effect is the same as resolving every request separately, but implementations can read metadata fragments
+     * which are present in more than one request only once.
+     * 
+     * @param requests parameters of metadata resolution
+     * @return results of metadata resolution, in the same order as corresponding requests
+     */
+    default List<MetadataResult> resolveMetadata( List<MetadataRequest> requests )
+    {
+        List<MetadataResult> results = new ArrayList<>( requests.size() );
+        for ( MetadataRequest request : requests )
+            results.add( resolveMetadata( request ) );
+        return results;
+    }
 }
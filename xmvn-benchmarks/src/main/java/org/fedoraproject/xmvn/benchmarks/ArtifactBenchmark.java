@@ -0,0 +1,88 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+
+/**
+ * Measures parsing of artifact coordinates and hashing of {@code DefaultArtifact}, which is used as hash key in many
+ * places.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ArtifactBenchmark
+{
+    @Param( { "org.apache.maven:maven-core", "org.apache.maven:maven-core:3.6.2",
+        "org.apache.maven:maven-core:jar:tests:3.6.2" } )
+    String coordinates;
+
+    private Artifact artifact;
+
+    private Artifact equalArtifact;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        artifact = new DefaultArtifact( coordinates );
+        equalArtifact = new DefaultArtifact( coordinates );
+    }
+
+    @Benchmark
+    public Artifact parse()
+    {
+        return new DefaultArtifact( coordinates );
+    }
+
+    @Benchmark
+    public int hash()
+    {
+        return artifact.hashCode();
+    }
+
+    @Benchmark
+    public boolean equality()
+    {
+        return artifact.equals( equalArtifact );
+    }
+
+    @Benchmark
+    public Artifact setVersion()
+    {
+        return artifact.setVersion( Artifact.DEFAULT_VERSION );
+    }
+}
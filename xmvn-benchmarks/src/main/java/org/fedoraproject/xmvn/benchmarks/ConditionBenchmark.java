@@ -0,0 +1,136 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.benchmarks;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.repository.ArtifactContext;
+import org.fedoraproject.xmvn.tools.install.condition.Condition;
+
+/**
+ * Measures evaluation of repository filter conditions, which are matched against every installed artifact, for a
+ * corpus of real-world filters and thousands of artifacts with various extensions, classifiers and properties.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ConditionBenchmark
+{
+    private static final String[] EXTENSIONS = { "jar", "pom", "zip", "xml", "hpi", "war" };
+
+    private static final String[] CLASSIFIERS = { "", "", "", "tests", "sources", "javadoc" };
+
+    @Param( { "1000", "10000" } )
+    int artifactCount;
+
+    private Element corpus;
+
+    private Condition[] conditions;
+
+    private ArtifactContext[] contexts;
+
+    @Setup( Level.Trial )
+    public void setUp()
+        throws Exception
+    {
+        try ( InputStream is = ConditionBenchmark.class.getResourceAsStream( "/conditions.xml" ) )
+        {
+            corpus = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( is ).getDocumentElement();
+        }
+        conditions = parseConditions();
+
+        Random random = new Random( 42 );
+        contexts = new ArtifactContext[artifactCount];
+        for ( int i = 0; i < artifactCount; i++ )
+        {
+            String extension = EXTENSIONS[random.nextInt( EXTENSIONS.length )];
+            String classifier = CLASSIFIERS[random.nextInt( CLASSIFIERS.length )];
+            DefaultArtifact artifact =
+                new DefaultArtifact( "org.example.g" + i % 100, "artifact-" + i, extension, classifier, "1." + i );
+
+            Map<String, String> properties = new HashMap<>();
+            if ( random.nextInt( 10 ) == 0 )
+                properties.put( "native", "true" );
+            if ( "xml".equals( extension ) && random.nextBoolean() )
+                properties.put( "type", "ivy" );
+            if ( random.nextInt( 20 ) == 0 )
+                properties.put( "optional", "true" );
+
+            contexts[i] = new ArtifactContext( artifact, properties );
+        }
+    }
+
+    private Condition[] parseConditions()
+    {
+        NodeList filters = corpus.getElementsByTagName( "filter" );
+        List<Condition> list = new ArrayList<>();
+        for ( int i = 0; i < filters.getLength(); i++ )
+        {
+            list.add( new Condition( (Element) filters.item( i ) ) );
+        }
+        return list.toArray( new Condition[list.size()] );
+    }
+
+    @Benchmark
+    public Condition[] parse()
+    {
+        return parseConditions();
+    }
+
+    @Benchmark
+    public int evaluate()
+    {
+        int matches = 0;
+        for ( ArtifactContext context : contexts )
+        {
+            for ( Condition condition : conditions )
+            {
+                if ( condition.getValue( context ) )
+                    matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,251 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.metadata.ArtifactAlias;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.Dependency;
+import org.fedoraproject.xmvn.metadata.PackageMetadata;
+import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxWriter;
+
+/**
+ * Generates synthetic metadata repositories, laid out the same way as system metadata repository is
+ * ({@code /usr/share/maven-metadata}) &ndash; a directory with one metadata file per package.
+ * <p>
+ * Generated repositories are fully deterministic. Each generated JAR artifact has a corresponding POM artifact (without
+ * path, so that effective POM is generated for it), configurable number of aliases and compat versions, and depends on
+ * a few JAR artifacts from preceding packages. Every artifact file referenced by metadata is created (empty), so that
+ * resolution of real paths succeeds.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public class MetadataRepositoryGenerator
+{
+    private static final double DEFAULT_GZIP_RATIO = 0.5;
+
+    private int packageCount = 100;
+
+    private int artifactsPerPackage = 10;
+
+    private int aliasesPerArtifact = 1;
+
+    private int compatVersionsPerArtifact = 0;
+
+    private int dependenciesPerArtifact = 5;
+
+    private double gzipRatio = DEFAULT_GZIP_RATIO;
+
+    private final List<Artifact> artifacts = new ArrayList<>();
+
+    public void setPackageCount( int packageCount )
+    {
+        this.packageCount = packageCount;
+    }
+
+    public void setArtifactsPerPackage( int artifactsPerPackage )
+    {
+        this.artifactsPerPackage = artifactsPerPackage;
+    }
+
+    public void setAliasesPerArtifact( int aliasesPerArtifact )
+    {
+        this.aliasesPerArtifact = aliasesPerArtifact;
+    }
+
+    public void setCompatVersionsPerArtifact( int compatVersionsPerArtifact )
+    {
+        this.compatVersionsPerArtifact = compatVersionsPerArtifact;
+    }
+
+    public void setDependenciesPerArtifact( int dependenciesPerArtifact )
+    {
+        this.dependenciesPerArtifact = dependenciesPerArtifact;
+    }
+
+    /**
+     * Set fraction of metadata files that are written in compressed form.
+     * 
+     * @param gzipRatio number between 0 (no files compressed) and 1 (all files compressed)
+     */
+    public void setGzipRatio( double gzipRatio )
+    {
+        if ( gzipRatio < 0 || gzipRatio > 1 )
+            throw new IllegalArgumentException( "gzip ratio must be between 0 and 1" );
+
+        this.gzipRatio = gzipRatio;
+    }
+
+    /**
+     * Get list of coordinates under which generated artifacts can be resolved, including aliases and compat versions.
+     * 
+     * @return list of resolvable artifacts, in order of generation
+     */
+    public List<Artifact> getArtifacts()
+    {
+        return Collections.unmodifiableList( artifacts );
+    }
+
+    private static String groupId( int pkg )
+    {
+        return "org.example.pkg" + pkg;
+    }
+
+    private static String artifactId( int pkg, int art )
+    {
+        return "artifact-" + pkg + "-" + art;
+    }
+
+    private ArtifactMetadata generateArtifact( Path fileDir, int pkg, int art, String extension )
+        throws IOException
+    {
+        ArtifactMetadata am = new ArtifactMetadata();
+        am.setGroupId( groupId( pkg ) );
+        am.setArtifactId( artifactId( pkg, art ) );
+        am.setExtension( extension );
+        am.setVersion( "1." + art );
+        am.setUuid( "uuid-" + pkg + "-" + art + "-" + extension );
+
+        if ( "jar".equals( extension ) )
+        {
+            Path file = fileDir.resolve( am.getArtifactId() + ".jar" );
+            Files.createFile( file );
+            am.setPath( file.toString() );
+        }
+
+        for ( int i = 0; i < compatVersionsPerArtifact; i++ )
+        {
+            am.addCompatVersion( "1." + art + "." + i );
+        }
+
+        for ( int i = 0; i < aliasesPerArtifact; i++ )
+        {
+            ArtifactAlias alias = new ArtifactAlias();
+            alias.setGroupId( groupId( pkg ) + ".alias" + i );
+            alias.setArtifactId( am.getArtifactId() );
+            alias.setExtension( extension );
+            am.addAlias( alias );
+        }
+
+        for ( int i = 0; i < dependenciesPerArtifact && i < pkg * artifactsPerPackage; i++ )
+        {
+            // Depend on artifacts from preceding packages, spread evenly over the whole repository
+            int target = ( ( pkg * artifactsPerPackage + art ) * ( i + 1 ) ) % ( pkg * artifactsPerPackage );
+            Dependency dependency = new Dependency();
+            dependency.setGroupId( groupId( target / artifactsPerPackage ) );
+            dependency.setArtifactId( artifactId( target / artifactsPerPackage, target % artifactsPerPackage ) );
+            dependency.setRequestedVersion( "1." + target % artifactsPerPackage );
+            dependency.setOptional( i % 2 == 1 );
+            am.addDependency( dependency );
+        }
+
+        return am;
+    }
+
+    private void registerArtifact( ArtifactMetadata am )
+    {
+        List<Artifact> coordinates = new ArrayList<>();
+        coordinates.add( new DefaultArtifact( am.getGroupId(), am.getArtifactId(), am.getExtension(),
+                                              am.getClassifier(), Artifact.DEFAULT_VERSION ) );
+        for ( ArtifactAlias alias : am.getAliases() )
+        {
+            coordinates.add( new DefaultArtifact( alias.getGroupId(), alias.getArtifactId(), alias.getExtension(),
+                                                  alias.getClassifier(), Artifact.DEFAULT_VERSION ) );
+        }
+
+        for ( Artifact artifact : coordinates )
+        {
+            if ( am.getCompatVersions().isEmpty() )
+            {
+                artifacts.add( artifact );
+            }
+
+            for ( String version : am.getCompatVersions() )
+            {
+                artifacts.add( artifact.setVersion( version ) );
+            }
+        }
+    }
+
+    private boolean isCompressed( int pkg )
+    {
+        return Math.floor( ( pkg + 1 ) * gzipRatio ) > Math.floor( pkg * gzipRatio );
+    }
+
+    /**
+     * Generate metadata repository in given directory. Metadata files are written into {@code metadata} subdirectory,
+     * artifact files into {@code files} subdirectory.
+     * 
+     * @param directory directory in which repository is generated
+     * @return path to generated metadata directory
+     * @throws IOException if I/O error occurs when writing repository files
+     */
+    public Path generate( Path directory )
+        throws IOException
+    {
+        artifacts.clear();
+
+        Path metadataDir = Files.createDirectories( directory.resolve( "metadata" ) );
+        Path filesDir = Files.createDirectories( directory.resolve( "files" ) );
+
+        for ( int pkg = 0; pkg < packageCount; pkg++ )
+        {
+            Path fileDir = Files.createDirectories( filesDir.resolve( "pkg" + pkg ) );
+
+            PackageMetadata metadata = new PackageMetadata();
+            metadata.setUuid( "uuid-" + pkg );
+
+            for ( int art = 0; art < artifactsPerPackage; art++ )
+            {
+                for ( String extension : new String[] { "jar", "pom" } )
+                {
+                    ArtifactMetadata am = generateArtifact( fileDir, pkg, art, extension );
+                    metadata.addArtifact( am );
+                    registerArtifact( am );
+                }
+            }
+
+            boolean compress = isCompressed( pkg );
+            Path metadataPath = metadataDir.resolve( "pkg" + pkg + ( compress ? ".xml.gz" : ".xml" ) );
+
+            try ( OutputStream fos = Files.newOutputStream( metadataPath ) )
+            {
+                try ( OutputStream os = compress ? new GZIPOutputStream( fos ) : fos )
+                {
+                    new MetadataStaxWriter().write( os, metadata );
+                }
+            }
+            catch ( XMLStreamException e )
+            {
+                throw new IOException( "Unable to write metadata file " + metadataPath, e );
+            }
+        }
+
+        return metadataDir;
+    }
+}
@@ -0,0 +1,101 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+
+/**
+ * Benchmark state holding synthetic metadata repository, generated once per benchmark trial.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Benchmark )
+public class MetadataRepositoryState
+{
+    @Param( { "100", "1000" } )
+    int packageCount;
+
+    @Param( "10" )
+    int artifactsPerPackage;
+
+    @Param( "2" )
+    int aliasesPerArtifact;
+
+    @Param( "0" )
+    int compatVersionsPerArtifact;
+
+    @Param( "0.5" )
+    double gzipRatio;
+
+    private Path directory;
+
+    private Path metadataDirectory;
+
+    private List<Artifact> artifacts;
+
+    @Setup( Level.Trial )
+    public void generate()
+        throws IOException
+    {
+        MetadataRepositoryGenerator generator = new MetadataRepositoryGenerator();
+        generator.setPackageCount( packageCount );
+        generator.setArtifactsPerPackage( artifactsPerPackage );
+        generator.setAliasesPerArtifact( aliasesPerArtifact );
+        generator.setCompatVersionsPerArtifact( compatVersionsPerArtifact );
+        generator.setGzipRatio( gzipRatio );
+
+        directory = Files.createTempDirectory( "xmvn-benchmark-" );
+        metadataDirectory = generator.generate( directory );
+        artifacts = generator.getArtifacts();
+    }
+
+    @TearDown( Level.Trial )
+    public void delete()
+        throws IOException
+    {
+        try ( Stream<Path> paths = Files.walk( directory ) )
+        {
+            for ( Path path : (Iterable<Path>) paths.sorted( Comparator.reverseOrder() )::iterator )
+            {
+                Files.delete( path );
+            }
+        }
+    }
+
+    public Path getMetadataDirectory()
+    {
+        return metadataDirectory;
+    }
+
+    public List<Artifact> getArtifacts()
+    {
+        return artifacts;
+    }
+}
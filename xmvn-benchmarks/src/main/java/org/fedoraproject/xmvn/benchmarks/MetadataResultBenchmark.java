@@ -0,0 +1,96 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.MetadataRequest;
+import org.fedoraproject.xmvn.metadata.MetadataResult;
+import org.fedoraproject.xmvn.metadata.impl.DefaultMetadataResolver;
+
+/**
+ * Measures latency of looking up artifact metadata in already resolved metadata, both for artifacts present in the
+ * repository (through their own coordinates as well as aliases) and for artifacts that are missing.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MetadataResultBenchmark
+{
+    private MetadataResult metadataResult;
+
+    private Artifact[] artifacts;
+
+    private Artifact[] missingArtifacts;
+
+    private int index;
+
+    @Setup( Level.Trial )
+    public void setUp( MetadataRepositoryState repository )
+    {
+        MetadataRequest request =
+            new MetadataRequest( Collections.singletonList( repository.getMetadataDirectory().toString() ) );
+        metadataResult = new DefaultMetadataResolver().resolveMetadata( request );
+
+        List<Artifact> list = repository.getArtifacts();
+        artifacts = list.toArray( new Artifact[list.size()] );
+        missingArtifacts = new Artifact[artifacts.length];
+        for ( int i = 0; i < artifacts.length; i++ )
+        {
+            missingArtifacts[i] = artifacts[i].setVersion( "0.missing" );
+        }
+    }
+
+    private int nextIndex()
+    {
+        if ( ++index == artifacts.length )
+            index = 0;
+        return index;
+    }
+
+    @Benchmark
+    public ArtifactMetadata lookupExisting()
+    {
+        return metadataResult.getMetadataFor( artifacts[nextIndex()] );
+    }
+
+    @Benchmark
+    public ArtifactMetadata lookupMissing()
+    {
+        return metadataResult.getMetadataFor( missingArtifacts[nextIndex()] );
+    }
+}
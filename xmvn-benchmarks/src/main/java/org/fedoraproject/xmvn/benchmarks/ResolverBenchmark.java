@@ -0,0 +1,140 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.fedoraproject.xmvn.config.Configuration;
+import org.fedoraproject.xmvn.config.Configurator;
+import org.fedoraproject.xmvn.config.impl.DefaultConfigurator;
+import org.fedoraproject.xmvn.locator.ServiceLocator;
+import org.fedoraproject.xmvn.metadata.MetadataResolver;
+import org.fedoraproject.xmvn.metadata.impl.DefaultMetadataResolver;
+import org.fedoraproject.xmvn.resolver.ResolutionRequest;
+import org.fedoraproject.xmvn.resolver.ResolutionResult;
+import org.fedoraproject.xmvn.resolver.Resolver;
+import org.fedoraproject.xmvn.resolver.impl.DefaultResolver;
+
+/**
+ * Measures end-to-end latency of {@code DefaultResolver}, including local repository probe, metadata lookup, real path
+ * resolution and, for POM artifacts, effective POM generation.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ResolverBenchmark
+{
+    private Resolver resolver;
+
+    private ResolutionRequest[] jarRequests;
+
+    private ResolutionRequest[] pomRequests;
+
+    private ResolutionRequest[] missingRequests;
+
+    private int index;
+
+    @Setup( Level.Trial )
+    public void setUp( MetadataRepositoryState repository )
+    {
+        String metadataRepository = repository.getMetadataDirectory().toString();
+
+        Configurator configurator = new DefaultConfigurator()
+        {
+            @Override
+            public synchronized Configuration getConfiguration()
+            {
+                Configuration configuration = getDefaultConfiguration();
+                configuration.getResolverSettings().getMetadataRepositories().clear();
+                configuration.getResolverSettings().addMetadataRepository( metadataRepository );
+                return configuration;
+            }
+        };
+        MetadataResolver metadataResolver = new DefaultMetadataResolver();
+
+        resolver = new DefaultResolver( new ServiceLocator()
+        {
+            @Override
+            public <T> T getService( Class<T> role )
+            {
+                if ( role == Configurator.class )
+                    return role.cast( configurator );
+                if ( role == MetadataResolver.class )
+                    return role.cast( metadataResolver );
+                return null;
+            }
+        } );
+
+        jarRequests = repository.getArtifacts().stream() //
+                                .filter( artifact -> "jar".equals( artifact.getExtension() ) ) //
+                                .map( ResolutionRequest::new ) //
+                                .toArray( ResolutionRequest[]::new );
+        pomRequests = repository.getArtifacts().stream() //
+                                .filter( artifact -> "pom".equals( artifact.getExtension() ) ) //
+                                .map( ResolutionRequest::new ) //
+                                .toArray( ResolutionRequest[]::new );
+        missingRequests = repository.getArtifacts().stream() //
+                                    .filter( artifact -> "jar".equals( artifact.getExtension() ) ) //
+                                    .map( artifact -> artifact.setVersion( "0.missing" ) ) //
+                                    .map( ResolutionRequest::new ) //
+                                    .toArray( ResolutionRequest[]::new );
+
+        // Load metadata outside of measurement
+        resolver.resolve( jarRequests[0] );
+    }
+
+    private ResolutionRequest next( ResolutionRequest[] requests )
+    {
+        if ( ++index >= requests.length )
+            index = 0;
+        return requests[index];
+    }
+
+    @Benchmark
+    public ResolutionResult resolveJar()
+    {
+        return resolver.resolve( next( jarRequests ) );
+    }
+
+    @Benchmark
+    public ResolutionResult resolvePom()
+    {
+        return resolver.resolve( next( pomRequests ) );
+    }
+
+    @Benchmark
+    public ResolutionResult resolveMissing()
+    {
+        return resolver.resolve( next( missingRequests ) );
+    }
+}
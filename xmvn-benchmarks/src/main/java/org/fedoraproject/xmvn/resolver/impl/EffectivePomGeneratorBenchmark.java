@@ -0,0 +1,106 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.resolver.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.Dependency;
+import org.fedoraproject.xmvn.metadata.DependencyExclusion;
+
+/**
+ * Measures time needed to generate effective POM for artifact with given number of dependencies.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EffectivePomGeneratorBenchmark
+{
+    @Param( { "0", "10", "100" } )
+    int dependencyCount;
+
+    private EffectivePomGenerator generator;
+
+    private ArtifactMetadata metadata;
+
+    private Artifact artifact;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        generator = new EffectivePomGenerator();
+
+        metadata = new ArtifactMetadata();
+        metadata.setGroupId( "org.example" );
+        metadata.setArtifactId( "example" );
+        metadata.setExtension( "pom" );
+        metadata.setVersion( "1.0" );
+        metadata.setUuid( "benchmark" );
+
+        for ( int i = 0; i < dependencyCount; i++ )
+        {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId( "org.example.dep" + i );
+            dependency.setArtifactId( "dep" + i );
+            dependency.setRequestedVersion( "1." + i );
+            dependency.setOptional( i % 2 == 0 );
+
+            DependencyExclusion exclusion = new DependencyExclusion();
+            exclusion.setGroupId( "org.example.excluded" );
+            exclusion.setArtifactId( "excluded" + i );
+            dependency.addExclusion( exclusion );
+
+            metadata.addDependency( dependency );
+        }
+
+        artifact = metadata.toArtifact();
+    }
+
+    @Benchmark
+    public Path generateEffectivePom()
+        throws IOException
+    {
+        Path pomPath = generator.generateEffectivePom( metadata, artifact );
+
+        // Don't let temporary files accumulate during long runs
+        Files.delete( pomPath );
+        Files.delete( pomPath.getParent() );
+
+        return pomPath;
+    }
+}
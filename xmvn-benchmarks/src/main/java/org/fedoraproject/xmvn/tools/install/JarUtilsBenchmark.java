@@ -0,0 +1,145 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+
+/**
+ * Compares separate native code detection and manifest injection passes with single-pass JAR analysis on a large JAR
+ * without native code, which is the common case that requires scanning all entries.
+ *
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class JarUtilsBenchmark
+{
+    @Param( { "5000" } )
+    int entryCount;
+
+    private final Artifact artifact = new DefaultArtifact( "org.example", "example", "1.0" );
+
+    private Path workDir;
+
+    private Path templateJar;
+
+    private Path jar;
+
+    private static byte[] generateClass( String name )
+    {
+        ClassWriter cw = new ClassWriter( 0 );
+        cw.visit( Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null );
+        for ( int i = 0; i < 5; i++ )
+            cw.visitMethod( Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "method" + i, "()V", null, null ).visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    @Setup( Level.Trial )
+    public void setUp()
+        throws IOException
+    {
+        workDir = Files.createTempDirectory( "xmvn-benchmark-" );
+        templateJar = workDir.resolve( "template.jar" );
+        jar = workDir.resolve( "benchmark.jar" );
+
+        Manifest mf = new Manifest();
+        mf.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+
+        try ( OutputStream os = Files.newOutputStream( templateJar );
+                        JarOutputStream jos = new JarOutputStream( os, mf ) )
+        {
+            for ( int i = 0; i < entryCount; i++ )
+            {
+                if ( i % 4 == 0 )
+                {
+                    jos.putNextEntry( new JarEntry( "org/example/p" + i / 100 + "/resource" + i + ".properties" ) );
+                    jos.write( ( "key" + i + "=value" + i + "\n" ).getBytes( StandardCharsets.UTF_8 ) );
+                }
+                else
+                {
+                    String name = "org/example/p" + i / 100 + "/Class" + i;
+                    jos.putNextEntry( new JarEntry( name + ".class" ) );
+                    jos.write( generateClass( name ) );
+                }
+                jos.closeEntry();
+            }
+        }
+    }
+
+    @Setup( Level.Invocation )
+    public void copyJar()
+        throws IOException
+    {
+        Files.copy( templateJar, jar, StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+        throws IOException
+    {
+        Files.deleteIfExists( jar );
+        Files.deleteIfExists( templateJar );
+        Files.deleteIfExists( workDir );
+    }
+
+    @Benchmark
+    public boolean separatePasses()
+    {
+        boolean nativeCode = JarUtils.usesNativeCode( jar ) || JarUtils.containsNativeCode( jar );
+        JarUtils.injectManifest( jar, artifact );
+        return nativeCode;
+    }
+
+    @Benchmark
+    public boolean singlePass()
+    {
+        return JarUtils.analyzeAndInjectManifest( jar, artifact );
+    }
+}
@@ -0,0 +1,100 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures cost of compiling and matching glob patterns of shapes commonly found in packaging rules, using regular
+ * expressions and using compiled glob matcher.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class GlobUtilsBenchmark
+{
+    @Param( { "org.apache.maven", "*", "org.apache.*", "{maven,plexus}-*", "maven-?ore", "org.{apache,codehaus}.*" } )
+    String glob;
+
+    @Param( "org.apache.maven" )
+    String subject;
+
+    private Pattern pattern;
+
+    private GlobMatcher matcher;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        pattern = GlobUtils.glob2pattern( glob );
+        matcher = GlobMatcher.compile( glob );
+    }
+
+    @Benchmark
+    public Pattern compile()
+    {
+        return GlobUtils.glob2pattern( glob );
+    }
+
+    @Benchmark
+    public boolean match()
+    {
+        return pattern.matcher( subject ).matches();
+    }
+
+    @Benchmark
+    public boolean compileAndMatch()
+    {
+        return GlobUtils.glob2pattern( glob ).matcher( subject ).matches();
+    }
+
+    @Benchmark
+    public GlobMatcher matcherCompile()
+    {
+        return GlobMatcher.compile( glob );
+    }
+
+    @Benchmark
+    public String[] matcherMatch()
+    {
+        return matcher.match( subject );
+    }
+
+    @Benchmark
+    public String[] matcherCompileAndMatch()
+    {
+        return GlobMatcher.compile( glob ).match( subject );
+    }
+}
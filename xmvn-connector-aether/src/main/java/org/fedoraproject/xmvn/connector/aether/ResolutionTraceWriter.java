@@ -0,0 +1,158 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.connector.aether;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.plexus.logging.Logger;
+
+import org.fedoraproject.xmvn.resolver.ResolutionRequest;
+import org.fedoraproject.xmvn.resolver.ResolutionResult;
+
+/**
+ * Writes resolution trace &ndash; a file in JSON Lines format with one JSON object per artifact resolution request.
+ * <p>
+ * Each record contains requested artifact, name of workspace reader operation, request flags, name of the thread that
+ * made the request, start and end time (as returned by {@link System#nanoTime()}), and resolution result: artifact
+ * path, compat version and namespace. XMvn does not cache resolution results, so instead of cache hits the trace marks
+ * requests that repeat an earlier request for the same artifact (which could have been served from a cache).
+ * <p>
+ * Traces can be analyzed with {@code xmvn-trace} tool. Trace is only a diagnostic aid, so failure to write it never
+ * fails artifact resolution &ndash; a warning is logged and tracing is stopped instead.
+ * 
+ * @author Mikolaj Izdebski
+ */
+class ResolutionTraceWriter
+    implements Closeable
+{
+    private final Logger logger;
+
+    private final Writer writer;
+
+    private final Set<String> seenArtifacts = ConcurrentHashMap.newKeySet();
+
+    private boolean closed;
+
+    public ResolutionTraceWriter( Logger logger, Path path )
+        throws IOException
+    {
+        this.logger = logger;
+        writer = Files.newBufferedWriter( path, StandardCharsets.UTF_8 );
+    }
+
+    private static void appendKey( StringBuilder sb, String key )
+    {
+        if ( sb.length() > 1 )
+            sb.append( ',' );
+        sb.append( '"' ).append( key ).append( "\":" );
+    }
+
+    private static void appendString( StringBuilder sb, String key, Object value )
+    {
+        appendKey( sb, key );
+
+        if ( value == null )
+        {
+            sb.append( "null" );
+            return;
+        }
+
+        sb.append( '"' );
+        for ( char c : value.toString().toCharArray() )
+        {
+            if ( c == '"' || c == '\\' )
+                sb.append( '\\' ).append( c );
+            else if ( c < ' ' )
+                sb.append( String.format( "\\u%04x", (int) c ) );
+            else
+                sb.append( c );
+        }
+        sb.append( '"' );
+    }
+
+    private static void appendValue( StringBuilder sb, String key, Object value )
+    {
+        appendKey( sb, key );
+        sb.append( value );
+    }
+
+    public void record( String operation, ResolutionRequest request, ResolutionResult result, long startTime,
+                        long endTime )
+    {
+        String artifact = request.getArtifact().toString();
+        boolean repeated = !seenArtifacts.add( artifact );
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( '{' );
+        appendString( sb, "artifact", artifact );
+        appendString( sb, "operation", operation );
+        appendValue( sb, "providerNeeded", request.isProviderNeeded() );
+        appendValue( sb, "persistentFileNeeded", request.isPersistentFileNeeded() );
+        appendString( sb, "thread", Thread.currentThread().getName() );
+        appendValue( sb, "startNanos", startTime );
+        appendValue( sb, "endNanos", endTime );
+        appendString( sb, "path", result.getArtifactPath() );
+        appendString( sb, "compatVersion", result.getCompatVersion() );
+        appendString( sb, "namespace", result.getNamespace() );
+        appendValue( sb, "repeated", repeated );
+        sb.append( "}\n" );
+
+        synchronized ( writer )
+        {
+            if ( closed )
+                return;
+
+            try
+            {
+                writer.write( sb.toString() );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Unable to write XMvn resolution trace, tracing is disabled", e );
+                closed = true;
+                try
+                {
+                    writer.close();
+                }
+                catch ( IOException e1 )
+                {
+                    // Already reported above
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        synchronized ( writer )
+        {
+            if ( closed )
+                return;
+
+            closed = true;
+            writer.close();
+        }
+    }
+}
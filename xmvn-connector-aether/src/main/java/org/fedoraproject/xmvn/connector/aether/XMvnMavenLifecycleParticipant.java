@@ -15,6 +15,9 @@
  */
 package org.fedoraproject.xmvn.connector.aether;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.execution.MavenExecutionRequest;
@@ -24,6 +27,8 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.logging.Logger;
 import org.eclipse.aether.repository.WorkspaceReader;
 
+import org.fedoraproject.xmvn.metrics.impl.Metrics;
+
 /**
  * Installs some of XMvn extensions for Maven.
  * 
@@ -57,6 +62,20 @@ public class XMvnMavenLifecycleParticipant
         {
             workspaceReader.addResolutionListener( mojoExecutionListener );
             workspaceReader.addResolutionListener( reportGenerator );
+
+            String traceFile = session.getUserProperties().getProperty( "xmvn.trace.file",
+                                                                        System.getProperty( "xmvn.trace.file" ) );
+            if ( traceFile != null && !traceFile.isEmpty() )
+            {
+                try
+                {
+                    workspaceReader.startTrace( Paths.get( traceFile ) );
+                }
+                catch ( IOException e )
+                {
+                    throw new MavenExecutionException( "Unable to open XMvn resolution trace file " + traceFile, e );
+                }
+            }
         }
 
         ChainedExecutionListener chainedListener = new ChainedExecutionListener();
@@ -71,4 +90,28 @@ public class XMvnMavenLifecycleParticipant
     {
         toolchainManager.activate( session );
     }
+
+    @Override
+    public void afterSessionEnd( MavenSession session )
+        throws MavenExecutionException
+    {
+        if ( workspaceReader != null )
+        {
+            try
+            {
+                workspaceReader.stopTrace();
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Unable to write XMvn resolution trace", e );
+            }
+        }
+
+        if ( Metrics.isEnabled() )
+        {
+            logger.info( "XMvn metrics summary:" );
+            for ( String line : Metrics.getSummary() )
+                logger.info( "  " + line );
+        }
+    }
 }
@@ -16,6 +16,7 @@
 package org.fedoraproject.xmvn.connector.aether;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -23,6 +24,7 @@ import java.util.List;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
+import org.codehaus.plexus.logging.Logger;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.repository.WorkspaceReader;
 import org.eclipse.aether.repository.WorkspaceRepository;
@@ -38,6 +40,9 @@ import org.fedoraproject.xmvn.resolver.Resolver;
 public class XMvnWorkspaceReader
     implements WorkspaceReader
 {
+    @Requirement
+    private Logger logger;
+
     @Requirement
     private Resolver resolver;
 
@@ -45,12 +50,41 @@ public class XMvnWorkspaceReader
 
     private final List<ResolutionListener> listeners = new ArrayList<>();
 
+    private volatile ResolutionTraceWriter traceWriter;
+
     public void addResolutionListener( ResolutionListener listener )
     {
         listeners.add( listener );
     }
 
-    private ResolutionResult resolve( Artifact artifact )
+    /**
+     * Start writing resolution trace to given file. Any trace that was already being written is finished first.
+     * 
+     * @param traceFile path to trace file, which is overwritten if it exists
+     * @throws IOException if trace file can't be opened for writing
+     */
+    public void startTrace( Path traceFile )
+        throws IOException
+    {
+        stopTrace();
+        traceWriter = new ResolutionTraceWriter( logger, traceFile );
+    }
+
+    /**
+     * Finish writing resolution trace, if any.
+     * 
+     * @throws IOException if writing trace file fails
+     */
+    public void stopTrace()
+        throws IOException
+    {
+        ResolutionTraceWriter writer = traceWriter;
+        traceWriter = null;
+        if ( writer != null )
+            writer.close();
+    }
+
+    private ResolutionResult resolve( Artifact artifact, String operation )
     {
         org.fedoraproject.xmvn.artifact.Artifact xmvnArtifact =
             new org.fedoraproject.xmvn.artifact.DefaultArtifact( artifact.getGroupId(), artifact.getArtifactId(),
@@ -61,8 +95,14 @@ public class XMvnWorkspaceReader
         for ( ResolutionListener listener : listeners )
             listener.resolutionRequested( request );
 
+        ResolutionTraceWriter writer = traceWriter;
+        long startTime = writer != null ? System.nanoTime() : 0;
+
         ResolutionResult result = resolver.resolve( request );
 
+        if ( writer != null )
+            writer.record( operation, request, result, startTime, System.nanoTime() );
+
         for ( ResolutionListener listener : listeners )
             listener.resolutionCompleted( request, result );
 
@@ -72,7 +112,7 @@ public class XMvnWorkspaceReader
     @Override
     public File findArtifact( Artifact artifact )
     {
-        ResolutionResult result = resolve( artifact );
+        ResolutionResult result = resolve( artifact, "findArtifact" );
 
         Path artifactPath = result.getArtifactPath();
         return artifactPath != null ? artifactPath.toFile() : null;
@@ -81,7 +121,7 @@ public class XMvnWorkspaceReader
     @Override
     public List<String> findVersions( Artifact artifact )
     {
-        ResolutionResult result = resolve( artifact );
+        ResolutionResult result = resolve( artifact, "findVersions" );
 
         if ( result.getArtifactPath() == null )
             return Collections.emptyList();
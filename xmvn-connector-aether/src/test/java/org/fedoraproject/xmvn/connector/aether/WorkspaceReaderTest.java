@@ -18,8 +18,12 @@ package org.fedoraproject.xmvn.connector.aether;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
@@ -28,6 +32,7 @@ import org.eclipse.aether.repository.WorkspaceReader;
 import org.eclipse.aether.repository.WorkspaceRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import org.fedoraproject.xmvn.artifact.DefaultArtifact;
 import org.fedoraproject.xmvn.resolver.ResolutionRequest;
@@ -96,6 +101,61 @@ public class WorkspaceReaderTest
         assertEquals( null, file );
     }
 
+    @Test
+    public void testResolutionTrace( @TempDir Path tempDir )
+        throws Exception
+    {
+        ResolutionRequest request = new ResolutionRequest( new DefaultArtifact( "foo:bar:1.2.3" ) );
+        ResolutionResult result = EasyMock.createMock( ResolutionResult.class );
+
+        EasyMock.expect( resolver.resolve( request ) ).andReturn( result ).times( 2 );
+        EasyMock.expect( result.getArtifactPath() ).andReturn( Paths.get( "/foo/bar" ) ).anyTimes();
+        EasyMock.expect( result.getCompatVersion() ).andReturn( null ).anyTimes();
+        EasyMock.expect( result.getNamespace() ).andReturn( "ns" ).anyTimes();
+        EasyMock.replay( resolver, result );
+
+        Path traceFile = tempDir.resolve( "trace.jsonl" );
+        ( (XMvnWorkspaceReader) workspace ).startTrace( traceFile );
+        workspace.findArtifact( new org.eclipse.aether.artifact.DefaultArtifact( "foo:bar:1.2.3" ) );
+        workspace.findArtifact( new org.eclipse.aether.artifact.DefaultArtifact( "foo:bar:1.2.3" ) );
+        ( (XMvnWorkspaceReader) workspace ).stopTrace();
+        EasyMock.verify( resolver, result );
+
+        List<String> lines = Files.readAllLines( traceFile, StandardCharsets.UTF_8 );
+        assertEquals( 2, lines.size() );
+        assertTrue( lines.get( 0 ).startsWith( "{\"artifact\":\"foo:bar:jar:1.2.3\",\"operation\":\"findArtifact\"" ) );
+        assertTrue( lines.get( 0 ).contains( "\"path\":\"/foo/bar\"" ) );
+        assertTrue( lines.get( 0 ).contains( "\"namespace\":\"ns\"" ) );
+        assertTrue( lines.get( 0 ).endsWith( "\"repeated\":false}" ) );
+        assertTrue( lines.get( 1 ).endsWith( "\"repeated\":true}" ) );
+    }
+
+    @Test
+    public void testResolutionTraceWriteError()
+        throws Exception
+    {
+        Path traceFile = Paths.get( "/dev/full" );
+        assumeTrue( Files.isWritable( traceFile ) );
+
+        ResolutionRequest request = new ResolutionRequest( new DefaultArtifact( "foo:bar:1.2.3" ) );
+        ResolutionResult result = EasyMock.createMock( ResolutionResult.class );
+
+        EasyMock.expect( resolver.resolve( request ) ).andReturn( result ).anyTimes();
+        EasyMock.expect( result.getArtifactPath() ).andReturn( Paths.get( "/foo/bar" ) ).anyTimes();
+        EasyMock.expect( result.getCompatVersion() ).andReturn( null ).anyTimes();
+        EasyMock.expect( result.getNamespace() ).andReturn( "ns" ).anyTimes();
+        EasyMock.replay( resolver, result );
+
+        // Writes fail with ENOSPC once buffered trace is flushed, but resolution must not be affected
+        ( (XMvnWorkspaceReader) workspace ).startTrace( traceFile );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            File file = workspace.findArtifact( new org.eclipse.aether.artifact.DefaultArtifact( "foo:bar:1.2.3" ) );
+            assertEquals( new File( "/foo/bar" ), file );
+        }
+        ( (XMvnWorkspaceReader) workspace ).stopTrace();
+    }
+
     @Test
     public void testResolutionListener()
         throws Exception
@@ -82,6 +82,18 @@ class ConfigurationMerger
 
         if ( dominant.getMetadataDir() == null || dominant.getMetadataDir().isEmpty() )
             dominant.setMetadataDir( recessive.getMetadataDir() );
+
+        if ( dominant.getInstallStrategy() == null || dominant.getInstallStrategy().isEmpty() )
+            dominant.setInstallStrategy( recessive.getInstallStrategy() );
+
+        if ( dominant.isAppendManifest() == null )
+            dominant.setAppendManifest( recessive.isAppendManifest() );
+
+        if ( dominant.isDeduplicate() == null )
+            dominant.setDeduplicate( recessive.isDeduplicate() );
+
+        if ( dominant.isCompressMetadata() == null )
+            dominant.setCompressMetadata( recessive.isCompressMetadata() );
     }
 
     private void mergeConfiguration( Configuration dominant, Configuration recessive )
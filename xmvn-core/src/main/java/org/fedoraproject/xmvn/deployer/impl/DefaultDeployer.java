@@ -21,6 +21,12 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -54,56 +60,91 @@ public class DefaultDeployer
     @Override
     public DeploymentResult deploy( DeploymentRequest request )
     {
-        DefaultDeploymentResult result = new DefaultDeploymentResult();
+        return deploy( Collections.singletonList( request ) ).get( 0 );
+    }
 
-        try
+    @Override
+    public List<DeploymentResult> deploy( List<DeploymentRequest> requests )
+    {
+        List<DeploymentResult> results = new ArrayList<>( requests.size() );
+        Map<Path, List<Integer>> requestsByPlan = new LinkedHashMap<>();
+        for ( int i = 0; i < requests.size(); i++ )
         {
-            PackageMetadata plan = readInstallationPlan( request.getPlanPath() );
-
-            ArtifactMetadata am = new ArtifactMetadata();
-            plan.addArtifact( am );
+            results.add( new DefaultDeploymentResult() );
+            requestsByPlan.computeIfAbsent( requests.get( i ).getPlanPath(), p -> new ArrayList<>() ).add( i );
+        }
 
-            Artifact artifact = request.getArtifact();
-            am.setGroupId( artifact.getGroupId() );
-            am.setArtifactId( artifact.getArtifactId() );
-            am.setExtension( artifact.getExtension() );
-            am.setClassifier( artifact.getClassifier() );
-            am.setVersion( artifact.getVersion() );
-            am.setPath( artifact.getPath().toString() );
-            am.getProperties().putAll( request.getProperties() );
+        for ( Entry<Path, List<Integer>> entry : requestsByPlan.entrySet() )
+        {
+            Path planPath = entry.getKey();
+            List<Integer> indices = entry.getValue();
 
-            for ( DependencyDescriptor depDescriptor : request.getDependencies() )
+            try
             {
-                Dependency dependency = new Dependency();
-                am.addDependency( dependency );
-
-                Artifact dependencyArtifact = depDescriptor.getDependencyArtifact();
-                dependency.setGroupId( dependencyArtifact.getGroupId() );
-                dependency.setArtifactId( dependencyArtifact.getArtifactId() );
-                dependency.setExtension( dependencyArtifact.getExtension() );
-                dependency.setClassifier( dependencyArtifact.getClassifier() );
-                dependency.setRequestedVersion( dependencyArtifact.getVersion() );
-                if ( depDescriptor.isOptional() )
-                    dependency.setOptional( true );
-
-                for ( Artifact exclusionArtifact : depDescriptor.getExclusions() )
-                {
-                    DependencyExclusion exclusion = new DependencyExclusion();
-                    dependency.addExclusion( exclusion );
+                PackageMetadata plan = readInstallationPlan( planPath );
 
-                    exclusion.setGroupId( exclusionArtifact.getGroupId() );
-                    exclusion.setArtifactId( exclusionArtifact.getArtifactId() );
+                for ( int i : indices )
+                {
+                    try
+                    {
+                        plan.addArtifact( createArtifactMetadata( requests.get( i ) ) );
+                    }
+                    catch ( Exception e )
+                    {
+                        ( (DefaultDeploymentResult) results.get( i ) ).setException( e );
+                    }
                 }
-            }
 
-            writeInstallationPlan( plan, request.getPlanPath() );
+                writeInstallationPlan( plan, planPath );
+            }
+            catch ( Exception e )
+            {
+                for ( int i : indices )
+                    ( (DefaultDeploymentResult) results.get( i ) ).setException( e );
+            }
         }
-        catch ( Exception e )
+
+        return results;
+    }
+
+    private ArtifactMetadata createArtifactMetadata( DeploymentRequest request )
+    {
+        ArtifactMetadata am = new ArtifactMetadata();
+
+        Artifact artifact = request.getArtifact();
+        am.setGroupId( artifact.getGroupId() );
+        am.setArtifactId( artifact.getArtifactId() );
+        am.setExtension( artifact.getExtension() );
+        am.setClassifier( artifact.getClassifier() );
+        am.setVersion( artifact.getVersion() );
+        am.setPath( artifact.getPath().toString() );
+        am.getProperties().putAll( request.getProperties() );
+
+        for ( DependencyDescriptor depDescriptor : request.getDependencies() )
         {
-            result.setException( e );
+            Dependency dependency = new Dependency();
+            am.addDependency( dependency );
+
+            Artifact dependencyArtifact = depDescriptor.getDependencyArtifact();
+            dependency.setGroupId( dependencyArtifact.getGroupId() );
+            dependency.setArtifactId( dependencyArtifact.getArtifactId() );
+            dependency.setExtension( dependencyArtifact.getExtension() );
+            dependency.setClassifier( dependencyArtifact.getClassifier() );
+            dependency.setRequestedVersion( dependencyArtifact.getVersion() );
+            if ( depDescriptor.isOptional() )
+                dependency.setOptional( true );
+
+            for ( Artifact exclusionArtifact : depDescriptor.getExclusions() )
+            {
+                DependencyExclusion exclusion = new DependencyExclusion();
+                dependency.addExclusion( exclusion );
+
+                exclusion.setGroupId( exclusionArtifact.getGroupId() );
+                exclusion.setArtifactId( exclusionArtifact.getArtifactId() );
+            }
         }
 
-        return result;
+        return am;
     }
 
     private PackageMetadata readInstallationPlan( Path planPath )
@@ -0,0 +1,348 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metadata.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.logging.impl.Logger;
+import org.fedoraproject.xmvn.metadata.ArtifactAlias;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+
+/**
+ * Lookup table mapping artifact coordinates to installed artifact metadata.
+ * <p>
+ * Each distinct {@code groupId:artifactId:extension:classifier} tuple (coming either from artifact itself or from one
+ * of its aliases) is stored exactly once, in an open-addressing hash table indexed by primitive integers. Every entry
+ * keeps a compact list of versions (compat versions of artifact, or {@code SYSTEM} if there are none) together with
+ * metadata bound to each of them. Versions are not expanded into separate keys, so memory usage is proportional to
+ * number of distinct coordinates rather than to number of aliases times number of compat versions.
+ * 
+ * @author Mikolaj Izdebski
+ */
+class ArtifactIndex
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final List<String> DEFAULT_VERSIONS = Collections.singletonList( Artifact.DEFAULT_VERSION );
+
+    private final Logger logger;
+
+    private final boolean ignoreDuplicates;
+
+    /**
+     * Hash table slots. Each slot holds index of entry plus one, or zero if the slot is free.
+     */
+    private int[] table = new int[INITIAL_CAPACITY];
+
+    private Entry[] entries = new Entry[INITIAL_CAPACITY / 2];
+
+    private int size;
+
+    private static final class Entry
+    {
+        final String groupId;
+
+        final String artifactId;
+
+        final String extension;
+
+        final String classifier;
+
+        final int hash;
+
+        String[] versions = new String[1];
+
+        ArtifactMetadata[] metadata = new ArtifactMetadata[1];
+
+        int count;
+
+        Entry( String groupId, String artifactId, String extension, String classifier, int hash )
+        {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.extension = extension;
+            this.classifier = classifier;
+            this.hash = hash;
+        }
+
+        boolean matches( String groupId, String artifactId, String extension, String classifier, int hash )
+        {
+            return this.hash == hash && this.artifactId.equals( artifactId ) && this.groupId.equals( groupId )
+                && this.extension.equals( extension ) && this.classifier.equals( classifier );
+        }
+
+        int indexOf( String version )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                if ( versions[i].equals( version ) )
+                    return i;
+            }
+
+            return -1;
+        }
+
+        void add( String version, ArtifactMetadata am )
+        {
+            if ( count == versions.length )
+            {
+                versions = Arrays.copyOf( versions, 2 * count );
+                metadata = Arrays.copyOf( metadata, 2 * count );
+            }
+
+            versions[count] = version;
+            metadata[count] = am;
+            count++;
+        }
+
+        void remove( int index )
+        {
+            count--;
+            versions[index] = versions[count];
+            metadata[index] = metadata[count];
+            versions[count] = null;
+            metadata[count] = null;
+        }
+
+        String toString( String version )
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append( groupId );
+            sb.append( ':' ).append( artifactId );
+            sb.append( ':' ).append( extension );
+            if ( !classifier.isEmpty() )
+                sb.append( ':' ).append( classifier );
+            sb.append( ':' ).append( version );
+            return sb.toString();
+        }
+    }
+
+    public ArtifactIndex( Logger logger, boolean ignoreDuplicates )
+    {
+        this.logger = logger;
+        this.ignoreDuplicates = ignoreDuplicates;
+    }
+
+    private static String normalizeExtension( String extension )
+    {
+        return extension == null || extension.isEmpty() ? Artifact.DEFAULT_EXTENSION : extension;
+    }
+
+    private static String normalizeClassifier( String classifier )
+    {
+        return classifier == null ? "" : classifier;
+    }
+
+    private static String normalizeVersion( String version )
+    {
+        return version == null || version.isEmpty() ? Artifact.DEFAULT_VERSION : version;
+    }
+
+    private static int hash( String groupId, String artifactId, String extension, String classifier )
+    {
+        int h = groupId.hashCode();
+        h = 31 * h + artifactId.hashCode();
+        h = 31 * h + extension.hashCode();
+        h = 31 * h + classifier.hashCode();
+        return h ^ ( h >>> 16 );
+    }
+
+    private Entry find( String groupId, String artifactId, String extension, String classifier, int hash )
+    {
+        int mask = table.length - 1;
+
+        for ( int i = hash & mask;; i = ( i + 1 ) & mask )
+        {
+            int slot = table[i];
+            if ( slot == 0 )
+                return null;
+
+            Entry entry = entries[slot - 1];
+            if ( entry.matches( groupId, artifactId, extension, classifier, hash ) )
+                return entry;
+        }
+    }
+
+    private Entry findOrCreate( String groupId, String artifactId, String extension, String classifier )
+    {
+        int hash = hash( groupId, artifactId, extension, classifier );
+        Entry entry = find( groupId, artifactId, extension, classifier, hash );
+        if ( entry != null )
+            return entry;
+
+        if ( 2 * ( size + 1 ) > table.length )
+            rehash( 2 * table.length );
+
+        entry = new Entry( groupId, artifactId, extension, classifier, hash );
+        if ( size == entries.length )
+            entries = Arrays.copyOf( entries, 2 * size );
+        entries[size++] = entry;
+        insertSlot( hash, size );
+
+        return entry;
+    }
+
+    private void insertSlot( int hash, int slot )
+    {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while ( table[i] != 0 )
+            i = ( i + 1 ) & mask;
+        table[i] = slot;
+    }
+
+    private void rehash( int capacity )
+    {
+        table = new int[capacity];
+        for ( int i = 0; i < size; i++ )
+            insertSlot( entries[i].hash, i + 1 );
+    }
+
+    /**
+     * Add metadata of given installed artifact to the index, under artifact coordinates as well as all its aliases,
+     * for all its compat versions.
+     * 
+     * @param metadata artifact metadata to add
+     */
+    public void add( ArtifactMetadata metadata )
+    {
+        List<String> versions = metadata.getCompatVersions();
+        if ( versions.isEmpty() )
+            versions = DEFAULT_VERSIONS;
+
+        // Coordinates for which duplicate metadata was found while adding this metadata
+        Set<String> duplicates = new HashSet<>();
+
+        bind( metadata, metadata.getGroupId(), metadata.getArtifactId(), metadata.getExtension(),
+              metadata.getClassifier(), versions, duplicates );
+
+        for ( ArtifactAlias alias : metadata.getAliases() )
+        {
+            bind( metadata, alias.getGroupId(), alias.getArtifactId(), alias.getExtension(), alias.getClassifier(),
+                  versions, duplicates );
+        }
+    }
+
+    private void bind( ArtifactMetadata metadata, String groupId, String artifactId, String extension,
+                       String classifier, List<String> versions, Set<String> duplicates )
+    {
+        if ( groupId == null || groupId.isEmpty() )
+            throw new IllegalArgumentException( "groupId must be specified" );
+        if ( artifactId == null || artifactId.isEmpty() )
+            throw new IllegalArgumentException( "artifactId must be specified" );
+
+        Entry entry = findOrCreate( groupId, artifactId, normalizeExtension( extension ),
+                                    normalizeClassifier( classifier ) );
+
+        for ( String rawVersion : versions )
+        {
+            String version = normalizeVersion( rawVersion );
+
+            // The same metadata can be reachable through the same coordinates more than once, for example when alias
+            // is identical to artifact coordinates, or when compat version is listed twice. Coordinates which were
+            // already found to be duplicate must not be bound again, even if they were removed from the index.
+            if ( !duplicates.isEmpty() && duplicates.contains( entry.toString( version ) ) )
+            {
+                logger.debug( "Ignoring metadata for artifact {} as it was already excluded",
+                              entry.toString( version ) );
+                continue;
+            }
+
+            int index = entry.indexOf( version );
+
+            if ( index < 0 )
+            {
+                entry.add( version, metadata );
+                continue;
+            }
+
+            ArtifactMetadata otherMetadata = entry.metadata[index];
+            if ( otherMetadata == metadata )
+                continue;
+
+            duplicates.add( entry.toString( version ) );
+
+            if ( ignoreDuplicates )
+            {
+                entry.remove( index );
+                logger.warn( "Ignoring metadata for artifact {} as it has duplicate metadata",
+                             entry.toString( version ) );
+                continue;
+            }
+
+            logger.warn( "Duplicate metadata for artifact {}", entry.toString( version ) );
+
+            if ( otherMetadata.getNamespace().isEmpty() || !metadata.getNamespace().isEmpty() )
+            {
+                entry.metadata[index] = metadata;
+            }
+        }
+    }
+
+    /**
+     * Look up metadata for artifact with given coordinates.
+     * 
+     * @param artifact artifact to look up
+     * @return metadata bound to given artifact, or {@code null} if there is none
+     */
+    public ArtifactMetadata get( Artifact artifact )
+    {
+        String groupId = artifact.getGroupId();
+        String artifactId = artifact.getArtifactId();
+        String extension = normalizeExtension( artifact.getExtension() );
+        String classifier = normalizeClassifier( artifact.getClassifier() );
+
+        Entry entry = find( groupId, artifactId, extension, classifier,
+                            hash( groupId, artifactId, extension, classifier ) );
+        if ( entry == null )
+            return null;
+
+        int index = entry.indexOf( normalizeVersion( artifact.getVersion() ) );
+        return index < 0 ? null : entry.metadata[index];
+    }
+
+    /**
+     * Get metadata of all artifacts bound to any coordinates in the index. Metadata of artifacts which were removed
+     * from the index as duplicates is not included.
+     * 
+     * @return metadata of all artifacts, each of them exactly once
+     */
+    public Collection<ArtifactMetadata> getAll()
+    {
+        Set<ArtifactMetadata> seen = Collections.newSetFromMap( new IdentityHashMap<>() );
+        List<ArtifactMetadata> all = new ArrayList<>();
+
+        for ( int i = 0; i < size; i++ )
+        {
+            Entry entry = entries[i];
+            for ( int j = 0; j < entry.count; j++ )
+            {
+                if ( seen.add( entry.metadata[j] ) )
+                    all.add( entry.metadata[j] );
+            }
+        }
+
+        return Collections.unmodifiableList( all );
+    }
+}
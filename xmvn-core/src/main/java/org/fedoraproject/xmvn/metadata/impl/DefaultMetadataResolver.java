@@ -23,13 +23,16 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -48,10 +51,18 @@ import org.fedoraproject.xmvn.metadata.MetadataResolver;
 import org.fedoraproject.xmvn.metadata.MetadataResult;
 import org.fedoraproject.xmvn.metadata.PackageMetadata;
 import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxReader;
+import org.fedoraproject.xmvn.metrics.impl.Counter;
+import org.fedoraproject.xmvn.metrics.impl.Histogram;
+import org.fedoraproject.xmvn.metrics.impl.HitRatio;
+import org.fedoraproject.xmvn.metrics.impl.Metrics;
 
 /**
  * Default implementation of XMvn {@code MetadataResolver} interface.
  * <p>
+ * When {@code xmvn.metadata.snapshot} system property is set to {@code true}, parsed metadata is additionally stored in
+ * a snapshot file in {@code $XDG_CACHE_HOME/xmvn} and reused by subsequent resolutions of the same metadata locations,
+ * also in other processes, as long as metadata fragments are not modified.
+ * <p>
  * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
  * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
  * it directly.
@@ -62,11 +73,25 @@ import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxReader;
 public class DefaultMetadataResolver
     implements MetadataResolver
 {
+    private static final Histogram RESOLVE_METADATA_TIME = Metrics.histogram( "metadata.resolve" );
+
+    private static final Histogram READ_FILE_TIME = Metrics.histogram( "metadata.readFile" );
+
+    private static final Counter FILES_READ = Metrics.counter( "metadata.filesRead" );
+
+    private static final Counter FILES_FAILED = Metrics.counter( "metadata.filesFailed" );
+
+    private static final Counter ARTIFACTS_READ = Metrics.counter( "metadata.artifactsRead" );
+
+    private static final HitRatio SNAPSHOT_HIT_RATIO = Metrics.hitRatio( "metadata.snapshot" );
+
     @Requirement
     private Logger logger = new ConsoleLogger();
 
     private final ThreadPoolExecutor executor;
 
+    private Path snapshotDir;
+
     public DefaultMetadataResolver()
     {
         BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
@@ -78,17 +103,113 @@ public class DefaultMetadataResolver
             thread.setDaemon( true );
             return thread;
         } );
+
+        if ( Boolean.getBoolean( "xmvn.metadata.snapshot" ) )
+            snapshotDir = MetadataSnapshot.getDefaultCacheDir();
+    }
+
+    void setSnapshotDir( Path snapshotDir )
+    {
+        this.snapshotDir = snapshotDir;
     }
 
     @Override
     public MetadataResult resolveMetadata( MetadataRequest request )
     {
-        return new DefaultMetadataResult( logger, readMetadata( request.getMetadataRepositories() ),
-                                          request.isIgnoreDuplicates() );
+        return resolveMetadata( request, null );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Metadata fragments are identified by file system identity of metadata files, so fragments are shared also when
+     * they are reachable through different paths, for example when the same metadata directory is specified both
+     * relative to installation root and relative to system root.
+     */
+    @Override
+    public List<MetadataResult> resolveMetadata( List<MetadataRequest> requests )
+    {
+        Map<Object, Future<PackageMetadata>> sharedFragments = new HashMap<>();
+
+        List<MetadataResult> results = new ArrayList<>( requests.size() );
+        for ( MetadataRequest request : requests )
+            results.add( resolveMetadata( request, sharedFragments ) );
+        return results;
+    }
+
+    private MetadataResult resolveMetadata( MetadataRequest request,
+                                            Map<Object, Future<PackageMetadata>> sharedFragments )
+    {
+        long startTime = Metrics.startTime();
+        try
+        {
+            return new DefaultMetadataResult( logger,
+                                              readMetadata( request.getMetadataRepositories(), sharedFragments ),
+                                              request.isIgnoreDuplicates() );
+        }
+        finally
+        {
+            RESOLVE_METADATA_TIME.recordSince( startTime );
+        }
+    }
+
+    private Future<PackageMetadata> submit( Path path, MetadataSnapshot snapshot,
+                                            Map<Path, MetadataSnapshot.Stamp> stamps,
+                                            Map<Object, Future<PackageMetadata>> sharedFragments )
+    {
+        if ( snapshot == null && sharedFragments == null )
+            return executor.submit( () -> readMetadata( path ) );
+
+        BasicFileAttributes attrs;
+        try
+        {
+            attrs = Files.readAttributes( path, BasicFileAttributes.class );
+        }
+        catch ( IOException e )
+        {
+            logger.debug( "Unable to read attributes of metadata file {}: {}", path, e );
+            return executor.submit( () -> readMetadata( path ) );
+        }
+
+        PackageMetadata cached = null;
+        if ( snapshot != null )
+        {
+            MetadataSnapshot.Stamp stamp = MetadataSnapshot.Stamp.of( attrs );
+            cached = snapshot.get( path, stamp );
+            SNAPSHOT_HIT_RATIO.record( cached != null );
+            if ( cached == null )
+                stamps.put( path, stamp );
+        }
+
+        Object fileKey = attrs.fileKey() != null ? attrs.fileKey() : path.toAbsolutePath().normalize();
+        Future<PackageMetadata> future = sharedFragments != null ? sharedFragments.get( fileKey ) : null;
+        if ( future == null )
+        {
+            future = cached != null ? CompletableFuture.completedFuture( cached )
+                            : executor.submit( () -> readMetadata( path ) );
+            if ( sharedFragments != null )
+                sharedFragments.put( fileKey, future );
+        }
+
+        return future;
     }
 
     List<PackageMetadata> readMetadata( List<String> metadataLocations )
     {
+        return readMetadata( metadataLocations, null );
+    }
+
+    private List<PackageMetadata> readMetadata( List<String> metadataLocations,
+                                                Map<Object, Future<PackageMetadata>> sharedFragments )
+    {
+        MetadataSnapshot snapshot = null;
+        if ( snapshotDir != null )
+        {
+            snapshot = new MetadataSnapshot( logger, snapshotDir, metadataLocations );
+            snapshot.load();
+        }
+
+        Map<Path, MetadataSnapshot.Stamp> stamps = new LinkedHashMap<>();
         Map<Path, Future<PackageMetadata>> futures = new LinkedHashMap<>();
 
         for ( String pathString : metadataLocations )
@@ -104,13 +225,13 @@ public class DefaultMetadataResolver
                     for ( String fragFilename : flist )
                     {
                         Path xmlPath = path.resolve( fragFilename );
-                        futures.put( xmlPath, executor.submit( () -> readMetadata( xmlPath ) ) );
+                        futures.put( xmlPath, submit( xmlPath, snapshot, stamps, sharedFragments ) );
                     }
                 }
             }
             else
             {
-                futures.put( path, executor.submit( () -> readMetadata( path ) ) );
+                futures.put( path, submit( path, snapshot, stamps, sharedFragments ) );
             }
         }
 
@@ -127,6 +248,10 @@ public class DefaultMetadataResolver
                 {
                     PackageMetadata metadata = future.get();
                     result.add( metadata );
+                    if ( stamps.containsKey( path ) )
+                        snapshot.put( path, stamps.get( path ), metadata );
+                    FILES_READ.increment();
+                    ARTIFACTS_READ.add( metadata.getArtifacts().size() );
 
                     if ( logger.isDebugEnabled() )
                     {
@@ -139,10 +264,14 @@ public class DefaultMetadataResolver
                 catch ( ExecutionException e )
                 {
                     // Ignore. Failure to read PackageMetadata of a single package should not break the whole system
+                    FILES_FAILED.increment();
                     logger.debug( "Skipping metadata file {}: {}", path, e );
                 }
             }
 
+            if ( snapshot != null )
+                snapshot.save();
+
             return result;
         }
         catch ( InterruptedException e )
@@ -155,6 +284,7 @@ public class DefaultMetadataResolver
     private static PackageMetadata readMetadata( Path path )
         throws Exception
     {
+        long startTime = Metrics.startTime();
         try ( InputStream fis = Files.newInputStream( path ) )
         {
             try ( BufferedInputStream bis = new BufferedInputStream( fis, 128 ) )
@@ -166,6 +296,10 @@ public class DefaultMetadataResolver
                 }
             }
         }
+        finally
+        {
+            READ_FILE_TIME.recordSince( startTime );
+        }
     }
 
     private static boolean isCompressed( BufferedInputStream bis )
@@ -15,110 +15,45 @@
  */
 package org.fedoraproject.xmvn.metadata.impl;
 
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
-import org.fedoraproject.xmvn.artifact.DefaultArtifact;
 import org.fedoraproject.xmvn.logging.impl.Logger;
-import org.fedoraproject.xmvn.metadata.ArtifactAlias;
 import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
-import org.fedoraproject.xmvn.metadata.MetadataResult;
+import org.fedoraproject.xmvn.metadata.ListableMetadataResult;
 import org.fedoraproject.xmvn.metadata.PackageMetadata;
 
 /**
  * @author Mikolaj Izdebski
  */
 class DefaultMetadataResult
-    implements MetadataResult
+    implements ListableMetadataResult
 {
-    private final Logger logger;
-
-    private final Map<Artifact, ArtifactMetadata> artifactMap = new LinkedHashMap<>();
+    private final ArtifactIndex artifactIndex;
 
     public DefaultMetadataResult( Logger logger, List<PackageMetadata> metadataList, boolean ignoreDuplicates )
     {
-        this.logger = logger;
+        artifactIndex = new ArtifactIndex( logger, ignoreDuplicates );
 
         for ( PackageMetadata metadata : metadataList )
         {
             for ( ArtifactMetadata installedArtifact : metadata.getArtifacts() )
             {
-                processArtifactMetadata( installedArtifact, ignoreDuplicates );
+                artifactIndex.add( installedArtifact );
             }
         }
     }
 
-    private void processArtifactMetadata( ArtifactMetadata metadata, boolean ignoreDuplicates )
+    @Override
+    public ArtifactMetadata getMetadataFor( Artifact artifact )
     {
-        Artifact baseArtifact = metadata.toArtifact();
-
-        List<String> versions = metadata.getCompatVersions();
-        if ( versions.isEmpty() )
-            versions = Collections.singletonList( Artifact.DEFAULT_VERSION );
-
-        Set<Artifact> artifactSet = new LinkedHashSet<>();
-
-        for ( String version : versions )
-        {
-            artifactSet.add( baseArtifact.setVersion( version ) );
-        }
-
-        for ( ArtifactAlias alias : metadata.getAliases() )
-        {
-            Artifact aliasArtifact =
-                new DefaultArtifact( alias.getGroupId(), alias.getArtifactId(), alias.getExtension(),
-                                     alias.getClassifier(), metadata.getVersion() );
-
-            for ( String version : versions )
-            {
-                artifactSet.add( aliasArtifact.setVersion( version ) );
-            }
-        }
-
-        Set<Artifact> duplicateArtifacts = new LinkedHashSet<>();
-
-        for ( Artifact artifact : artifactSet )
-        {
-            if ( duplicateArtifacts.contains( artifact ) )
-            {
-                logger.debug( "Ignoring metadata for artifact {} as it was already excluded", artifact );
-                continue;
-            }
-
-            ArtifactMetadata otherMetadata = artifactMap.get( artifact );
-
-            if ( otherMetadata == null )
-            {
-                artifactMap.put( artifact, metadata );
-                continue;
-            }
-
-            duplicateArtifacts.add( artifact );
-
-            if ( ignoreDuplicates )
-            {
-                artifactMap.remove( artifact );
-                logger.warn( "Ignoring metadata for artifact {} as it has duplicate metadata", artifact );
-                continue;
-            }
-
-            logger.warn( "Duplicate metadata for artifact {}", artifact );
-
-            if ( otherMetadata.getNamespace().isEmpty() || !metadata.getNamespace().isEmpty() )
-            {
-                artifactMap.put( artifact, metadata );
-            }
-        }
+        return artifactIndex.get( artifact );
     }
 
     @Override
-    public ArtifactMetadata getMetadataFor( Artifact artifact )
+    public Collection<ArtifactMetadata> getArtifactMetadata()
     {
-        return artifactMap.get( artifact );
+        return artifactIndex.getAll();
     }
 }
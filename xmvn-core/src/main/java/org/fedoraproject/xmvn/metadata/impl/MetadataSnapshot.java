@@ -0,0 +1,364 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metadata.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.fedoraproject.xmvn.logging.impl.Logger;
+import org.fedoraproject.xmvn.metadata.PackageMetadata;
+import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxReader;
+import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxWriter;
+
+/**
+ * Snapshot of parsed metadata fragments, persisted in a file so that it can be reused by subsequent processes that
+ * resolve metadata from the same list of locations.
+ * <p>
+ * Snapshot files are stored in {@code $XDG_CACHE_HOME/xmvn}, one file per list of metadata locations. Each fragment is
+ * stored in the same XML format as metadata fragments themselves, together with size and modification time of the
+ * fragment file, and it is reused only if both still match the fragment file. Reading a single snapshot is cheaper than
+ * opening, decompressing and parsing many fragment files.
+ * Snapshot files are read under shared lock and replaced atomically under exclusive lock, so they can be safely used by
+ * concurrently running processes.
+ *
+ * @author Mikolaj Izdebski
+ */
+class MetadataSnapshot
+{
+    private static final String MAGIC = "XMvn metadata snapshot";
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final Object LOCK = new Object();
+
+    private final Logger logger;
+
+    private final Path snapshotFile;
+
+    private final Path lockFile;
+
+    private final List<String> locations;
+
+    private Map<Path, Fragment> loadedFragments = new HashMap<>();
+
+    private final Map<Path, Fragment> currentFragments = new LinkedHashMap<>();
+
+    private boolean dirty;
+
+    static class Stamp
+    {
+        private final long size;
+
+        private final long mtime;
+
+        Stamp( long size, long mtime )
+        {
+            this.size = size;
+            this.mtime = mtime;
+        }
+
+        static Stamp of( Path path )
+            throws IOException
+        {
+            return of( Files.readAttributes( path, BasicFileAttributes.class ) );
+        }
+
+        static Stamp of( BasicFileAttributes attrs )
+        {
+            return new Stamp( attrs.size(), attrs.lastModifiedTime().to( TimeUnit.NANOSECONDS ) );
+        }
+
+        boolean matches( Stamp other )
+        {
+            return size == other.size && mtime == other.mtime;
+        }
+    }
+
+    private static class Fragment
+    {
+        private final Stamp stamp;
+
+        private final PackageMetadata metadata;
+
+        Fragment( Stamp stamp, PackageMetadata metadata )
+        {
+            this.stamp = stamp;
+            this.metadata = metadata;
+        }
+    }
+
+    public MetadataSnapshot( Logger logger, Path cacheDir, List<String> locations )
+    {
+        this.logger = logger;
+        this.locations = locations;
+
+        String name = "metadata-v" + FORMAT_VERSION + "-" + digest( locations );
+        snapshotFile = cacheDir.resolve( name + ".snapshot" );
+        lockFile = cacheDir.resolve( name + ".lock" );
+    }
+
+    /**
+     * Determine default directory for metadata snapshots &ndash; {@code $XDG_CACHE_HOME/xmvn}, or
+     * {@code $HOME/.cache/xmvn} if {@code $XDG_CACHE_HOME} is not set.
+     *
+     * @return default snapshot directory
+     */
+    public static Path getDefaultCacheDir()
+    {
+        String cacheHome = System.getenv( "XDG_CACHE_HOME" );
+        if ( cacheHome == null || cacheHome.isEmpty() || !Paths.get( cacheHome ).isAbsolute() )
+        {
+            String home = System.getenv( "HOME" );
+            if ( home == null || home.isEmpty() )
+                home = System.getProperty( "user.home" );
+            cacheHome = Paths.get( home, ".cache" ).toString();
+        }
+
+        return Paths.get( cacheHome, "xmvn" );
+    }
+
+    private static String digest( List<String> locations )
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+            for ( String location : locations )
+            {
+                md.update( location.getBytes( StandardCharsets.UTF_8 ) );
+                md.update( (byte) 0 );
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for ( byte b : md.digest() )
+                sb.append( String.format( "%02x", b ) );
+            return sb.substring( 0, 32 );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new RuntimeException( "SHA-256 digest is not available", e );
+        }
+    }
+
+    /**
+     * Load snapshot file, if it exists. Failure to read snapshot is not fatal &ndash; all fragments are treated as
+     * stale in this case.
+     */
+    public void load()
+    {
+        synchronized ( LOCK )
+        {
+            if ( !Files.exists( lockFile ) )
+                return;
+
+            try ( FileChannel channel = FileChannel.open( lockFile, StandardOpenOption.READ );
+                            FileLock lock = channel.lock( 0, Long.MAX_VALUE, true ) )
+            {
+                loadedFragments = readSnapshot();
+                logger.debug( "Loaded {} metadata fragments from snapshot {}", loadedFragments.size(), snapshotFile );
+            }
+            catch ( NoSuchFileException e )
+            {
+                logger.debug( "Metadata snapshot {} does not exist", snapshotFile );
+            }
+            catch ( IOException | XMLStreamException e )
+            {
+                logger.debug( "Ignoring unreadable metadata snapshot {}: {}", snapshotFile, e );
+            }
+        }
+    }
+
+    private Map<Path, Fragment> readSnapshot()
+        throws IOException, XMLStreamException
+    {
+        long snapshotSize = Files.size( snapshotFile );
+        try ( InputStream is = Files.newInputStream( snapshotFile );
+                        DataInputStream dis = new DataInputStream( new BufferedInputStream( is ) ) )
+        {
+            if ( !MAGIC.equals( dis.readUTF() ) || dis.readInt() != FORMAT_VERSION
+                || !locations.equals( readLocations( dis ) ) )
+            {
+                throw new IOException( "snapshot header mismatch" );
+            }
+
+            MetadataStaxReader reader = new MetadataStaxReader();
+            int count = dis.readInt();
+            Map<Path, Fragment> fragments = new HashMap<>();
+            for ( int i = 0; i < count; i++ )
+            {
+                Path path = Paths.get( dis.readUTF() );
+                Stamp stamp = new Stamp( dis.readLong(), dis.readLong() );
+                int length = dis.readInt();
+                if ( length < 0 || length > snapshotSize )
+                    throw new IOException( "invalid fragment length" );
+                byte[] xml = new byte[length];
+                dis.readFully( xml );
+                PackageMetadata metadata =
+                    reader.read( new InputStreamReader( new ByteArrayInputStream( xml ), StandardCharsets.UTF_8 ) );
+                fragments.put( path, new Fragment( stamp, metadata ) );
+            }
+
+            return fragments;
+        }
+    }
+
+    private static List<String> readLocations( DataInputStream dis )
+        throws IOException
+    {
+        int count = dis.readInt();
+        List<String> locations = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+            locations.add( dis.readUTF() );
+        return locations;
+    }
+
+    /**
+     * Get metadata of given fragment from snapshot, if snapshot contains up-to-date metadata for it.
+     *
+     * @param path path to metadata fragment
+     * @param stamp current size and modification time of metadata fragment
+     * @return metadata from snapshot, or {@code null} if snapshot does not contain up-to-date metadata
+     */
+    public PackageMetadata get( Path path, Stamp stamp )
+    {
+        Fragment fragment = loadedFragments.get( path );
+        if ( fragment == null || !fragment.stamp.matches( stamp ) )
+            return null;
+
+        currentFragments.put( path, fragment );
+        return fragment.metadata;
+    }
+
+    /**
+     * Record freshly read metadata fragment in snapshot.
+     *
+     * @param path path to metadata fragment
+     * @param stamp size and modification time of metadata fragment at the time it was read
+     * @param metadata metadata read from fragment
+     */
+    public void put( Path path, Stamp stamp, PackageMetadata metadata )
+    {
+        currentFragments.put( path, new Fragment( stamp, metadata ) );
+        dirty = true;
+    }
+
+    /**
+     * Write snapshot file if any fragment was added, updated or removed since snapshot was loaded. Failure to write
+     * snapshot is not fatal and it is only logged.
+     */
+    public void save()
+    {
+        if ( !dirty && currentFragments.size() == loadedFragments.size() )
+            return;
+
+        synchronized ( LOCK )
+        {
+            try
+            {
+                Files.createDirectories( snapshotFile.getParent() );
+
+                try ( FileChannel channel =
+                    FileChannel.open( lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+                                FileLock lock = channel.lock() )
+                {
+                    Path tempFile = Files.createTempFile( snapshotFile.getParent(), "metadata-", ".tmp" );
+                    try
+                    {
+                        writeSnapshot( tempFile );
+                        Files.move( tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                                    StandardCopyOption.ATOMIC_MOVE );
+                    }
+                    finally
+                    {
+                        Files.deleteIfExists( tempFile );
+                    }
+                }
+
+                logger.debug( "Saved {} metadata fragments to snapshot {}", currentFragments.size(), snapshotFile );
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Unable to write metadata snapshot {}: {}", snapshotFile, e );
+            }
+        }
+    }
+
+    private void writeSnapshot( Path path )
+        throws IOException
+    {
+        MetadataStaxWriter writer = new MetadataStaxWriter();
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+
+        try ( OutputStream os = Files.newOutputStream( path );
+                        DataOutputStream dos = new DataOutputStream( new BufferedOutputStream( os ) ) )
+        {
+            dos.writeUTF( MAGIC );
+            dos.writeInt( FORMAT_VERSION );
+            dos.writeInt( locations.size() );
+            for ( String location : locations )
+                dos.writeUTF( location );
+            dos.writeInt( currentFragments.size() );
+
+            for ( Map.Entry<Path, Fragment> entry : currentFragments.entrySet() )
+            {
+                xml.reset();
+                try ( Writer xmlWriter = new OutputStreamWriter( xml, StandardCharsets.UTF_8 ) )
+                {
+                    writer.write( xmlWriter, entry.getValue().metadata );
+                }
+
+                dos.writeUTF( entry.getKey().toString() );
+                dos.writeLong( entry.getValue().stamp.size );
+                dos.writeLong( entry.getValue().stamp.mtime );
+                dos.writeInt( xml.size() );
+                xml.writeTo( dos );
+            }
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new IOException( "Unable to serialize metadata", e );
+        }
+    }
+}
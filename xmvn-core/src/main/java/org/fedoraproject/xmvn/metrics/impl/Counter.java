@@ -0,0 +1,73 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metrics.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter of events.
+ * <p>
+ * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
+ * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
+ * it directly.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public final class Counter
+    extends Metric
+{
+    private final LongAdder value = new LongAdder();
+
+    Counter( String name )
+    {
+        super( name );
+    }
+
+    public void increment()
+    {
+        if ( Metrics.isEnabled() )
+            value.increment();
+    }
+
+    public void add( long delta )
+    {
+        if ( Metrics.isEnabled() )
+            value.add( delta );
+    }
+
+    public long get()
+    {
+        return value.sum();
+    }
+
+    @Override
+    void appendJson( StringBuilder sb )
+    {
+        sb.append( "{\"count\":" ).append( get() ).append( '}' );
+    }
+
+    @Override
+    public String getSummary()
+    {
+        return Long.toString( get() );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return get() == 0;
+    }
+}
@@ -0,0 +1,177 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metrics.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with logarithmic buckets.
+ * <p>
+ * Durations are recorded in nanoseconds. Bucket {@code i} counts durations {@code d} such that
+ * {@code 2^(i-1) <= d < 2^i}, therefore percentiles are estimated with relative error not exceeding 100%, which is
+ * plenty for finding out where time goes, while recording is wait-free and takes constant space.
+ * <p>
+ * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
+ * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
+ * it directly.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public final class Histogram
+    extends Metric
+{
+    private static final int BUCKETS = 64;
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final double MEDIAN = 0.5;
+
+    private static final double P90 = 0.9;
+
+    private static final double P99 = 0.99;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram( String name )
+    {
+        super( name );
+    }
+
+    /**
+     * Record duration of event which started at given time.
+     * 
+     * @param startTime start time, as obtained from {@link Metrics#startTime()}
+     */
+    public void recordSince( long startTime )
+    {
+        if ( Metrics.isEnabled() )
+            record( System.nanoTime() - startTime );
+    }
+
+    /**
+     * Record duration of single event.
+     * 
+     * @param nanos duration of event, in nanoseconds
+     */
+    public void record( long nanos )
+    {
+        if ( !Metrics.isEnabled() )
+            return;
+
+        long duration = Math.max( nanos, 0 );
+        buckets.incrementAndGet( Math.min( BUCKETS - Long.numberOfLeadingZeros( duration ), BUCKETS - 1 ) );
+        count.increment();
+        sum.add( duration );
+        max.accumulateAndGet( duration, Math::max );
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getTotalNanos()
+    {
+        return sum.sum();
+    }
+
+    public long getMaxNanos()
+    {
+        return max.get();
+    }
+
+    public long getMeanNanos()
+    {
+        long n = getCount();
+        return n == 0 ? 0 : getTotalNanos() / n;
+    }
+
+    /**
+     * Estimate given percentile of recorded durations.
+     * 
+     * @param quantile quantile to estimate, between 0 and 1
+     * @return upper bound of histogram bucket containing requested percentile, in nanoseconds
+     */
+    public long getPercentileNanos( double quantile )
+    {
+        long n = getCount();
+        if ( n == 0 )
+            return 0;
+
+        long rank = (long) Math.ceil( quantile * n );
+        long seen = 0;
+
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += buckets.get( i );
+            if ( seen >= rank )
+                return Math.min( i == 0 ? 0 : ( 1L << i ) - 1, getMaxNanos() );
+        }
+
+        return getMaxNanos();
+    }
+
+    @Override
+    void appendJson( StringBuilder sb )
+    {
+        sb.append( "{\"count\":" ).append( getCount() );
+        sb.append( ",\"totalNanos\":" ).append( getTotalNanos() );
+        sb.append( ",\"meanNanos\":" ).append( getMeanNanos() );
+        sb.append( ",\"p50Nanos\":" ).append( getPercentileNanos( MEDIAN ) );
+        sb.append( ",\"p90Nanos\":" ).append( getPercentileNanos( P90 ) );
+        sb.append( ",\"p99Nanos\":" ).append( getPercentileNanos( P99 ) );
+        sb.append( ",\"maxNanos\":" ).append( getMaxNanos() );
+        sb.append( ",\"buckets\":[" );
+        int last = BUCKETS - 1;
+        while ( last > 0 && buckets.get( last ) == 0 )
+            last--;
+        for ( int i = 0; i <= last; i++ )
+        {
+            if ( i > 0 )
+                sb.append( ',' );
+            sb.append( buckets.get( i ) );
+        }
+        sb.append( "]}" );
+    }
+
+    private static String millis( long nanos )
+    {
+        return String.format( "%.3f ms", nanos / NANOS_PER_MILLI );
+    }
+
+    @Override
+    public String getSummary()
+    {
+        return String.format( "count=%d total=%s mean=%s p50<=%s p90<=%s p99<=%s max=%s", getCount(),
+                              millis( getTotalNanos() ), millis( getMeanNanos() ),
+                              millis( getPercentileNanos( MEDIAN ) ), millis( getPercentileNanos( P90 ) ),
+                              millis( getPercentileNanos( P99 ) ), millis( getMaxNanos() ) );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return getCount() == 0;
+    }
+}
@@ -0,0 +1,106 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metrics.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts hits and misses of a cache or of a lookup.
+ * <p>
+ * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
+ * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
+ * it directly.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public final class HitRatio
+    extends Metric
+{
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    HitRatio( String name )
+    {
+        super( name );
+    }
+
+    public void hit()
+    {
+        if ( Metrics.isEnabled() )
+            hits.increment();
+    }
+
+    public void miss()
+    {
+        if ( Metrics.isEnabled() )
+            misses.increment();
+    }
+
+    public void record( boolean hit )
+    {
+        if ( hit )
+            hit();
+        else
+            miss();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Get ratio of hits to all recorded events.
+     * 
+     * @return hit ratio, between 0 and 1, or {@code NaN} if nothing was recorded
+     */
+    public double getRatio()
+    {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? Double.NaN : (double) h / total;
+    }
+
+    @Override
+    void appendJson( StringBuilder sb )
+    {
+        double ratio = getRatio();
+        sb.append( "{\"hits\":" ).append( getHits() );
+        sb.append( ",\"misses\":" ).append( getMisses() );
+        sb.append( ",\"ratio\":" ).append( Double.isNaN( ratio ) ? "null" : Double.toString( ratio ) );
+        sb.append( '}' );
+    }
+
+    @Override
+    public String getSummary()
+    {
+        double ratio = getRatio();
+        return String.format( "%d hits, %d misses (%s hit ratio)", getHits(), getMisses(),
+                              Double.isNaN( ratio ) ? "n/a" : String.format( "%.1f%%", 100 * ratio ) );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return getHits() == 0 && getMisses() == 0;
+    }
+}
@@ -0,0 +1,67 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metrics.impl;
+
+/**
+ * Named performance metric.
+ * <p>
+ * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
+ * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
+ * it directly.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public abstract class Metric
+{
+    private final String name;
+
+    Metric( String name )
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Append JSON representation of current metric value to given builder.
+     * 
+     * @param sb string builder to append JSON object to
+     */
+    abstract void appendJson( StringBuilder sb );
+
+    /**
+     * Get short, human-readable representation of current metric value.
+     * 
+     * @return metric summary
+     */
+    public abstract String getSummary();
+
+    /**
+     * Determine whether this metric has recorded anything yet.
+     * 
+     * @return {@code true} iff this metric was never updated
+     */
+    public abstract boolean isEmpty();
+
+    @Override
+    public String toString()
+    {
+        return name + ": " + getSummary();
+    }
+}
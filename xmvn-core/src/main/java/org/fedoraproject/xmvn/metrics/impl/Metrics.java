@@ -0,0 +1,207 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metrics.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Registry of XMvn performance metrics.
+ * <p>
+ * Metrics collection is disabled by default, in which case updating any metric costs a single volatile read. It can be
+ * enabled by setting {@code xmvn.metrics} system property to {@code true}. If {@code xmvn.metrics.file} system property
+ * is set then metrics collection is enabled too and all metrics are written to that file in JSON format when JVM
+ * exits.
+ * <p>
+ * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
+ * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
+ * it directly.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public final class Metrics
+{
+    private static final Map<String, Metric> METRICS = new TreeMap<>();
+
+    private static volatile boolean enabled;
+
+    static
+    {
+        String dumpFile = System.getProperty( "xmvn.metrics.file" );
+        enabled = Boolean.getBoolean( "xmvn.metrics" ) || dumpFile != null && !dumpFile.isEmpty();
+
+        if ( dumpFile != null && !dumpFile.isEmpty() )
+        {
+            Path dumpPath = Paths.get( dumpFile );
+            Runtime.getRuntime().addShutdownHook( new Thread( () ->
+            {
+                try
+                {
+                    dump( dumpPath );
+                }
+                catch ( IOException e )
+                {
+                    System.err.println( "[WARNING] Unable to write XMvn metrics to " + dumpPath + ": " + e );
+                }
+            } ) );
+        }
+    }
+
+    private Metrics()
+    {
+        // Avoid generating default public constructor
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled( boolean enabled )
+    {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Get start time of timed event, to be later passed to {@link Histogram#recordSince(long)}. When metrics are
+     * disabled system timer is not queried.
+     * 
+     * @return current value of system timer, in nanoseconds, or 0 if metrics collection is disabled
+     */
+    public static long startTime()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    private static <T extends Metric> T register( String name, Class<T> type, Function<String, T> factory )
+    {
+        synchronized ( METRICS )
+        {
+            Metric metric = METRICS.computeIfAbsent( name, factory );
+            if ( !type.isInstance( metric ) )
+                throw new IllegalArgumentException( "Metric " + name + " is already registered with different type" );
+            return type.cast( metric );
+        }
+    }
+
+    public static Counter counter( String name )
+    {
+        return register( name, Counter.class, Counter::new );
+    }
+
+    public static Histogram histogram( String name )
+    {
+        return register( name, Histogram.class, Histogram::new );
+    }
+
+    public static HitRatio hitRatio( String name )
+    {
+        return register( name, HitRatio.class, HitRatio::new );
+    }
+
+    /**
+     * Get all registered metrics, sorted by name.
+     * 
+     * @return list of registered metrics
+     */
+    public static List<Metric> getMetrics()
+    {
+        synchronized ( METRICS )
+        {
+            return new ArrayList<>( METRICS.values() );
+        }
+    }
+
+    /**
+     * Get human-readable summary of all metrics that were updated at least once.
+     * 
+     * @return list of summary lines, one per metric
+     */
+    public static List<String> getSummary()
+    {
+        List<String> summary = new ArrayList<>();
+
+        for ( Metric metric : getMetrics() )
+        {
+            if ( !metric.isEmpty() )
+                summary.add( metric.toString() );
+        }
+
+        return summary;
+    }
+
+    private static void appendJsonString( StringBuilder sb, String value )
+    {
+        sb.append( '"' );
+        for ( char c : value.toCharArray() )
+        {
+            if ( c == '"' || c == '\\' )
+                sb.append( '\\' ).append( c );
+            else if ( c < ' ' )
+                sb.append( String.format( "\\u%04x", (int) c ) );
+            else
+                sb.append( c );
+        }
+        sb.append( '"' );
+    }
+
+    /**
+     * Get JSON representation of all registered metrics.
+     * 
+     * @return JSON object mapping metric names to their values
+     */
+    public static String toJson()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( '{' );
+
+        boolean first = true;
+        for ( Metric metric : getMetrics() )
+        {
+            if ( !first )
+                sb.append( ',' );
+            first = false;
+
+            sb.append( "\n  " );
+            appendJsonString( sb, metric.getName() );
+            sb.append( ':' );
+            metric.appendJson( sb );
+        }
+
+        sb.append( "\n}\n" );
+        return sb.toString();
+    }
+
+    /**
+     * Write all registered metrics to given file in JSON format.
+     * 
+     * @param path path to file to write
+     * @throws IOException if writing the file fails
+     */
+    public static void dump( Path path )
+        throws IOException
+    {
+        Files.write( path, toJson().getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
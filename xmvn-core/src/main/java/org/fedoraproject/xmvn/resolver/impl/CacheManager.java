@@ -23,6 +23,9 @@ import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import org.fedoraproject.xmvn.metrics.impl.HitRatio;
+import org.fedoraproject.xmvn.metrics.impl.Metrics;
+
 /**
  * @author Mikolaj Izdebski
  */
@@ -34,6 +37,8 @@ class CacheManager
 
     private static volatile Path cacheHome;
 
+    private static final HitRatio CACHE_HITS = Metrics.hitRatio( "resolver.cache" );
+
     public CacheManager()
     {
         try
@@ -92,7 +97,9 @@ class CacheManager
 
         Path cacheFile = cacheDir.resolve( path.getFileName() );
 
-        if ( !Files.isRegularFile( cacheFile ) )
+        boolean cached = Files.isRegularFile( cacheFile );
+        CACHE_HITS.record( cached );
+        if ( !cached )
         {
             Files.copy( path, cacheFile );
         }
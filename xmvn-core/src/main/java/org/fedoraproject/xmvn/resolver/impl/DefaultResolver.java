@@ -33,6 +33,9 @@ import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
 import org.fedoraproject.xmvn.metadata.MetadataRequest;
 import org.fedoraproject.xmvn.metadata.MetadataResolver;
 import org.fedoraproject.xmvn.metadata.MetadataResult;
+import org.fedoraproject.xmvn.metrics.impl.Histogram;
+import org.fedoraproject.xmvn.metrics.impl.HitRatio;
+import org.fedoraproject.xmvn.metrics.impl.Metrics;
 import org.fedoraproject.xmvn.resolver.ResolutionRequest;
 import org.fedoraproject.xmvn.resolver.ResolutionResult;
 import org.fedoraproject.xmvn.resolver.Resolver;
@@ -65,6 +68,26 @@ public class DefaultResolver
 
     private static final RpmDb RPMDB = new RpmDb();
 
+    private static final Histogram RESOLVE_TIME = Metrics.histogram( "resolver.resolve" );
+
+    private static final Histogram LOCAL_REPO_TIME = Metrics.histogram( "resolver.resolve.localRepoProbe" );
+
+    private static final Histogram METADATA_LOOKUP_TIME = Metrics.histogram( "resolver.resolve.metadataLookup" );
+
+    private static final Histogram EFFECTIVE_POM_TIME = Metrics.histogram( "resolver.resolve.effectivePom" );
+
+    private static final Histogram REAL_PATH_TIME = Metrics.histogram( "resolver.resolve.realPath" );
+
+    private static final Histogram PROVIDER_LOOKUP_TIME = Metrics.histogram( "resolver.resolve.providerLookup" );
+
+    private static final HitRatio LOCAL_REPO_HITS = Metrics.hitRatio( "resolver.localRepo" );
+
+    private static final HitRatio METADATA_RESULT_HITS = Metrics.hitRatio( "resolver.metadataResult" );
+
+    private static final HitRatio METADATA_HITS = Metrics.hitRatio( "resolver.metadata" );
+
+    private static final HitRatio COMPAT_VERSION_HITS = Metrics.hitRatio( "resolver.metadata.compatVersion" );
+
     private final Resolver localRepoResolver;
 
     private final EffectivePomGenerator pomGenerator;
@@ -98,6 +121,19 @@ public class DefaultResolver
 
     @Override
     public ResolutionResult resolve( ResolutionRequest request )
+    {
+        long startTime = Metrics.startTime();
+        try
+        {
+            return doResolve( request );
+        }
+        finally
+        {
+            RESOLVE_TIME.recordSince( startTime );
+        }
+    }
+
+    private ResolutionResult doResolve( ResolutionRequest request )
     {
         if ( bisectCounter != null && bisectCounter.tryDecrement() > 0 )
             return new DefaultResolutionResult();
@@ -105,7 +141,10 @@ public class DefaultResolver
         Properties properties = new Properties();
         properties.putAll( System.getProperties() );
 
+        long startTime = Metrics.startTime();
         ResolutionResult localRepoResult = localRepoResolver.resolve( request );
+        LOCAL_REPO_TIME.recordSince( startTime );
+        LOCAL_REPO_HITS.record( localRepoResult.getArtifactPath() != null );
         if ( localRepoResult.getArtifactPath() != null )
             return localRepoResult;
 
@@ -118,10 +157,12 @@ public class DefaultResolver
             metadataRequest = new MetadataRequest( settings.getMetadataRepositories() );
             metadataRequest.setIgnoreDuplicates( settings.isIgnoreDuplicateMetadata() );
         }
+        METADATA_RESULT_HITS.record( metadataResult != null );
         if ( metadataResult == null )
         {
             metadataResult = metadataResolver.resolveMetadata( metadataRequest );
         }
+        startTime = Metrics.startTime();
         ArtifactMetadata metadata = metadataResult.getMetadataFor( artifact );
 
         String compatVersion;
@@ -134,6 +175,7 @@ public class DefaultResolver
         {
             compatVersion = artifact.getVersion();
         }
+        METADATA_LOOKUP_TIME.recordSince( startTime );
 
         if ( mockAgent == null )
         {
@@ -156,11 +198,13 @@ public class DefaultResolver
             }
         }
 
+        METADATA_HITS.record( metadata != null );
         if ( metadata == null )
         {
             logger.debug( "Failed to resolve artifact: {}", artifact );
             return new DefaultResolutionResult();
         }
+        COMPAT_VERSION_HITS.record( compatVersion != null );
 
         properties.putAll( metadata.getProperties() );
 
@@ -168,6 +212,7 @@ public class DefaultResolver
             && "pom".equals( metadata.getExtension() )
             && ( !"pom".equals( properties.getProperty( "type" ) ) || metadata.getPath() == null ) )
         {
+            startTime = Metrics.startTime();
             try
             {
                 Path pomPath = pomGenerator.generateEffectivePom( metadata, artifact );
@@ -184,8 +229,13 @@ public class DefaultResolver
                 logger.warn( "Failed to generate effective POM", e );
                 return new DefaultResolutionResult();
             }
+            finally
+            {
+                EFFECTIVE_POM_TIME.recordSince( startTime );
+            }
         }
 
+        startTime = Metrics.startTime();
         Path artifactPath = Paths.get( metadata.getPath() );
         try
         {
@@ -195,12 +245,17 @@ public class DefaultResolver
         {
             // Ignore
         }
+        REAL_PATH_TIME.recordSince( startTime );
 
         DefaultResolutionResult result = new DefaultResolutionResult( artifactPath );
         result.setNamespace( metadata.getNamespace() );
         result.setCompatVersion( compatVersion );
         if ( request.isProviderNeeded() )
+        {
+            startTime = Metrics.startTime();
             result.setProvider( RPMDB.lookupPath( artifactPath ) );
+            PROVIDER_LOOKUP_TIME.recordSince( startTime );
+        }
 
         logger.debug( "Artifact {} was resolved to {}", artifact, artifactPath );
         return result;
@@ -73,6 +73,10 @@ public class ConfigurationMergerTest
         assertEquals( true, out.getResolverSettings().isDebug() );
         assertEquals( true, out.getInstallerSettings().isDebug() );
         assertEquals( "/foo/bar", out.getInstallerSettings().getMetadataDir() );
+        assertEquals( "reflink", out.getInstallerSettings().getInstallStrategy() );
+        assertEquals( true, out.getInstallerSettings().isAppendManifest() );
+        assertEquals( true, out.getInstallerSettings().isDeduplicate() );
+        assertEquals( true, out.getInstallerSettings().isCompressMetadata() );
         assertEquals( false, out.getResolverSettings().isIgnoreDuplicateMetadata() );
 
         Configuration c6 = merger.merge( c2, c2.clone() );
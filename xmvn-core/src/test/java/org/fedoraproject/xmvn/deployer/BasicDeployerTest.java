@@ -17,6 +17,7 @@ package org.fedoraproject.xmvn.deployer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.BufferedWriter;
@@ -27,6 +28,7 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.xmlunit.assertj.XmlAssert;
@@ -123,6 +125,52 @@ public class BasicDeployerTest
             "</metadata>\n" ).and( plan.toFile() ).ignoreComments().ignoreWhitespace().areSimilar();
     }
 
+    @Test
+    public void testBatchDeployment()
+        throws Exception
+    {
+        Deployer deployer = getService( Deployer.class );
+        Path dir = Files.createTempDirectory( "xmvn-test" );
+        Path plan1 = dir.resolve( "plan1.xml" );
+        Path plan2 = dir.resolve( "plan2.xml" );
+        try ( BufferedWriter bw = Files.newBufferedWriter( plan2 ) )
+        {
+            bw.write( "<metadata><artifacts><artifact><groupId>x</groupId><artifactId>y</artifactId>"
+                + "<version>z</version><path>/dev/null</path></artifact></artifacts></metadata>" );
+        }
+
+        DeploymentRequest req1 = new DeploymentRequest();
+        req1.setPlanPath( plan1 );
+        req1.setArtifact( new DefaultArtifact( "g:a:v" ).setPath( Paths.get( "/dev/null" ) ) );
+        DeploymentRequest req2 = new DeploymentRequest();
+        req2.setPlanPath( plan2 );
+        req2.setArtifact( new DefaultArtifact( "g:b:v" ).setPath( Paths.get( "/dev/null" ) ) );
+        DeploymentRequest req3 = new DeploymentRequest();
+        req3.setPlanPath( plan1 );
+        req3.setArtifact( new DefaultArtifact( "g:c:v" ) );
+        DeploymentRequest req4 = new DeploymentRequest();
+        req4.setPlanPath( plan1 );
+        req4.setArtifact( new DefaultArtifact( "g:d:v" ).setPath( Paths.get( "/dev/null" ) ) );
+
+        List<DeploymentResult> results = deployer.deploy( Arrays.asList( req1, req2, req3, req4 ) );
+        assertEquals( 4, results.size() );
+        assertNull( results.get( 0 ).getException() );
+        assertNull( results.get( 1 ).getException() );
+        assertNotNull( results.get( 2 ).getException() );
+        assertNull( results.get( 3 ).getException() );
+
+        XmlAssert.assertThat( "<metadata xmlns=\"http://fedorahosted.org/xmvn/METADATA/3.2.0\"><artifacts>"
+            + "<artifact><groupId>g</groupId><artifactId>a</artifactId><version>v</version><path>/dev/null</path>"
+            + "</artifact><artifact><groupId>g</groupId><artifactId>d</artifactId><version>v</version>"
+            + "<path>/dev/null</path></artifact></artifacts></metadata>" ).and( plan1.toFile() ) //
+                  .ignoreComments().ignoreWhitespace().areSimilar();
+        XmlAssert.assertThat( "<metadata xmlns=\"http://fedorahosted.org/xmvn/METADATA/3.2.0\"><artifacts>"
+            + "<artifact><groupId>x</groupId><artifactId>y</artifactId><version>z</version><path>/dev/null</path>"
+            + "</artifact><artifact><groupId>g</groupId><artifactId>b</artifactId><version>v</version>"
+            + "<path>/dev/null</path></artifact></artifacts></metadata>" ).and( plan2.toFile() ) //
+                  .ignoreComments().ignoreWhitespace().areSimilar();
+    }
+
     @Test
     public void testReadError()
         throws Exception
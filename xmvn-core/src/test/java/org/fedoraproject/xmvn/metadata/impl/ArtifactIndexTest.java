@@ -0,0 +1,165 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metadata.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.logging.impl.ConsoleLogger;
+import org.fedoraproject.xmvn.metadata.ArtifactAlias;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class ArtifactIndexTest
+{
+    private static ArtifactMetadata metadata( String groupId, String artifactId, String namespace,
+                                              String... compatVersions )
+    {
+        ArtifactMetadata am = new ArtifactMetadata();
+        am.setGroupId( groupId );
+        am.setArtifactId( artifactId );
+        am.setVersion( "1.0" );
+        am.setNamespace( namespace );
+        for ( String version : compatVersions )
+            am.addCompatVersion( version );
+        return am;
+    }
+
+    private static ArtifactAlias alias( String groupId, String artifactId )
+    {
+        ArtifactAlias alias = new ArtifactAlias();
+        alias.setGroupId( groupId );
+        alias.setArtifactId( artifactId );
+        return alias;
+    }
+
+    @Test
+    public void testAliasesAndCompatVersions()
+        throws Exception
+    {
+        ArtifactMetadata am = metadata( "gid", "aid", "", "1", "2" );
+        am.addAlias( alias( "a-gid", "a-aid" ) );
+        am.addAlias( alias( "gid", "aid" ) );
+
+        ArtifactIndex index = new ArtifactIndex( new ConsoleLogger(), true );
+        index.add( am );
+
+        assertSame( am, index.get( new DefaultArtifact( "gid:aid:1" ) ) );
+        assertSame( am, index.get( new DefaultArtifact( "gid:aid:jar::2" ) ) );
+        assertSame( am, index.get( new DefaultArtifact( "a-gid:a-aid:1" ) ) );
+        assertSame( am, index.get( new DefaultArtifact( "a-gid:a-aid:2" ) ) );
+        assertNull( index.get( new DefaultArtifact( "gid:aid:3" ) ) );
+        assertNull( index.get( new DefaultArtifact( "gid:aid:SYSTEM" ) ) );
+        assertNull( index.get( new DefaultArtifact( "gid:aid:pom:1" ) ) );
+        assertNull( index.get( new DefaultArtifact( "gid:aid:jar:cla:1" ) ) );
+    }
+
+    @Test
+    public void testManyEntries()
+        throws Exception
+    {
+        ArtifactIndex index = new ArtifactIndex( new ConsoleLogger(), true );
+        ArtifactMetadata[] mds = new ArtifactMetadata[1000];
+        for ( int i = 0; i < mds.length; i++ )
+        {
+            mds[i] = metadata( "gid" + i % 10, "aid" + i, "" );
+            index.add( mds[i] );
+        }
+
+        for ( int i = 0; i < mds.length; i++ )
+            assertSame( mds[i], index.get( new DefaultArtifact( "gid" + i % 10, "aid" + i ) ) );
+        assertNull( index.get( new DefaultArtifact( "gid1", "aid2" ) ) );
+    }
+
+    @Test
+    public void testIgnoreDuplicates()
+        throws Exception
+    {
+        ArtifactMetadata am1 = metadata( "gid", "aid", "", "1", "2" );
+        ArtifactMetadata am2 = metadata( "gid", "aid", "", "2", "3" );
+
+        ArtifactIndex index = new ArtifactIndex( new ConsoleLogger(), true );
+        index.add( am1 );
+        index.add( am2 );
+
+        assertSame( am1, index.get( new DefaultArtifact( "gid:aid:1" ) ) );
+        assertNull( index.get( new DefaultArtifact( "gid:aid:2" ) ) );
+        assertSame( am2, index.get( new DefaultArtifact( "gid:aid:3" ) ) );
+    }
+
+    @Test
+    public void testIgnoreDuplicatesAliasEqualToArtifact()
+        throws Exception
+    {
+        ArtifactMetadata am1 = metadata( "gid", "aid", "" );
+        ArtifactMetadata am2 = metadata( "gid", "aid", "" );
+        am2.addAlias( alias( "gid", "aid" ) );
+        ArtifactMetadata am3 = metadata( "gid", "other", "", "1" );
+        ArtifactMetadata am4 = metadata( "gid", "other", "", "1", "1" );
+
+        ArtifactIndex index = new ArtifactIndex( new ConsoleLogger(), true );
+        index.add( am1 );
+        index.add( am2 );
+        index.add( am3 );
+        index.add( am4 );
+
+        // Coordinates reachable twice from the same metadata must stay excluded
+        assertNull( index.get( new DefaultArtifact( "gid:aid:SYSTEM" ) ) );
+        assertNull( index.get( new DefaultArtifact( "gid:other:1" ) ) );
+    }
+
+    @Test
+    public void testDuplicatesPreferNamespace()
+        throws Exception
+    {
+        ArtifactMetadata am1 = metadata( "gid", "aid", "ns" );
+        ArtifactMetadata am2 = metadata( "gid", "aid", "" );
+        ArtifactMetadata am3 = metadata( "gid", "aid", "ns2" );
+
+        ArtifactIndex index = new ArtifactIndex( new ConsoleLogger(), false );
+        index.add( am1 );
+        index.add( am2 );
+        assertSame( am1, index.get( new DefaultArtifact( "gid:aid" ) ) );
+        index.add( am3 );
+        assertSame( am3, index.get( new DefaultArtifact( "gid:aid" ) ) );
+    }
+
+    @Test
+    public void testGetAll()
+        throws Exception
+    {
+        ArtifactMetadata am1 = metadata( "gid", "aid", "", "1", "2" );
+        am1.addAlias( alias( "a-gid", "a-aid" ) );
+        ArtifactMetadata am2 = metadata( "gid", "aid", "", "2" );
+        ArtifactMetadata am3 = metadata( "gid", "other", "" );
+
+        ArtifactIndex index = new ArtifactIndex( new ConsoleLogger(), true );
+        index.add( am1 );
+        index.add( am2 );
+        index.add( am3 );
+
+        // Every artifact is listed once, even though it is bound to many coordinates
+        assertEquals( Arrays.asList( am1, am3 ), index.getAll() );
+    }
+}
@@ -18,6 +18,7 @@ package org.fedoraproject.xmvn.metadata.impl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
@@ -170,4 +171,24 @@ public class MetadataResolverTest
         assertNotNull( am );
         assertEquals( "/usr/share/java/plexus/ant-factory-1.0.jar", am.getPath() );
     }
+
+    /**
+     * Test if metadata fragments shared by multiple requests resolved at once are read only once.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testSharedFragments()
+        throws Exception
+    {
+        MetadataRequest request1 = new MetadataRequest( Arrays.asList( "src/test/resources/metadata1.xml" ) );
+        MetadataRequest request2 = new MetadataRequest( Arrays.asList( "src/test/../test/resources/metadata1.xml" ) );
+        List<MetadataResult> results = metadataResolver.resolveMetadata( Arrays.asList( request1, request2 ) );
+        assertEquals( 2, results.size() );
+
+        Artifact artifact = new DefaultArtifact( "gid", "aid", "ext", "cla", "1.2-beta3" );
+        ArtifactMetadata am = results.get( 0 ).getMetadataFor( artifact );
+        assertNotNull( am );
+        assertSame( am, results.get( 1 ).getMetadataFor( artifact ) );
+    }
 }
@@ -0,0 +1,130 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metadata.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.fedoraproject.xmvn.metadata.PackageMetadata;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class MetadataSnapshotTest
+{
+    @TempDir
+    Path tempDir;
+
+    private Path repoDir;
+
+    private Path cacheDir;
+
+    private Path fragment;
+
+    @BeforeEach
+    public void setUp()
+        throws Exception
+    {
+        repoDir = Files.createDirectory( tempDir.resolve( "repo" ) );
+        cacheDir = tempDir.resolve( "cache" );
+        fragment = repoDir.resolve( "metadata1.xml" );
+        Files.copy( Paths.get( "src/test/resources/metadata1.xml" ), fragment );
+    }
+
+    private List<PackageMetadata> read()
+    {
+        DefaultMetadataResolver resolver = new DefaultMetadataResolver();
+        resolver.setSnapshotDir( cacheDir );
+        return resolver.readMetadata( Collections.singletonList( repoDir.toString() ) );
+    }
+
+    private void overwriteKeepingStamp( Path path )
+        throws Exception
+    {
+        FileTime mtime = Files.getLastModifiedTime( path );
+        byte[] garbage = new byte[(int) Files.size( path )];
+        Arrays.fill( garbage, (byte) 'x' );
+        Files.write( path, garbage );
+        Files.setLastModifiedTime( path, mtime );
+    }
+
+    @Test
+    public void testSnapshotReused()
+        throws Exception
+    {
+        List<PackageMetadata> first = read();
+        assertEquals( 1, first.size() );
+        assertTrue( Files.list( cacheDir ).anyMatch( p -> p.toString().endsWith( ".snapshot" ) ) );
+
+        // Fragment is unparseable now, but its size and mtime are unchanged, so snapshot is used
+        overwriteKeepingStamp( fragment );
+
+        List<PackageMetadata> second = read();
+        assertEquals( 1, second.size() );
+        assertEquals( first.get( 0 ).getUuid(), second.get( 0 ).getUuid() );
+        assertEquals( first.get( 0 ).getArtifacts().size(), second.get( 0 ).getArtifacts().size() );
+    }
+
+    @Test
+    public void testModifiedFragmentInvalidatesSnapshot()
+        throws Exception
+    {
+        assertEquals( 1, read().size() );
+
+        overwriteKeepingStamp( fragment );
+        Files.setLastModifiedTime( fragment, FileTime.fromMillis( System.currentTimeMillis() + 10_000 ) );
+
+        assertTrue( read().isEmpty() );
+    }
+
+    @Test
+    public void testAddedAndRemovedFragments()
+        throws Exception
+    {
+        assertEquals( 1, read().size() );
+
+        Files.copy( Paths.get( "src/test/resources/simple.xml" ), repoDir.resolve( "simple.xml" ) );
+        assertEquals( 2, read().size() );
+
+        Files.delete( fragment );
+        assertEquals( 1, read().size() );
+        assertEquals( 1, read().size() );
+    }
+
+    @Test
+    public void testCorruptedSnapshotIgnored()
+        throws Exception
+    {
+        assertEquals( 1, read().size() );
+
+        for ( Path file : (Iterable<Path>) Files.list( cacheDir )::iterator )
+            Files.write( file, new byte[] { 1, 2, 3 } );
+
+        assertEquals( 1, read().size() );
+    }
+}
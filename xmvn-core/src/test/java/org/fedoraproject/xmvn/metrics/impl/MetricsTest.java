@@ -0,0 +1,109 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metrics.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class MetricsTest
+{
+    private boolean wasEnabled;
+
+    @BeforeEach
+    public void setUp()
+    {
+        wasEnabled = Metrics.isEnabled();
+        Metrics.setEnabled( true );
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        Metrics.setEnabled( wasEnabled );
+    }
+
+    @Test
+    public void testRegistration()
+        throws Exception
+    {
+        Counter counter = Metrics.counter( "test.registration" );
+        assertSame( counter, Metrics.counter( "test.registration" ) );
+        assertThrows( IllegalArgumentException.class, () -> Metrics.histogram( "test.registration" ) );
+    }
+
+    @Test
+    public void testDisabled()
+        throws Exception
+    {
+        Counter counter = Metrics.counter( "test.disabled" );
+        Metrics.setEnabled( false );
+        assertEquals( 0, Metrics.startTime() );
+        counter.increment();
+        assertEquals( 0, counter.get() );
+        assertTrue( counter.isEmpty() );
+        Metrics.setEnabled( true );
+        counter.add( 3 );
+        assertEquals( 3, counter.get() );
+    }
+
+    @Test
+    public void testHistogram()
+        throws Exception
+    {
+        Histogram histogram = Metrics.histogram( "test.histogram" );
+        for ( int i = 1; i <= 100; i++ )
+            histogram.record( i );
+
+        assertEquals( 100, histogram.getCount() );
+        assertEquals( 5050, histogram.getTotalNanos() );
+        assertEquals( 50, histogram.getMeanNanos() );
+        assertEquals( 100, histogram.getMaxNanos() );
+        assertEquals( 63, histogram.getPercentileNanos( 0.5 ) );
+        assertEquals( 100, histogram.getPercentileNanos( 0.99 ) );
+    }
+
+    @Test
+    public void testHitRatio()
+        throws Exception
+    {
+        HitRatio ratio = Metrics.hitRatio( "test.ratio" );
+        assertTrue( Double.isNaN( ratio.getRatio() ) );
+        ratio.hit();
+        ratio.record( true );
+        ratio.record( false );
+        ratio.hit();
+        assertEquals( 0.75, ratio.getRatio() );
+        assertEquals( "3 hits, 1 misses (75.0% hit ratio)", ratio.getSummary() );
+    }
+
+    @Test
+    public void testJson()
+        throws Exception
+    {
+        Metrics.counter( "test.json\"counter" ).increment();
+        String json = Metrics.toJson();
+        assertTrue( json.contains( "\"test.json\\\"counter\":{\"count\":1}" ), json );
+    }
+}
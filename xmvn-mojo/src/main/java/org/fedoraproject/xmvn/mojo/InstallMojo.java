@@ -145,33 +145,38 @@ public class InstallMojo
         }
     }
 
-    private String getProjectProperty( Artifact artifact, String key )
+    private static Properties loadProjectProperties()
     {
+        Properties properties = new Properties();
         Path propertiesPath = Paths.get( ".xmvn/properties" );
         if ( !Files.exists( propertiesPath ) )
-            return null;
+            return properties;
 
-        Properties properties = new Properties();
         try ( InputStream stream = Files.newInputStream( propertiesPath ) )
         {
             properties.load( stream );
         }
         catch ( IOException e )
         {
-            return null;
+            return new Properties();
         }
 
+        return properties;
+    }
+
+    private static String getProjectProperty( Properties properties, Artifact artifact, String key )
+    {
         String artifactKey = artifact.getGroupId() + "/" + artifact.getArtifactId() + "/" + artifact.getVersion();
         return properties.getProperty( artifactKey + "/" + key );
     }
 
-    private void deployArtifact( Artifact artifact, String type, Model model )
-        throws MojoExecutionException
+    private DeploymentRequest createDeploymentRequest( Artifact artifact, String type, Model model,
+                                                       Properties projectProperties )
     {
         DeploymentRequest request = new DeploymentRequest();
         request.setArtifact( artifact );
         request.addProperty( "type", type );
-        request.addProperty( "requiresJava", getProjectProperty( artifact, "compilerTarget" ) );
+        request.addProperty( "requiresJava", getProjectProperty( projectProperties, artifact, "compilerTarget" ) );
 
         for ( Dependency dependency : model.getDependencies() )
         {
@@ -190,9 +195,22 @@ public class InstallMojo
             }
         }
 
-        DeploymentResult result = deployer.deploy( request );
-        if ( result.getException() != null )
-            throw new MojoExecutionException( "Failed to deploy artifact " + artifact, result.getException() );
+        return request;
+    }
+
+    private void deployArtifacts( List<DeploymentRequest> requests )
+        throws MojoExecutionException
+    {
+        logger.debug( "Deploying " + requests.size() + " artifacts" );
+        List<DeploymentResult> results = deployer.deploy( requests );
+
+        for ( int i = 0; i < requests.size(); i++ )
+        {
+            DeploymentResult result = results.get( i );
+            if ( result.getException() != null )
+                throw new MojoExecutionException( "Failed to deploy artifact " + requests.get( i ).getArtifact(),
+                                                  result.getException() );
+        }
     }
 
     @Override
@@ -201,6 +219,9 @@ public class InstallMojo
     {
         handleSystemDependencies();
 
+        Properties projectProperties = loadProjectProperties();
+        List<DeploymentRequest> requests = new ArrayList<>();
+
         for ( MavenProject project : reactorProjects )
         {
             Artifact mainArtifact = xmvnArtifact( project.getArtifact() );
@@ -217,7 +238,7 @@ public class InstallMojo
 
             String type = project.getPackaging();
             if ( mainArtifactPath != null )
-                deployArtifact( mainArtifact, type, project.getModel() );
+                requests.add( createDeploymentRequest( mainArtifact, type, project.getModel(), projectProperties ) );
 
             if ( !isTychoProject( project ) )
             {
@@ -228,7 +249,7 @@ public class InstallMojo
                 Path rawPomPath = rawPomFile != null ? rawPomFile.toPath() : null;
                 logger.debug( "Raw POM path: " + rawPomPath );
                 rawPomArtifact = rawPomArtifact.setPath( rawPomPath );
-                deployArtifact( rawPomArtifact, type, project.getModel() );
+                requests.add( createDeploymentRequest( rawPomArtifact, type, project.getModel(), projectProperties ) );
             }
 
             Set<Artifact> attachedArtifacts = new LinkedHashSet<>();
@@ -248,8 +269,11 @@ public class InstallMojo
                     continue;
                 }
 
-                deployArtifact( attachedArtifact, type, project.getModel() );
+                requests.add( createDeploymentRequest( attachedArtifact, type, project.getModel(),
+                                                       projectProperties ) );
             }
         }
+
+        deployArtifacts( requests );
     }
 }
@@ -15,16 +15,19 @@
  */
 package org.fedoraproject.xmvn.mojo;
 
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.expect;
-import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.Test;
 
@@ -58,7 +61,8 @@ public class DirectoryInstallationTest
         DeploymentResult deploymentResult = EasyMock.createNiceMock( DeploymentResult.class );
 
         // Expect deployment of POM file only
-        expect( deployer.deploy( isA( DeploymentRequest.class ) ) ).andReturn( deploymentResult );
+        Capture<List<DeploymentRequest>> requests = EasyMock.newCapture();
+        expect( deployer.deploy( capture( requests ) ) ).andReturn( Collections.singletonList( deploymentResult ) );
 
         replay( deployer, deploymentResult );
 
@@ -69,6 +73,8 @@ public class DirectoryInstallationTest
         mojo.execute();
 
         verify( deployer, deploymentResult );
+        assertEquals( 1, requests.getValue().size() );
+        assertEquals( "pom", requests.getValue().get( 0 ).getArtifact().getExtension() );
         verifyMojoMocks();
     }
 }
@@ -42,6 +42,8 @@ class CompoundRepository
 
     private final List<Repository> slaveRepositories;
 
+    private volatile Set<Path> rootPaths;
+
     public CompoundRepository( String namespace, Path prefix, List<Repository> slaveRepositories )
     {
         super( namespace );
@@ -71,6 +73,15 @@ class CompoundRepository
 
     @Override
     public Set<Path> getRootPaths()
+    {
+        // Slave repositories are immutable, so root paths need to be computed only once
+        if ( rootPaths == null )
+            rootPaths = computeRootPaths();
+
+        return rootPaths;
+    }
+
+    private Set<Path> computeRootPaths()
     {
         Set<Path> rootPaths = new LinkedHashSet<>();
 
@@ -15,17 +15,24 @@
  */
 package org.fedoraproject.xmvn.repository.impl;
 
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 
 import org.w3c.dom.Element;
 
+import org.fedoraproject.xmvn.config.Configuration;
 import org.fedoraproject.xmvn.config.Configurator;
 import org.fedoraproject.xmvn.repository.Repository;
 import org.fedoraproject.xmvn.repository.RepositoryConfigurator;
 
 /**
+ * Configures repositories from their descriptors in XMvn configuration.
+ * <p>
+ * Configured repositories are cached for the lifetime of configurator, so that every repository is configured only
+ * once, no matter how many artifacts are installed into it.
+ * 
  * @author Mikolaj Izdebski
  */
 public class DefaultRepositoryConfigurator
@@ -35,6 +42,16 @@ public class DefaultRepositoryConfigurator
 
     private final Map<String, RepositoryFactory> repositoryFactories = new LinkedHashMap<>();
 
+    /**
+     * Repository descriptors indexed by repository ID, populated lazily.
+     */
+    private Map<String, org.fedoraproject.xmvn.config.Repository> descriptors;
+
+    /**
+     * Already configured repositories, indexed by repository ID and namespace.
+     */
+    private final Map<String, Map<String, Repository>> repositories = new HashMap<>();
+
     public DefaultRepositoryConfigurator( Configurator configurator )
     {
         this.configurator = configurator;
@@ -51,11 +68,16 @@ public class DefaultRepositoryConfigurator
 
     private org.fedoraproject.xmvn.config.Repository findDescriptor( String repoId )
     {
-        for ( org.fedoraproject.xmvn.config.Repository repository : configurator.getConfiguration().getRepositories() )
-            if ( repository.getId() != null && repository.getId().equals( repoId ) )
-                return repository;
-
-        return null;
+        if ( descriptors == null )
+        {
+            descriptors = new HashMap<>();
+            Configuration configuration = configurator.getConfiguration();
+            for ( org.fedoraproject.xmvn.config.Repository repository : configuration.getRepositories() )
+                if ( repository.getId() != null )
+                    descriptors.putIfAbsent( repository.getId(), repository );
+        }
+
+        return descriptors.get( repoId );
     }
 
     @Override
@@ -65,7 +87,27 @@ public class DefaultRepositoryConfigurator
     }
 
     @Override
-    public Repository configureRepository( String repoId, String namespace )
+    public synchronized Repository configureRepository( String repoId, String namespace )
+    {
+        // Compound repositories configure their slave repositories recursively, so computeIfAbsent() can't be used
+        Map<String, Repository> repositoriesByNamespace = repositories.get( repoId );
+        if ( repositoriesByNamespace == null )
+        {
+            repositoriesByNamespace = new HashMap<>();
+            repositories.put( repoId, repositoriesByNamespace );
+        }
+
+        Repository repository = repositoriesByNamespace.get( namespace );
+        if ( repository == null )
+        {
+            repository = createRepository( repoId, namespace );
+            repositoriesByNamespace.put( namespace, repository );
+        }
+
+        return repository;
+    }
+
+    private Repository createRepository( String repoId, String namespace )
     {
         org.fedoraproject.xmvn.config.Repository desc = findDescriptor( repoId );
         if ( desc == null )
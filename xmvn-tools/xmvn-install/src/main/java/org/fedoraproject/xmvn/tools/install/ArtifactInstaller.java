@@ -25,6 +25,26 @@ public interface ArtifactInstaller
 {
     String DEFAULT_REPOSITORY_ID = "install";
 
+    /**
+     * Prepare artifact for installation, for example analyze artifact file and determine its installation paths.
+     * <p>
+     * This method may be called concurrently for different artifacts, before any of them is installed. It must not
+     * modify any state shared between artifacts, such as target packages. Changes to shared state must be done in
+     * {@code install}, which is always called sequentially, in reactor order. The default implementation does nothing,
+     * so that all work is done during installation.
+     *
+     * @param am metadata of artifact to prepare
+     * @param rule effective packaging rule for the artifact
+     * @param basePackageName name of base package
+     * @param repositoryId ID of installation repository
+     * @throws ArtifactInstallationException if artifact cannot be prepared for installation
+     */
+    default void prepare( ArtifactMetadata am, PackagingRule rule, String basePackageName, String repositoryId )
+        throws ArtifactInstallationException
+    {
+        // Nothing to do by default
+    }
+
     default void install( JavaPackage targetPackage, ArtifactMetadata am, PackagingRule rule, String basePackageName,
                           String repositoryId )
         throws ArtifactInstallationException
@@ -0,0 +1,414 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Installs files of one or more packages into installation root.
+ * <p>
+ * Directory tree of all packages is computed up front and every directory is created exactly once, before any other
+ * files are installed. Then regular files and symbolic links of all packages are installed in parallel, followed by
+ * hard links, which require files they link to to be already installed.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class BuildrootMaterializer
+{
+    private static final int MAX_THREADS = 8;
+
+    private final Logger logger = LoggerFactory.getLogger( BuildrootMaterializer.class );
+
+    private final Path installRoot;
+
+    private final FileCopier copier;
+
+    private final int threads;
+
+    /**
+     * Create materializer which installs files using default number of threads.
+     *
+     * @param installRoot installation root
+     * @param copier file copier used to install contents of regular files
+     * @see #getDefaultThreads()
+     */
+    public BuildrootMaterializer( Path installRoot, FileCopier copier )
+    {
+        this( installRoot, copier, getDefaultThreads() );
+    }
+
+    /**
+     * Create materializer which installs files using specified number of threads.
+     *
+     * @param installRoot installation root
+     * @param copier file copier used to install contents of regular files
+     * @param threads maximal number of files installed concurrently
+     */
+    public BuildrootMaterializer( Path installRoot, FileCopier copier, int threads )
+    {
+        this.installRoot = installRoot.toAbsolutePath();
+        this.copier = copier;
+        this.threads = threads;
+    }
+
+    /**
+     * Get default number of threads used to install files &ndash; number of available processors, but not more than 8.
+     *
+     * @return default number of threads
+     */
+    public static int getDefaultThreads()
+    {
+        return Math.min( Math.max( Runtime.getRuntime().availableProcessors(), 1 ), MAX_THREADS );
+    }
+
+    private static class PackageStats
+    {
+        private final AtomicLong files = new AtomicLong();
+
+        private final AtomicLong nanos = new AtomicLong();
+    }
+
+    /**
+     * Install all files of given packages.
+     * <p>
+     * Target directory won't be overwritten if it already exists, which allows installation of multiple packages into
+     * the same directory.
+     *
+     * @param packages packages to install
+     * @throws IOException if any of files can't be installed
+     */
+    public void install( Collection<? extends Package> packages )
+        throws IOException
+    {
+        Map<Package, Set<File>> filesByPackage = collectFiles( packages );
+        installFiles( filesByPackage, filesByPackage );
+    }
+
+    /**
+     * Incrementally install files of given packages, installing only files which changed since previous installation,
+     * as recorded in installation manifest.
+     * <p>
+     * Files which are up to date are left intact, files which changed are replaced and files which were installed
+     * previously, but are not part of any package any longer are removed. Manifest is updated only after all files are
+     * installed successfully. Manifest written for different installation root is ignored and all files are installed.
+     *
+     * @param packages packages to install
+     * @param manifestPath path to manifest of installed files
+     * @throws IOException if any of files can't be installed
+     */
+    public void install( Collection<? extends Package> packages, Path manifestPath )
+        throws IOException
+    {
+        Map<Package, Set<File>> filesByPackage = collectFiles( packages );
+        InstallationManifest previous = InstallationManifest.read( manifestPath, installRoot );
+        InstallationManifest manifest = new InstallationManifest( installRoot );
+
+        // Hard links need to be installed again whenever files they link to are installed again, so they are checked
+        // after all other files
+        Set<Path> changedPaths = new HashSet<>();
+        for ( Set<File> files : filesByPackage.values() )
+        {
+            for ( File file : files )
+            {
+                if ( !( file instanceof HardLink ) && !isUpToDate( file, manifest, previous ) )
+                    changedPaths.add( file.getTargetPath() );
+            }
+        }
+        for ( Set<File> files : filesByPackage.values() )
+        {
+            for ( File file : files )
+            {
+                if ( file instanceof HardLink && ( !isUpToDate( file, manifest, previous )
+                    || changedPaths.contains( ( (HardLink) file ).getLinkedPath() ) ) )
+                    changedPaths.add( file.getTargetPath() );
+            }
+        }
+
+        int removedCount = removeStaleFiles( previous, manifest );
+
+        Map<Package, Set<File>> changedFiles = new LinkedHashMap<>();
+        int upToDateCount = 0;
+        for ( Map.Entry<Package, Set<File>> entry : filesByPackage.entrySet() )
+        {
+            Set<File> files = new LinkedHashSet<>();
+            for ( File file : entry.getValue() )
+            {
+                if ( !changedPaths.contains( file.getTargetPath() ) )
+                {
+                    upToDateCount++;
+                    continue;
+                }
+
+                // Outdated file is removed first, it is installed again like any other file
+                if ( !( file instanceof Directory ) )
+                    Files.deleteIfExists( installRoot.resolve( file.getTargetPath() ) );
+                files.add( file );
+            }
+            changedFiles.put( entry.getKey(), files );
+        }
+
+        installFiles( filesByPackage, changedFiles );
+        manifest.write( manifestPath );
+
+        logger.info( "Incremental installation: {} files up to date, {} files installed, {} files removed",
+                     upToDateCount, changedPaths.size(), removedCount );
+    }
+
+    private Map<Package, Set<File>> collectFiles( Collection<? extends Package> packages )
+        throws IOException
+    {
+        if ( Files.exists( installRoot ) )
+        {
+            if ( !Files.isDirectory( installRoot ) )
+                throw new IOException( "Installation root " + installRoot + " already exists and is not a directory." );
+        }
+        else
+        {
+            Files.createDirectory( installRoot );
+        }
+
+        Map<Package, Set<File>> filesByPackage = new LinkedHashMap<>();
+        for ( Package pkg : packages )
+            filesByPackage.put( pkg, pkg.getFiles() );
+
+        return filesByPackage;
+    }
+
+    private boolean isUpToDate( File file, InstallationManifest manifest, InstallationManifest previous )
+        throws IOException
+    {
+        String fingerprint = manifest.add( file, previous );
+
+        return previous.contains( file.getTargetPath(), fingerprint )
+            && Files.exists( installRoot.resolve( file.getTargetPath() ), LinkOption.NOFOLLOW_LINKS );
+    }
+
+    /**
+     * Remove files which were installed previously, but are not installed any longer. Directories are removed only if
+     * they are empty.
+     */
+    private int removeStaleFiles( InstallationManifest previous, InstallationManifest manifest )
+        throws IOException
+    {
+        List<Path> stalePaths = new ArrayList<>( previous.getPaths() );
+        stalePaths.removeAll( manifest.getPaths() );
+        stalePaths.sort( Comparator.comparingInt( Path::getNameCount ).reversed() );
+
+        int removedCount = 0;
+        for ( Path path : stalePaths )
+        {
+            try
+            {
+                if ( Files.deleteIfExists( installRoot.resolve( path ) ) )
+                    removedCount++;
+            }
+            catch ( DirectoryNotEmptyException e )
+            {
+                logger.debug( "Not removing directory {} as it is not empty", path );
+            }
+        }
+
+        return removedCount;
+    }
+
+    private void installFiles( Map<Package, Set<File>> filesByPackage, Map<Package, Set<File>> filesToInstall )
+        throws IOException
+    {
+        createDirectories( filesByPackage.values() );
+
+        Map<Package, PackageStats> stats = new LinkedHashMap<>();
+        List<Callable<Void>> fileTasks = new ArrayList<>();
+        List<Callable<Void>> hardLinkTasks = new ArrayList<>();
+        List<Path> fileTargets = new ArrayList<>();
+        List<Path> hardLinkTargets = new ArrayList<>();
+
+        for ( Map.Entry<Package, Set<File>> entry : filesToInstall.entrySet() )
+        {
+            PackageStats packageStats = new PackageStats();
+            stats.put( entry.getKey(), packageStats );
+
+            for ( File file : entry.getValue() )
+            {
+                if ( file instanceof Directory )
+                    continue;
+
+                Path target = installRoot.resolve( file.getTargetPath() );
+                Callable<Void> task = () ->
+                {
+                    installFile( file, target, packageStats );
+                    return null;
+                };
+                if ( file instanceof HardLink )
+                {
+                    hardLinkTasks.add( task );
+                    hardLinkTargets.add( target );
+                }
+                else
+                {
+                    fileTasks.add( task );
+                    fileTargets.add( target );
+                }
+            }
+        }
+
+        runTasks( fileTasks, fileTargets );
+        runTasks( hardLinkTasks, hardLinkTargets );
+
+        for ( Map.Entry<Package, PackageStats> entry : stats.entrySet() )
+        {
+            logger.debug( "Installed {} files of package {}, spending {} ms", entry.getValue().files.get(),
+                          entry.getKey().getId(), TimeUnit.NANOSECONDS.toMillis( entry.getValue().nanos.get() ) );
+        }
+    }
+
+    private void createDirectories( Collection<Set<File>> fileSets )
+        throws IOException
+    {
+        Set<Path> directories = new TreeSet<>( Comparator.comparingInt( Path::getNameCount ) //
+                                                         .thenComparing( Comparator.naturalOrder() ) );
+        for ( Set<File> files : fileSets )
+        {
+            for ( File file : files )
+            {
+                Path path = file instanceof Directory ? file.getTargetPath() : file.getTargetPath().getParent();
+                while ( path != null && directories.add( path ) )
+                    path = path.getParent();
+            }
+        }
+
+        for ( Path directory : directories )
+        {
+            Path absolutePath = installRoot.resolve( directory );
+            if ( !Files.isDirectory( absolutePath ) )
+                Files.createDirectory( absolutePath );
+        }
+
+        // Directories owned by packages must be real directories, not symlinks to directories
+        for ( Set<File> files : fileSets )
+        {
+            for ( File file : files )
+            {
+                Path absolutePath = installRoot.resolve( file.getTargetPath() );
+                if ( file instanceof Directory && !Files.isDirectory( absolutePath, LinkOption.NOFOLLOW_LINKS ) )
+                    throw new IOException( "Unable to create directory " + absolutePath + ": file exists" );
+            }
+        }
+    }
+
+    private void installFile( File file, Path target, PackageStats packageStats )
+        throws IOException
+    {
+        long start = System.nanoTime();
+        file.installContents( target, copier );
+        packageStats.files.incrementAndGet();
+        packageStats.nanos.addAndGet( System.nanoTime() - start );
+    }
+
+    private void runTasks( List<Callable<Void>> tasks, List<Path> targets )
+        throws IOException
+    {
+        int nThreads = Math.min( threads, tasks.size() );
+        if ( nThreads <= 1 )
+        {
+            for ( Callable<Void> task : tasks )
+                call( task );
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( nThreads, runnable ->
+        {
+            Thread thread = new Thread( runnable );
+            thread.setName( BuildrootMaterializer.class.getCanonicalName() + ".worker" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        try
+        {
+            List<Future<Void>> futures = executor.invokeAll( tasks );
+
+            // All tasks are complete now, report the first failure in order of files
+            for ( int i = 0; i < futures.size(); i++ )
+            {
+                try
+                {
+                    futures.get( i ).get();
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof IOException )
+                        throw (IOException) cause;
+                    if ( cause instanceof RuntimeException )
+                        throw (RuntimeException) cause;
+                    if ( cause instanceof Error )
+                        throw (Error) cause;
+                    throw new IOException( "Unable to install " + targets.get( i ), cause );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while installing files", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void call( Callable<Void> task )
+        throws IOException
+    {
+        try
+        {
+            task.call();
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new IOException( e );
+        }
+    }
+}
@@ -56,6 +56,22 @@ public abstract class File
     protected abstract void installContents( Path targetAbsolutePath )
         throws IOException;
 
+    /**
+     * Install file contents into specified location, using given copier to install contents of any source files.
+     * <p>
+     * By default copier is not used, but subclasses which install contents of existing files should override this
+     * method.
+     * 
+     * @param targetAbsolutePath absolute path of installed file
+     * @param copier file copier
+     * @throws IOException
+     */
+    protected void installContents( Path targetAbsolutePath, FileCopier copier )
+        throws IOException
+    {
+        installContents( targetAbsolutePath );
+    }
+
     /**
      * Get additional file attributes to be added to file descriptor.
      * <p>
@@ -123,6 +139,19 @@ public abstract class File
      */
     public void install( Path installRoot )
         throws IOException
+    {
+        install( installRoot, new FileCopier( FileCopier.Strategy.COPY ) );
+    }
+
+    /**
+     * Install file into specified root directory, using given copier to install contents of source files.
+     * 
+     * @param installRoot
+     * @param copier file copier
+     * @throws IOException
+     */
+    public void install( Path installRoot, FileCopier copier )
+        throws IOException
     {
         installRoot = installRoot.toAbsolutePath();
 
@@ -139,7 +168,7 @@ public abstract class File
         Path targetAbsolutePath = installRoot.resolve( targetPath );
         Files.createDirectories( targetAbsolutePath.getParent() );
 
-        installContents( targetAbsolutePath );
+        installContents( targetAbsolutePath, copier );
     }
 
     /**
@@ -0,0 +1,289 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies contents of source files to installed files using configured strategy.
+ * <p>
+ * Hard links and reflinks (copy-on-write clones) are used only when both source and target file are on the same
+ * filesystem which supports them. Support is detected automatically &ndash; when creating a link or clone fails, given
+ * pair of filesystems is remembered as not supporting it and contents are copied instead.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class FileCopier
+{
+    /**
+     * Strategy of installing file contents.
+     */
+    public enum Strategy
+    {
+        /**
+         * Always copy file contents.
+         */
+        COPY,
+
+        /**
+         * Clone files on filesystems which support reflinks, copy otherwise.
+         */
+        REFLINK,
+
+        /**
+         * Create hard links to source files when possible, copy otherwise. Installed files share contents and
+         * attributes with source files, so source files must not be modified after installation.
+         */
+        HARDLINK,
+
+        /**
+         * Default strategy, currently the same as {@link #COPY}. Reflinks and hard links are used only when explicitly
+         * requested.
+         */
+        AUTO;
+
+        /**
+         * Parse install strategy name, as used in XMvn configuration.
+         *
+         * @param name strategy name, case-insensitive, or {@code null}
+         * @return install strategy, {@link #AUTO} if name is {@code null} or empty
+         * @throws IllegalArgumentException if name is not a name of any strategy
+         */
+        public static Strategy fromString( String name )
+        {
+            if ( name == null || name.trim().isEmpty() )
+                return AUTO;
+
+            try
+            {
+                return valueOf( name.trim().toUpperCase( Locale.ROOT ) );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                throw new IllegalArgumentException( "Unknown install strategy: " + name
+                    + ", supported strategies are: copy, reflink, hardlink, auto", e );
+            }
+        }
+    }
+
+    /**
+     * Files smaller than this are always copied, as cloning them costs more than copying.
+     */
+    private static final long MIN_REFLINK_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger( FileCopier.class );
+
+    private final Strategy strategy;
+
+    private final Map<List<FileStore>, Boolean> hardlinkSupport = new ConcurrentHashMap<>();
+
+    private final Map<List<FileStore>, Boolean> reflinkSupport = new ConcurrentHashMap<>();
+
+    private final AtomicLong bytesCopied = new AtomicLong();
+
+    private final AtomicLong bytesCloned = new AtomicLong();
+
+    private final AtomicLong bytesLinked = new AtomicLong();
+
+    /**
+     * Create file copier which uses given strategy.
+     *
+     * @param strategy install strategy
+     */
+    public FileCopier( Strategy strategy )
+    {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Get strategy used by this copier.
+     *
+     * @return install strategy
+     */
+    public Strategy getStrategy()
+    {
+        return strategy;
+    }
+
+    /**
+     * Get number of bytes physically copied by this copier.
+     *
+     * @return number of copied bytes
+     */
+    public long getBytesCopied()
+    {
+        return bytesCopied.get();
+    }
+
+    /**
+     * Get number of bytes installed by this copier as reflinks, without copying.
+     *
+     * @return number of cloned bytes
+     */
+    public long getBytesCloned()
+    {
+        return bytesCloned.get();
+    }
+
+    /**
+     * Get number of bytes installed by this copier as hard links, without copying.
+     *
+     * @return number of linked bytes
+     */
+    public long getBytesLinked()
+    {
+        return bytesLinked.get();
+    }
+
+    /**
+     * Install contents of source file as new target file.
+     *
+     * @param source path to source file
+     * @param target path to target file, which must not exist
+     * @throws IOException if file can't be installed
+     */
+    public void copy( Path source, Path target )
+        throws IOException
+    {
+        if ( Files.exists( target, LinkOption.NOFOLLOW_LINKS ) )
+            throw new FileAlreadyExistsException( target.toString() );
+
+        long size = Files.size( source );
+
+        if ( ( strategy == Strategy.REFLINK || strategy == Strategy.HARDLINK )
+            && Files.isRegularFile( source, LinkOption.NOFOLLOW_LINKS ) )
+        {
+            List<FileStore> stores = Arrays.asList( Files.getFileStore( source ),
+                                                    Files.getFileStore( target.toAbsolutePath().getParent() ) );
+
+            if ( strategy == Strategy.HARDLINK && stores.get( 0 ).equals( stores.get( 1 ) )
+                && hardlinkSupport.getOrDefault( stores, true ) && tryHardlink( source, target, stores ) )
+            {
+                bytesLinked.addAndGet( size );
+                return;
+            }
+
+            if ( size >= MIN_REFLINK_SIZE && stores.get( 0 ).equals( stores.get( 1 ) )
+                && reflinkSupport.getOrDefault( stores, true ) && tryReflink( source, target, stores ) )
+            {
+                bytesCloned.addAndGet( size );
+                return;
+            }
+        }
+
+        transfer( source, target );
+        bytesCopied.addAndGet( size );
+    }
+
+    private boolean tryHardlink( Path source, Path target, List<FileStore> stores )
+    {
+        try
+        {
+            Files.createLink( target, source );
+            return true;
+        }
+        catch ( IOException | UnsupportedOperationException e )
+        {
+            logger.debug( "Hard links are not supported on {}, falling back: {}", stores.get( 0 ), e.toString() );
+            hardlinkSupport.put( stores, false );
+            return false;
+        }
+    }
+
+    private boolean tryReflink( Path source, Path target, List<FileStore> stores )
+        throws IOException
+    {
+        // Java has no API for FICLONE ioctl, let cp(1) do it
+        ProcessBuilder pb = new ProcessBuilder( "cp", "--reflink=always", "--", source.toString(), target.toString() );
+        pb.redirectOutput( ProcessBuilder.Redirect.DISCARD );
+        pb.redirectError( ProcessBuilder.Redirect.DISCARD );
+
+        int exitCode;
+        try
+        {
+            exitCode = pb.start().waitFor();
+        }
+        catch ( IOException e )
+        {
+            exitCode = -1;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while cloning " + source, e );
+        }
+
+        if ( exitCode != 0 )
+        {
+            logger.debug( "Reflinks are not supported on {}, falling back to copying", stores.get( 0 ) );
+            reflinkSupport.put( stores, false );
+            Files.deleteIfExists( target );
+            return false;
+        }
+
+        return true;
+    }
+
+    private static void transfer( Path source, Path target )
+        throws IOException
+    {
+        // Like Files.copy(), create target file with the same permissions as source file
+        Set<OpenOption> options = new HashSet<>();
+        options.add( StandardOpenOption.CREATE_NEW );
+        options.add( StandardOpenOption.WRITE );
+        FileAttribute<?>[] attributes = new FileAttribute<?>[0];
+        if ( Files.getFileStore( source ).supportsFileAttributeView( PosixFileAttributeView.class ) )
+            attributes = new FileAttribute<?>[] {
+                PosixFilePermissions.asFileAttribute( Files.getPosixFilePermissions( source ) ) };
+
+        try ( FileChannel in = FileChannel.open( source, StandardOpenOption.READ );
+                        FileChannel out = FileChannel.open( target, options, attributes ) )
+        {
+            long size = in.size();
+            for ( long position = 0; position < size; )
+            {
+                long transferred = in.transferTo( position, size - position, out );
+                // Source file was truncated while being copied
+                if ( transferred <= 0 )
+                    throw new IOException( "Short copy from " + source + " to " + target + ": copied only " + position
+                        + " out of " + size + " bytes" );
+                position += transferred;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A hard link to another file installed in the same installation root.
+ * <p>
+ * Linked file must be installed before the hard link. If hard link can't be created then contents of linked file are
+ * copied instead.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public class HardLink
+    extends File
+{
+    /**
+     * Path to linked file, relative to installation root.
+     */
+    private final Path linkedPath;
+
+    /**
+     * Create a new hard link object. The link will have default access mode (0644).
+     * 
+     * @param targetPath location where the hard link will be placed (relative to install root)
+     * @param linkedPath path to linked file (relative to install root)
+     */
+    public HardLink( Path targetPath, Path linkedPath )
+    {
+        this( targetPath, linkedPath, DEFAULT_MODE );
+    }
+
+    /**
+     * Create a new hard link object. The link will have specified access mode, which should be the same as access mode
+     * of linked file, as both share the same inode.
+     * 
+     * @param targetPath location where the hard link will be placed (relative to install root)
+     * @param linkedPath path to linked file (relative to install root)
+     * @param accessMode Unix access mode of the file (must be an integer in range from 0 to 0777)
+     */
+    public HardLink( Path targetPath, Path linkedPath, int accessMode )
+    {
+        super( targetPath, accessMode );
+
+        if ( linkedPath.isAbsolute() )
+            throw new IllegalArgumentException( "linkedPath must be relative" );
+
+        this.linkedPath = linkedPath;
+    }
+
+    /**
+     * Get path to linked file.
+     * 
+     * @return path to linked file, relative to install root
+     */
+    public Path getLinkedPath()
+    {
+        return linkedPath;
+    }
+
+    @Override
+    protected void installContents( Path targetAbsolutePath )
+        throws IOException
+    {
+        Path installRoot = targetAbsolutePath;
+        for ( int i = 0; i < getTargetPath().getNameCount(); i++ )
+            installRoot = installRoot.getParent();
+        Path linkedAbsolutePath = installRoot.resolve( linkedPath );
+
+        try
+        {
+            Files.createLink( targetAbsolutePath, linkedAbsolutePath );
+        }
+        catch ( UnsupportedOperationException | IOException e )
+        {
+            if ( !Files.isRegularFile( linkedAbsolutePath ) )
+                throw new IOException( "Unable to link " + targetAbsolutePath + " to " + linkedAbsolutePath
+                    + ": linked file was not installed", e );
+
+            Files.copy( linkedAbsolutePath, targetAbsolutePath );
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manifest of files installed into installation root, used to install only files which changed since previous
+ * installation.
+ * <p>
+ * For every installed file manifest holds its fingerprint, which describes everything that installed file depends on:
+ * type of file, its access mode, path referenced by links and SHA-256 digest of contents of regular files. Digests of
+ * regular files copied from source files are stored together with size and modification time of source file, so that
+ * source files which haven't been modified don't need to be read again.
+ * <p>
+ * Manifest is stored as a text file with one line per installed file, consisting of tab-separated fields. It is
+ * preceded by a header line holding absolute path to installation root the manifest was written for. Manifest written
+ * for different installation root is ignored, as files it lists were not installed into current installation root.
+ *
+ * @author Mikolaj Izdebski
+ */
+class InstallationManifest
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger( InstallationManifest.class );
+
+    private static final String NONE = "-";
+
+    private static final String UNKNOWN = "?";
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    private static final String HEADER = "xmvn-install-manifest";
+
+    private static final int FIELD_COUNT = 5;
+
+    private static final int SOURCE_FIELD = 2;
+
+    private static final int SIZE_FIELD = 3;
+
+    private static final int MTIME_FIELD = 4;
+
+    private static class Entry
+    {
+        private final String fingerprint;
+
+        private final String source;
+
+        private final long size;
+
+        private final long mtime;
+
+        Entry( String fingerprint, String source, long size, long mtime )
+        {
+            this.fingerprint = fingerprint;
+            this.source = source;
+            this.size = size;
+            this.mtime = mtime;
+        }
+
+        Entry( String fingerprint )
+        {
+            this( fingerprint, NONE, 0, 0 );
+        }
+    }
+
+    private final Path installRoot;
+
+    private final Map<Path, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Create an empty manifest of files installed into given installation root.
+     * 
+     * @param installRoot installation root
+     */
+    public InstallationManifest( Path installRoot )
+    {
+        this.installRoot = installRoot.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Read manifest from given file. If the file doesn't exist, is malformed or was written for different installation
+     * root then an empty manifest is returned, which causes all files to be installed again.
+     * 
+     * @param path path to manifest file
+     * @param installRoot installation root into which files are being installed
+     * @return manifest read
+     * @throws IOException if manifest file exists, but can't be read
+     */
+    public static InstallationManifest read( Path path, Path installRoot )
+        throws IOException
+    {
+        InstallationManifest manifest = new InstallationManifest( installRoot );
+        if ( !Files.exists( path ) )
+            return manifest;
+
+        List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+        String[] header = lines.isEmpty() ? new String[0] : lines.get( 0 ).split( FIELD_SEPARATOR );
+        if ( header.length != 2 || !header[0].equals( HEADER ) )
+        {
+            LOGGER.warn( "Ignoring malformed installation manifest {}: missing header", path );
+            return manifest;
+        }
+        if ( !header[1].equals( manifest.installRoot.toString() ) )
+        {
+            LOGGER.info( "Ignoring installation manifest {} written for different installation root {}", path,
+                         header[1] );
+            return manifest;
+        }
+
+        for ( String line : lines.subList( 1, lines.size() ) )
+        {
+            String[] fields = line.split( FIELD_SEPARATOR );
+            try
+            {
+                if ( fields.length != FIELD_COUNT )
+                    throw new IllegalArgumentException( "expected " + FIELD_COUNT + " fields" );
+
+                Entry entry = new Entry( fields[1], fields[SOURCE_FIELD], Long.parseLong( fields[SIZE_FIELD] ),
+                                         Long.parseLong( fields[MTIME_FIELD] ) );
+                manifest.entries.put( Paths.get( fields[0] ), entry );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                LOGGER.warn( "Ignoring malformed installation manifest {}: {}", path, e.getMessage() );
+                return new InstallationManifest( installRoot );
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Write this manifest to given file, atomically replacing previous manifest.
+     * 
+     * @param path path to manifest file
+     * @throws IOException if manifest can't be written
+     */
+    public void write( Path path )
+        throws IOException
+    {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories( directory );
+
+        Path tempPath = Files.createTempFile( directory, path.getFileName().toString(), ".tmp" );
+        try
+        {
+            try ( BufferedWriter writer = Files.newBufferedWriter( tempPath, StandardCharsets.UTF_8 ) )
+            {
+                writer.write( String.join( FIELD_SEPARATOR, HEADER, installRoot.toString() ) );
+                writer.newLine();
+
+                for ( Map.Entry<Path, Entry> entry : entries.entrySet() )
+                {
+                    Entry value = entry.getValue();
+                    writer.write( String.join( FIELD_SEPARATOR, entry.getKey().toString(), value.fingerprint,
+                                               value.source, Long.toString( value.size ),
+                                               Long.toString( value.mtime ) ) );
+                    writer.newLine();
+                }
+            }
+
+            Files.move( tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( tempPath );
+        }
+    }
+
+    /**
+     * Get paths of all files in this manifest.
+     * 
+     * @return set of file paths, relative to installation root
+     */
+    public Set<Path> getPaths()
+    {
+        return Collections.unmodifiableSet( entries.keySet() );
+    }
+
+    /**
+     * Compute fingerprint of given file and add it to this manifest.
+     * 
+     * @param file file to add
+     * @param previous manifest of previous installation, used to avoid computing digests of unmodified source files
+     * @return fingerprint of the file
+     * @throws IOException if contents of the file can't be read
+     */
+    public String add( File file, InstallationManifest previous )
+        throws IOException
+    {
+        String mode = Integer.toString( file.getAccessMode() );
+        Entry entry;
+
+        if ( file instanceof Directory )
+        {
+            entry = new Entry( "D " + mode );
+        }
+        else if ( file instanceof SymbolicLink )
+        {
+            entry = new Entry( "L " + mode + " " + ( (SymbolicLink) file ).getReferencedPath() );
+        }
+        else if ( file instanceof HardLink )
+        {
+            entry = new Entry( "H " + mode + " " + ( (HardLink) file ).getLinkedPath() );
+        }
+        else if ( file instanceof RegularFile && ( (RegularFile) file ).getSourcePath() != null )
+        {
+            RegularFile regularFile = (RegularFile) file;
+            Path sourcePath = regularFile.getSourcePath().toAbsolutePath();
+            BasicFileAttributes attributes = Files.readAttributes( sourcePath, BasicFileAttributes.class );
+            long size = attributes.size();
+            long mtime = attributes.lastModifiedTime().toMillis();
+
+            Entry previousEntry = previous.entries.get( file.getTargetPath() );
+            String digest;
+            if ( previousEntry != null && previousEntry.source.equals( sourcePath.toString() )
+                && previousEntry.size == size && previousEntry.mtime == mtime )
+                digest = previousEntry.fingerprint.substring( previousEntry.fingerprint.lastIndexOf( ' ' ) + 1 );
+            else
+                digest = digest( regularFile );
+
+            entry = new Entry( "F " + mode + " " + digest, sourcePath.toString(), size, mtime );
+        }
+        else if ( file instanceof RegularFile )
+        {
+            entry = new Entry( "F " + mode + " " + digest( (RegularFile) file ) );
+        }
+        else
+        {
+            // Files of unknown types are always installed again
+            entry = new Entry( UNKNOWN );
+        }
+
+        entries.put( file.getTargetPath(), entry );
+        return entry.fingerprint;
+    }
+
+    /**
+     * Determine whether this manifest contains given file with given fingerprint.
+     * 
+     * @param path path to file, relative to installation root
+     * @param fingerprint file fingerprint
+     * @return {@code true} iff this manifest contains file with given fingerprint
+     */
+    public boolean contains( Path path, String fingerprint )
+    {
+        Entry entry = entries.get( path );
+        return entry != null && !UNKNOWN.equals( fingerprint ) && entry.fingerprint.equals( fingerprint );
+    }
+
+    private static String digest( RegularFile file )
+        throws IOException
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+            try ( OutputStream stream = new DigestOutputStream( OutputStream.nullOutputStream(), md ) )
+            {
+                file.writeContent( stream );
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for ( byte b : md.digest() )
+                sb.append( String.format( "%02x", b ) );
+            return sb.toString();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new RuntimeException( "SHA-256 digest is not available", e );
+        }
+    }
+}
@@ -34,6 +34,8 @@ public class InstallationRequest
 
     private String repositoryId;
 
+    private Path installationManifest;
+
     public boolean isCheckForUnmatchedRules()
     {
         return checkForUnmatchedRules;
@@ -93,4 +95,19 @@ public class InstallationRequest
     {
         this.repositoryId = repositoryId;
     }
+
+    /**
+     * Get path to manifest of installed files, which is used for incremental installation.
+     * 
+     * @return path to installation manifest, or {@code null} if all files should be installed unconditionally
+     */
+    public Path getInstallationManifest()
+    {
+        return installationManifest;
+    }
+
+    public void setInstallationManifest( Path installationManifest )
+    {
+        this.installationManifest = installationManifest;
+    }
 }
@@ -26,6 +26,7 @@ import java.util.jar.Manifest;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
@@ -58,37 +59,142 @@ public final class JarUtils
         // Avoid generating default public constructor
     }
 
+    static class NativeMethodFound
+        extends RuntimeException
+    {
+        private static final long serialVersionUID = 1;
+
+        final String className;
+
+        final String methodName;
+
+        final String methodSignature;
+
+        NativeMethodFound( String className, String methodName, String methodSignature )
+        {
+            this.className = className;
+            this.methodName = methodName;
+            this.methodSignature = methodSignature;
+        }
+    }
+
+    private static boolean isElf( byte[] header, int length )
+    {
+        return length >= 4 && header[0] == ELFMAG0 && header[1] == ELFMAG1 && header[2] == ELFMAG2
+            && header[3] == ELFMAG3;
+    }
+
+    private static void visitNativeMethods( String entryName, byte[] classBytes )
+    {
+        new ClassReader( classBytes ).accept( new ClassVisitor( Opcodes.ASM4 )
+        {
+            @Override
+            public MethodVisitor visitMethod( int flags, String name, String desc, String sig, String[] exc )
+            {
+                if ( ( flags & Opcodes.ACC_NATIVE ) != 0 )
+                    throw new NativeMethodFound( entryName, name, sig );
+
+                return super.visitMethod( flags, name, desc, sig, exc );
+            }
+        }, ClassReader.SKIP_CODE );
+    }
+
+    private static int readHeader( InputStream is, byte[] header )
+        throws IOException
+    {
+        int length = 0;
+        while ( length < header.length )
+        {
+            int n = is.read( header, length, header.length - length );
+            if ( n < 0 )
+                break;
+            length += n;
+        }
+        return length;
+    }
+
     /**
-     * Heuristically try to determine whether given JAR (or WAR, EAR, ...) file contains native (architecture-dependent)
-     * code.
-     * <p>
-     * Currently this code only checks only for ELF binaries, but that behavior can change in future.
+     * Scan JAR entries for native code in a single pass over the central directory, stopping at the first native code
+     * found.
      * 
-     * @return {@code true} if native code was found inside given JAR
+     * @param jar open JAR file
+     * @param jarPath path to JAR file, used for logging only
+     * @param checkElf whether to look for ELF binaries
+     * @param checkMethods whether to look for class files declaring native methods
+     * @return {@code true} if native code was found
+     * @throws IOException if JAR entry can't be read
      */
-    public static boolean containsNativeCode( Path jarPath )
+    private static boolean scanNativeCode( ZipFile jar, Path jarPath, boolean checkElf, boolean checkMethods )
+        throws IOException
     {
-        try ( ZipFile jar = new ZipFile( jarPath.toFile() ) )
+        byte[] header = new byte[4];
+        Enumeration<ZipArchiveEntry> entries = jar.getEntries();
+        while ( entries.hasMoreElements() && ( checkElf || checkMethods ) )
         {
-            Enumeration<ZipArchiveEntry> entries = jar.getEntries();
-            while ( entries.hasMoreElements() )
+            ZipArchiveEntry entry = entries.nextElement();
+            String entryName = entry.getName();
+            if ( entry.isDirectory() )
+                continue;
+
+            boolean isClass = checkMethods && entryName.endsWith( ".class" );
+            if ( !checkElf && !isClass )
+                continue;
+
+            try ( InputStream jis = jar.getInputStream( entry ) )
             {
-                ZipArchiveEntry entry = entries.nextElement();
-                if ( entry.isDirectory() )
-                    continue;
-                try ( InputStream jis = jar.getInputStream( entry ) )
+                if ( !isClass )
                 {
-                    if ( jis.read() == ELFMAG0 && jis.read() == ELFMAG1 && jis.read() == ELFMAG2
-                        && jis.read() == ELFMAG3 )
+                    if ( isElf( header, readHeader( jis, header ) ) )
                     {
-                        LOGGER.debug( "Native code found inside {}: {}", jarPath, entry.getName() );
+                        LOGGER.debug( "Native code found inside {}: {}", jarPath, entryName );
                         return true;
                     }
+                    continue;
+                }
+
+                byte[] classBytes = IOUtils.toByteArray( jis );
+                if ( checkElf && isElf( classBytes, classBytes.length ) )
+                {
+                    LOGGER.debug( "Native code found inside {}: {}", jarPath, entryName );
+                    return true;
+                }
+
+                try
+                {
+                    visitNativeMethods( entryName, classBytes );
+                }
+                catch ( NativeMethodFound e )
+                {
+                    LOGGER.debug( "Native method {}({}) found in {}: {}", e.methodName, e.methodSignature, jarPath,
+                                  e.className );
+                    return true;
+                }
+                catch ( RuntimeException e )
+                {
+                    // Class file that can't be parsed stops looking for native methods, but not for ELF binaries
+                    LOGGER.debug( "Unable to parse class file {} inside {}", entryName, jarPath, e );
+                    checkMethods = false;
                 }
             }
+        }
 
-            LOGGER.trace( "Native code not found inside {}", jarPath );
-            return false;
+        LOGGER.trace( "Native code not found inside {}", jarPath );
+        return false;
+    }
+
+    /**
+     * Heuristically try to determine whether given JAR (or WAR, EAR, ...) file contains native (architecture-dependent)
+     * code.
+     * <p>
+     * Currently this code only checks only for ELF binaries, but that behavior can change in future.
+     * 
+     * @return {@code true} if native code was found inside given JAR
+     */
+    public static boolean containsNativeCode( Path jarPath )
+    {
+        try ( ZipFile jar = new ZipFile( jarPath.toFile() ) )
+        {
+            return scanNativeCode( jar, jarPath, true, false );
         }
         catch ( IOException e )
         {
@@ -98,25 +204,6 @@ public final class JarUtils
         }
     }
 
-    static class NativeMethodFound
-        extends RuntimeException
-    {
-        private static final long serialVersionUID = 1;
-
-        final String className;
-
-        final String methodName;
-
-        final String methodSignature;
-
-        NativeMethodFound( String className, String methodName, String methodSignature )
-        {
-            this.className = className;
-            this.methodName = methodName;
-            this.methodSignature = methodSignature;
-        }
-    }
-
     /**
      * Heuristically try to determine whether given JAR (or WAR, EAR, ...) file is using native (architecture-dependent)
      * code.
@@ -130,38 +217,7 @@ public final class JarUtils
     {
         try ( ZipFile jar = new ZipFile( jarPath.toFile() ) )
         {
-            Enumeration<ZipArchiveEntry> entries = jar.getEntries();
-            while ( entries.hasMoreElements() )
-            {
-                ZipArchiveEntry entry = entries.nextElement();
-                final String entryName = entry.getName();
-                if ( entry.isDirectory() || !entryName.endsWith( ".class" ) )
-                    continue;
-
-                try ( InputStream jis = jar.getInputStream( entry ) )
-                {
-                    new ClassReader( jis ).accept( new ClassVisitor( Opcodes.ASM4 )
-                    {
-                        @Override
-                        public MethodVisitor visitMethod( int flags, String name, String desc, String sig,
-                                                          String[] exc )
-                        {
-                            if ( ( flags & Opcodes.ACC_NATIVE ) != 0 )
-                                throw new NativeMethodFound( entryName, name, sig );
-
-                            return super.visitMethod( flags, name, desc, sig, exc );
-                        }
-                    }, ClassReader.SKIP_CODE );
-                }
-            }
-
-            return false;
-        }
-        catch ( NativeMethodFound e )
-        {
-            LOGGER.debug( "Native method {}({}) found in {}: {}", e.methodName, e.methodSignature, jarPath,
-                          e.className );
-            return true;
+            return scanNativeCode( jar, jarPath, false, true );
         }
         catch ( IOException e )
         {
@@ -169,10 +225,6 @@ public final class JarUtils
                           e );
             return false;
         }
-        catch ( RuntimeException e )
-        {
-            return false;
-        }
     }
 
     private static void putAttribute( Manifest manifest, String key, String value, String defaultValue )
@@ -198,6 +250,60 @@ public final class JarUtils
         putAttribute( mf, Artifact.MF_KEY_VERSION, artifact.getVersion(), Artifact.DEFAULT_VERSION );
     }
 
+    private static void rewriteManifest( ZipFile jar, Path targetJar, Artifact artifact )
+        throws IOException
+    {
+        ZipArchiveEntry manifestEntry = jar.getEntry( MANIFEST_PATH );
+        if ( manifestEntry == null )
+        {
+            LOGGER.trace( "Manifest injection skipped: no pre-existing manifest found to update" );
+            return;
+        }
+
+        Manifest mf = new Manifest( jar.getInputStream( manifestEntry ) );
+        updateManifest( artifact, mf );
+        Files.delete( targetJar );
+        try ( ZipArchiveOutputStream os = new ZipArchiveOutputStream( targetJar.toFile() ) )
+        {
+            // write manifest
+            ZipArchiveEntry newManifestEntry = new ZipArchiveEntry( MANIFEST_PATH );
+            os.putArchiveEntry( newManifestEntry );
+            mf.write( os );
+            os.closeArchiveEntry();
+            // copy the rest of content
+            jar.copyRawEntries( os, entry -> !entry.equals( manifestEntry ) );
+        }
+        catch ( IOException e )
+        {
+            // Re-throw exceptions that occur when processing JAR file after reading header and manifest.
+            throw new RuntimeException( e );
+        }
+        LOGGER.trace( "Manifest injected successfully" );
+    }
+
+    private static void injectManifest( ZipFile jar, Path targetJar, Artifact artifact, boolean append )
+        throws IOException
+    {
+        if ( append )
+        {
+            try
+            {
+                if ( ManifestAppender.tryUpdateManifest( targetJar, mf -> updateManifest( artifact, mf ) ) )
+                    return;
+            }
+            catch ( IOException e )
+            {
+                // Entry data is never modified when appending and central directory of the original archive is
+                // still held by ZipFile, so full rewrite can still recover from partially written archive.
+                LOGGER.debug( "I/O exception caught when trying to append manifest to JAR: {}", targetJar, e );
+            }
+
+            LOGGER.trace( "Falling back to rewriting whole JAR: {}", targetJar );
+        }
+
+        rewriteManifest( jar, targetJar, artifact );
+    }
+
     /**
      * Inject artifact coordinates into manifest of specified JAR (or WAR, EAR, ...) file. The file is modified
      * in-place.
@@ -206,45 +312,83 @@ public final class JarUtils
      * @param artifact
      */
     public static void injectManifest( Path targetJar, Artifact artifact )
+    {
+        injectManifest( targetJar, artifact, false );
+    }
+
+    /**
+     * Inject artifact coordinates into manifest of specified JAR (or WAR, EAR, ...) file. The file is modified
+     * in-place.
+     * <p>
+     * In append mode updated manifest is appended to the archive together with a new central directory, leaving data
+     * of all other entries untouched, which avoids copying the whole archive. Readers that read JAR files sequentially
+     * instead of through central directory (like {@link java.util.jar.JarInputStream}) will still see the original
+     * manifest in this case. Archives that can't be updated this way, like signed JARs or ZIP64 archives, are always
+     * rewritten.
+     * 
+     * @param targetJar
+     * @param artifact
+     * @param append whether updated manifest should be appended rather than the whole archive rewritten
+     */
+    public static void injectManifest( Path targetJar, Artifact artifact, boolean append )
     {
         LOGGER.trace( "Trying to inject manifest to {}", artifact );
-        try
+        try ( ZipFile jar = new ZipFile( targetJar.toFile() ) )
+        {
+            injectManifest( jar, targetJar, artifact, append );
+        }
+        catch ( IOException e )
+        {
+            LOGGER.debug( "I/O exception caught when trying to read JAR: {}", targetJar );
+        }
+    }
+
+    /**
+     * Determine whether given JAR (or WAR, EAR, ...) file uses or contains native code, and then inject artifact
+     * coordinates into its manifest. This is equivalent to calling {@link #usesNativeCode(Path)},
+     * {@link #containsNativeCode(Path)} and {@link #injectManifest(Path, Artifact, boolean)}, but the archive is opened
+     * and its central directory is read only once, and entries are scanned in a single pass.
+     * 
+     * @param targetJar
+     * @param artifact
+     * @param append whether updated manifest should be appended rather than the whole archive rewritten
+     * @return {@code true} if native code was found inside given JAR
+     */
+    public static boolean analyzeAndInjectManifest( Path targetJar, Artifact artifact, boolean append )
+    {
+        LOGGER.trace( "Trying to analyze and inject manifest to {}", artifact );
+        boolean nativeCode = false;
+        try ( ZipFile jar = new ZipFile( targetJar.toFile() ) )
         {
-            try ( ZipFile jar = new ZipFile( targetJar.toFile() ) )
+            nativeCode = scanNativeCode( jar, targetJar, true, true );
+
+            // Failure to inject manifest must not affect result of native code detection
+            try
             {
-                ZipArchiveEntry manifestEntry = jar.getEntry( MANIFEST_PATH );
-                if ( manifestEntry != null )
-                {
-                    Manifest mf = new Manifest( jar.getInputStream( manifestEntry ) );
-                    updateManifest( artifact, mf );
-                    Files.delete( targetJar );
-                    try ( ZipArchiveOutputStream os = new ZipArchiveOutputStream( targetJar.toFile() ) )
-                    {
-                        // write manifest
-                        ZipArchiveEntry newManifestEntry = new ZipArchiveEntry( MANIFEST_PATH );
-                        os.putArchiveEntry( newManifestEntry );
-                        mf.write( os );
-                        os.closeArchiveEntry();
-                        // copy the rest of content
-                        jar.copyRawEntries( os, entry -> !entry.equals( manifestEntry ) );
-                    }
-                    catch ( IOException e )
-                    {
-                        // Re-throw exceptions that occur when processing JAR file after reading header and manifest.
-                        throw new RuntimeException( e );
-                    }
-                    LOGGER.trace( "Manifest injected successfully" );
-                }
-                else
-                {
-                    LOGGER.trace( "Manifest injection skipped: no pre-existing manifest found to update" );
-                    return;
-                }
+                injectManifest( jar, targetJar, artifact, append );
+            }
+            catch ( IOException e )
+            {
+                LOGGER.warn( "Unable to inject manifest into JAR {}", targetJar, e );
             }
         }
         catch ( IOException e )
         {
-            LOGGER.debug( "I/O exception caught when trying to read JAR: {}", targetJar );
+            LOGGER.debug( "I/O exception caught when trying to read JAR: {}", targetJar, e );
         }
+
+        return nativeCode;
+    }
+
+    /**
+     * Same as {@link #analyzeAndInjectManifest(Path, Artifact, boolean)} with whole archive rewritten.
+     * 
+     * @param targetJar
+     * @param artifact
+     * @return {@code true} if native code was found inside given JAR
+     */
+    public static boolean analyzeAndInjectManifest( Path targetJar, Artifact artifact )
+    {
+        return analyzeAndInjectManifest( targetJar, artifact, false );
     }
 }
@@ -15,14 +15,23 @@
  */
 package org.fedoraproject.xmvn.tools.install;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
 import org.fedoraproject.xmvn.metadata.PackageMetadata;
@@ -46,6 +55,8 @@ public class JavaPackage
 
     private final Path metadataDir;
 
+    private boolean compressMetadata;
+
     /**
      * Create an empty Java package with given ID.
      * 
@@ -62,63 +73,79 @@ public class JavaPackage
     }
 
     /**
-     * Create metadata contents split by namespace, so that artifacts with different namespaces don't have conflicting
-     * metadata files.
+     * Enable or disable compression of installed metadata files. Compressed metadata files are still named
+     * {@code *.xml}, readers recognize compressed metadata by its contents.
      * 
-     * @param namespace namespace name
-     * @return new metadata with subset of artifacts
+     * @param compressMetadata whether metadata should be compressed with gzip
      */
-    private PackageMetadata getSplitMetadata( String namespace )
+    public void setCompressMetadata( boolean compressMetadata )
     {
-        PackageMetadata splitMetadata = new PackageMetadata();
-        splitMetadata.setUuid( UUID.randomUUID().toString() );
-        splitMetadata.setProperties( metadata.getProperties() );
-        List<ArtifactMetadata> allArtifacts = metadata.getArtifacts();
-        List<ArtifactMetadata> splitArtifacts =
-            allArtifacts.stream().filter( a -> namespace.equals( a.getNamespace() ) ).collect( Collectors.toList() );
-        splitMetadata.setArtifacts( splitArtifacts );
-        splitMetadata.setSkippedArtifacts( metadata.getSkippedArtifacts() );
-        return splitMetadata;
+        this.compressMetadata = compressMetadata;
     }
 
-    private byte[] getMetadataContents( String namespace )
+    /**
+     * Partition artifacts by namespace, so that artifacts with different namespaces don't have conflicting metadata
+     * files.
+     * 
+     * @return map from namespace to list of artifacts in that namespace, never empty
+     */
+    private Map<String, List<ArtifactMetadata>> getArtifactsByNamespace()
     {
-        try
+        Map<String, List<ArtifactMetadata>> artifactsByNamespace = new LinkedHashMap<>();
+        for ( ArtifactMetadata am : metadata.getArtifacts() )
         {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            new MetadataStaxWriter().write( bos, getSplitMetadata( namespace ) );
-            return bos.toByteArray();
+            artifactsByNamespace.computeIfAbsent( am.getNamespace(), ns -> new ArrayList<>() ).add( am );
         }
-        catch ( Exception e )
+        if ( artifactsByNamespace.isEmpty() )
         {
-            throw new RuntimeException( "Failed to generate package metadata", e );
+            artifactsByNamespace.put( "", Collections.emptyList() );
         }
+        return artifactsByNamespace;
     }
 
-    private Set<String> getNamespaces()
+    /**
+     * Write metadata containing subset of artifacts of this package directly to given stream.
+     * 
+     * @param stream output stream
+     * @param artifacts artifacts in one namespace
+     * @throws IOException
+     */
+    private void writeMetadata( OutputStream stream, List<ArtifactMetadata> artifacts )
+        throws IOException
     {
-        Set<String> namespaces = new LinkedHashSet<>();
-        for ( ArtifactMetadata am : getMetadata().getArtifacts() )
+        PackageMetadata splitMetadata = new PackageMetadata();
+        splitMetadata.setUuid( UUID.randomUUID().toString() );
+        splitMetadata.setProperties( metadata.getProperties() );
+        splitMetadata.setArtifacts( artifacts );
+        splitMetadata.setSkippedArtifacts( metadata.getSkippedArtifacts() );
+
+        GZIPOutputStream gzipStream = compressMetadata ? new GZIPOutputStream( stream ) : null;
+        Writer writer = new OutputStreamWriter( gzipStream != null ? gzipStream : stream, StandardCharsets.UTF_8 );
+        try
         {
-            namespaces.add( am.getNamespace() );
+            new MetadataStaxWriter().write( writer, splitMetadata );
         }
-        if ( namespaces.isEmpty() )
+        catch ( XMLStreamException e )
         {
-            namespaces.add( "" );
+            throw new IOException( "Failed to generate package metadata", e );
         }
-        return namespaces;
+        writer.flush();
+        if ( gzipStream != null )
+            gzipStream.finish();
     }
 
     @Override
     public Set<File> getFiles()
     {
         Set<File> allFiles = new LinkedHashSet<>( super.getFiles() );
-        for ( String namespace : getNamespaces() )
+        for ( Map.Entry<String, List<ArtifactMetadata>> entry : getArtifactsByNamespace().entrySet() )
         {
+            String namespace = entry.getKey();
+            List<ArtifactMetadata> artifacts = entry.getValue();
             String metadataName = namespace + ( namespace.isEmpty() ? "" : "-" ) + basePackageName
                 + ( getId().isEmpty() ? "" : "-" ) + getId();
             Path metadataPath = metadataDir.resolve( metadataName + ".xml" );
-            File metadataFile = new RegularFile( metadataPath, () -> getMetadataContents( namespace ) );
+            File metadataFile = new RegularFile( metadataPath, stream -> writeMetadata( stream, artifacts ) );
             allFiles.add( metadataFile );
         }
         return Collections.unmodifiableSet( allFiles );
@@ -0,0 +1,511 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Updates manifest of JAR file in-place, without copying other entries.
+ * <p>
+ * Updated manifest is appended as a new local entry in place of the old central directory, followed by a new central
+ * directory that references it instead of the old manifest entry. Data of all other entries is left untouched. Old
+ * manifest data is left in the file, but it's not referenced by central directory any longer. Note that readers that
+ * process JAR files sequentially (like {@link java.util.jar.JarInputStream}) rather than through central directory
+ * will still see the old manifest.
+ * <p>
+ * Archives that can't be safely updated this way (signed JARs, ZIP64 archives, multi-disk archives, archives with
+ * duplicate manifest entries or with data before the first entry or after central directory) are rejected, so that
+ * the caller can fall back to rewriting the whole archive.
+ *
+ * @author Mikolaj Izdebski
+ */
+final class ManifestAppender
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger( ManifestAppender.class );
+
+    private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+
+    // Offsets of fields in local file header
+    private static final int LOC_NAME_LENGTH = 26;
+
+    private static final int LOC_EXTRA_LENGTH = 28;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    // Offsets of fields in central directory file header
+    private static final int CEN_VERSION_MADE_BY = 4;
+
+    private static final int CEN_FLAGS = 8;
+
+    private static final int CEN_METHOD = 10;
+
+    private static final int CEN_TIME = 12;
+
+    private static final int CEN_DATE = 14;
+
+    private static final int CEN_COMPRESSED_SIZE = 20;
+
+    private static final int CEN_SIZE = 24;
+
+    private static final int CEN_NAME_LENGTH = 28;
+
+    private static final int CEN_EXTRA_LENGTH = 30;
+
+    private static final int CEN_COMMENT_LENGTH = 32;
+
+    private static final int CEN_DISK_START = 34;
+
+    private static final int CEN_INTERNAL_ATTRIBUTES = 36;
+
+    private static final int CEN_EXTERNAL_ATTRIBUTES = 38;
+
+    private static final int CEN_LOCAL_HEADER_OFFSET = 42;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    // Offsets of fields in end of central directory record
+    private static final int END_DISK = 4;
+
+    private static final int END_CD_DISK = 6;
+
+    private static final int END_DISK_ENTRIES = 8;
+
+    private static final int END_TOTAL_ENTRIES = 10;
+
+    private static final int END_CD_SIZE = 12;
+
+    private static final int END_CD_OFFSET = 16;
+
+    private static final int END_COMMENT_LENGTH = 20;
+
+    private static final int EOCD_SIZE = 22;
+
+    private static final int ZIP64_EOCD_LOCATOR_SIZE = 20;
+
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final long MAX_32BIT = 0xFFFFFFFFL;
+
+    private static final int MAX_16BIT = 0xFFFF;
+
+    private static final int METHOD_STORED = 0;
+
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int FLAG_ENCRYPTED = 0x0001;
+
+    private static final int VERSION_DEFLATED = 20;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private ManifestAppender()
+    {
+        // Avoid generating default public constructor
+    }
+
+    /**
+     * Central directory record, stored as raw bytes together with the most important parsed fields.
+     */
+    private static class CentralRecord
+    {
+        final byte[] raw;
+
+        final String name;
+
+        final int flags;
+
+        final int method;
+
+        final long compressedSize;
+
+        final long localHeaderOffset;
+
+        CentralRecord( byte[] raw )
+        {
+            ByteBuffer bb = ByteBuffer.wrap( raw ).order( ByteOrder.LITTLE_ENDIAN );
+            this.raw = raw;
+            flags = bb.getShort( CEN_FLAGS ) & MAX_16BIT;
+            method = bb.getShort( CEN_METHOD ) & MAX_16BIT;
+            compressedSize = bb.getInt( CEN_COMPRESSED_SIZE ) & MAX_32BIT;
+            localHeaderOffset = bb.getInt( CEN_LOCAL_HEADER_OFFSET ) & MAX_32BIT;
+            int nameLength = bb.getShort( CEN_NAME_LENGTH ) & MAX_16BIT;
+            name = new String( raw, CENTRAL_HEADER_SIZE, nameLength, StandardCharsets.UTF_8 );
+        }
+
+        int getShort( int offset )
+        {
+            return ByteBuffer.wrap( raw ).order( ByteOrder.LITTLE_ENDIAN ).getShort( offset ) & MAX_16BIT;
+        }
+
+        int getInt( int offset )
+        {
+            return ByteBuffer.wrap( raw ).order( ByteOrder.LITTLE_ENDIAN ).getInt( offset );
+        }
+
+        boolean isZip64()
+        {
+            return compressedSize == MAX_32BIT || localHeaderOffset == MAX_32BIT
+                || ( getInt( CEN_SIZE ) & MAX_32BIT ) == MAX_32BIT || getShort( CEN_DISK_START ) == MAX_16BIT;
+        }
+    }
+
+    private static boolean isSignatureFile( String name )
+    {
+        String prefix = "META-INF/";
+        if ( !name.startsWith( prefix ) || name.indexOf( '/', prefix.length() ) >= 0 )
+            return false;
+
+        String upperName = name.toUpperCase();
+        return upperName.endsWith( ".SF" ) || upperName.endsWith( ".RSA" ) || upperName.endsWith( ".DSA" )
+            || upperName.endsWith( ".EC" ) || upperName.startsWith( "META-INF/SIG-" );
+    }
+
+    private static ByteBuffer read( FileChannel channel, long position, int size )
+        throws IOException
+    {
+        ByteBuffer bb = ByteBuffer.allocate( size ).order( ByteOrder.LITTLE_ENDIAN );
+        while ( bb.hasRemaining() )
+        {
+            if ( channel.read( bb, position + bb.position() ) < 0 )
+                throw new IOException( "Unexpected end of file" );
+        }
+        bb.flip();
+        return bb;
+    }
+
+    private static long findEndOfCentralDirectory( FileChannel channel )
+        throws IOException
+    {
+        long fileSize = channel.size();
+        if ( fileSize < EOCD_SIZE )
+            return -1;
+
+        int tailSize = (int) Math.min( fileSize, EOCD_SIZE + MAX_COMMENT_SIZE );
+        long tailStart = fileSize - tailSize;
+        ByteBuffer tail = read( channel, tailStart, tailSize );
+
+        for ( int pos = tailSize - EOCD_SIZE; pos >= 0; pos-- )
+        {
+            if ( tail.getInt( pos ) == EOCD_SIGNATURE
+                && ( tail.getShort( pos + END_COMMENT_LENGTH ) & MAX_16BIT ) == tailSize - pos - EOCD_SIZE )
+            {
+                return tailStart + pos;
+            }
+        }
+
+        return -1;
+    }
+
+    private static byte[] inflate( byte[] data, int method )
+        throws IOException
+    {
+        if ( method == METHOD_STORED )
+            return data;
+
+        Inflater inflater = new Inflater( true );
+        try
+        {
+            inflater.setInput( data );
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while ( !inflater.finished() )
+            {
+                int n = inflater.inflate( buffer );
+                if ( n == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                    throw new IOException( "Truncated deflate stream" );
+                bos.write( buffer, 0, n );
+            }
+            return bos.toByteArray();
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Invalid deflate stream", e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate( byte[] data )
+    {
+        Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+        try
+        {
+            deflater.setInput( data );
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while ( !deflater.finished() )
+            {
+                int n = deflater.deflate( buffer );
+                bos.write( buffer, 0, n );
+            }
+            return bos.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static byte[] readEntryData( FileChannel channel, CentralRecord record, long dataLimit )
+        throws IOException
+    {
+        ByteBuffer header = read( channel, record.localHeaderOffset, LOCAL_HEADER_SIZE );
+        if ( header.getInt( 0 ) != LOCAL_HEADER_SIGNATURE )
+            throw new IOException( "Invalid local header signature" );
+
+        long dataOffset = record.localHeaderOffset + LOCAL_HEADER_SIZE
+            + ( header.getShort( LOC_NAME_LENGTH ) & MAX_16BIT ) + ( header.getShort( LOC_EXTRA_LENGTH ) & MAX_16BIT );
+        if ( dataOffset + record.compressedSize > dataLimit || record.compressedSize > Integer.MAX_VALUE )
+            throw new IOException( "Entry data exceeds archive bounds" );
+
+        return read( channel, dataOffset, (int) record.compressedSize ).array();
+    }
+
+    /**
+     * Read central directory records.
+     *
+     * @return list of central directory records, or {@code null} if central directory is corrupted, uses ZIP64
+     *         extensions or contains signature files
+     */
+    private static List<CentralRecord> readCentralDirectory( Path jarPath, ByteBuffer cd, int totalEntries )
+    {
+        List<CentralRecord> records = new ArrayList<>( totalEntries );
+
+        for ( int i = 0; i < totalEntries; i++ )
+        {
+            int pos = cd.position();
+            if ( cd.remaining() < CENTRAL_HEADER_SIZE || cd.getInt( pos ) != CENTRAL_HEADER_SIGNATURE )
+            {
+                LOGGER.debug( "Unable to append manifest to {}: corrupted central directory", jarPath );
+                return null;
+            }
+
+            int recordSize = CENTRAL_HEADER_SIZE + ( cd.getShort( pos + CEN_NAME_LENGTH ) & MAX_16BIT )
+                + ( cd.getShort( pos + CEN_EXTRA_LENGTH ) & MAX_16BIT )
+                + ( cd.getShort( pos + CEN_COMMENT_LENGTH ) & MAX_16BIT );
+            if ( cd.remaining() < recordSize )
+            {
+                LOGGER.debug( "Unable to append manifest to {}: corrupted central directory", jarPath );
+                return null;
+            }
+
+            byte[] raw = new byte[recordSize];
+            cd.get( raw );
+            CentralRecord record = new CentralRecord( raw );
+            records.add( record );
+
+            if ( record.isZip64() || isSignatureFile( record.name ) )
+            {
+                LOGGER.debug( "Unable to append manifest to {}: archive is signed or uses ZIP64 extensions", jarPath );
+                return null;
+            }
+        }
+
+        if ( cd.hasRemaining() || records.stream().mapToLong( r -> r.localHeaderOffset ).min().orElse( 0 ) != 0 )
+        {
+            LOGGER.debug( "Unable to append manifest to {}: unsupported archive layout", jarPath );
+            return null;
+        }
+
+        return records;
+    }
+
+    private static ByteBuffer createLocalEntry( CentralRecord oldRecord, byte[] name, byte[] data,
+                                               byte[] compressedData, long crc )
+    {
+        ByteBuffer local = ByteBuffer.allocate( LOCAL_HEADER_SIZE + name.length + compressedData.length );
+        local.order( ByteOrder.LITTLE_ENDIAN );
+        local.putInt( LOCAL_HEADER_SIGNATURE );
+        local.putShort( (short) VERSION_DEFLATED );
+        local.putShort( (short) 0 );
+        local.putShort( (short) METHOD_DEFLATED );
+        local.putShort( (short) oldRecord.getShort( CEN_TIME ) );
+        local.putShort( (short) oldRecord.getShort( CEN_DATE ) );
+        local.putInt( (int) crc );
+        local.putInt( compressedData.length );
+        local.putInt( data.length );
+        local.putShort( (short) name.length );
+        local.putShort( (short) 0 );
+        local.put( name );
+        local.put( compressedData );
+        local.flip();
+        return local;
+    }
+
+    private static byte[] createCentralRecord( CentralRecord oldRecord, byte[] name, byte[] data,
+                                               byte[] compressedData, long crc, long localHeaderOffset )
+    {
+        ByteBuffer central = ByteBuffer.allocate( CENTRAL_HEADER_SIZE + name.length );
+        central.order( ByteOrder.LITTLE_ENDIAN );
+        central.putInt( CENTRAL_HEADER_SIGNATURE );
+        central.putShort( (short) oldRecord.getShort( CEN_VERSION_MADE_BY ) );
+        central.putShort( (short) VERSION_DEFLATED );
+        central.putShort( (short) 0 );
+        central.putShort( (short) METHOD_DEFLATED );
+        central.putShort( (short) oldRecord.getShort( CEN_TIME ) );
+        central.putShort( (short) oldRecord.getShort( CEN_DATE ) );
+        central.putInt( (int) crc );
+        central.putInt( compressedData.length );
+        central.putInt( data.length );
+        central.putShort( (short) name.length );
+        central.putShort( (short) 0 );
+        central.putShort( (short) 0 );
+        central.putShort( (short) 0 );
+        central.putShort( (short) oldRecord.getShort( CEN_INTERNAL_ATTRIBUTES ) );
+        central.putInt( oldRecord.getInt( CEN_EXTERNAL_ATTRIBUTES ) );
+        central.putInt( (int) localHeaderOffset );
+        central.put( name );
+        return central.array();
+    }
+
+    /**
+     * Try to update manifest of given JAR file in-place.
+     *
+     * @param jarPath path to JAR file
+     * @param updater function that updates manifest
+     * @return {@code true} if manifest was updated, or if JAR has no manifest and there is nothing to update;
+     *         {@code false} if archive layout does not allow in-place update and the file was left unmodified
+     * @throws IOException if I/O error occurs
+     */
+    public static boolean tryUpdateManifest( Path jarPath, Consumer<Manifest> updater )
+        throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( jarPath, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            long eocdOffset = findEndOfCentralDirectory( channel );
+            if ( eocdOffset < 0 )
+            {
+                LOGGER.debug( "Unable to append manifest to {}: end of central directory not found", jarPath );
+                return false;
+            }
+
+            ByteBuffer eocd = read( channel, eocdOffset, (int) ( channel.size() - eocdOffset ) );
+            int totalEntries = eocd.getShort( END_TOTAL_ENTRIES ) & MAX_16BIT;
+            long cdSize = eocd.getInt( END_CD_SIZE ) & MAX_32BIT;
+            long cdOffset = eocd.getInt( END_CD_OFFSET ) & MAX_32BIT;
+
+            long locatorOffset = eocdOffset - ZIP64_EOCD_LOCATOR_SIZE;
+            boolean zip64Locator = locatorOffset >= 0
+                && read( channel, locatorOffset, Integer.BYTES ).getInt( 0 ) == ZIP64_EOCD_LOCATOR_SIGNATURE;
+
+            if ( eocd.getShort( END_DISK ) != 0 || eocd.getShort( END_CD_DISK ) != 0
+                || ( eocd.getShort( END_DISK_ENTRIES ) & MAX_16BIT ) != totalEntries || totalEntries == MAX_16BIT
+                || cdSize == MAX_32BIT || cdOffset == MAX_32BIT || zip64Locator || cdOffset + cdSize != eocdOffset )
+            {
+                LOGGER.debug( "Unable to append manifest to {}: unsupported archive layout", jarPath );
+                return false;
+            }
+
+            List<CentralRecord> records =
+                readCentralDirectory( jarPath, read( channel, cdOffset, (int) cdSize ), totalEntries );
+            if ( records == null )
+                return false;
+
+            List<CentralRecord> manifestRecords = new ArrayList<>();
+            for ( CentralRecord record : records )
+            {
+                if ( record.name.equals( MANIFEST_PATH ) )
+                    manifestRecords.add( record );
+            }
+
+            if ( manifestRecords.isEmpty() )
+            {
+                LOGGER.trace( "Manifest injection skipped: no pre-existing manifest found to update" );
+                return true;
+            }
+
+            CentralRecord manifestRecord = manifestRecords.get( 0 );
+            if ( manifestRecords.size() > 1 || ( manifestRecord.flags & FLAG_ENCRYPTED ) != 0
+                || manifestRecord.method != METHOD_STORED && manifestRecord.method != METHOD_DEFLATED )
+            {
+                LOGGER.debug( "Unable to append manifest to {}: duplicate or unsupported manifest entry", jarPath );
+                return false;
+            }
+
+            Manifest mf = new Manifest( new ByteArrayInputStream(
+                inflate( readEntryData( channel, manifestRecord, cdOffset ), manifestRecord.method ) ) );
+            updater.accept( mf );
+
+            ByteArrayOutputStream mfOut = new ByteArrayOutputStream();
+            mf.write( mfOut );
+            byte[] data = mfOut.toByteArray();
+            byte[] compressedData = deflate( data );
+            CRC32 crc = new CRC32();
+            crc.update( data );
+            byte[] name = MANIFEST_PATH.getBytes( StandardCharsets.UTF_8 );
+
+            ByteBuffer local = createLocalEntry( manifestRecord, name, data, compressedData, crc.getValue() );
+            byte[] central =
+                createCentralRecord( manifestRecord, name, data, compressedData, crc.getValue(), cdOffset );
+
+            long newCdOffset = cdOffset + local.remaining();
+            long newCdSize = cdSize - manifestRecord.raw.length + central.length;
+            if ( newCdOffset + newCdSize >= MAX_32BIT )
+            {
+                LOGGER.debug( "Unable to append manifest to {}: archive would require ZIP64 extensions", jarPath );
+                return false;
+            }
+
+            ByteBuffer tail = ByteBuffer.allocate( (int) newCdSize + eocd.capacity() ).order( ByteOrder.LITTLE_ENDIAN );
+            for ( CentralRecord record : records )
+                tail.put( record == manifestRecord ? central : record.raw );
+            eocd.putInt( END_CD_SIZE, (int) newCdSize );
+            eocd.putInt( END_CD_OFFSET, (int) newCdOffset );
+            tail.put( eocd );
+            tail.flip();
+
+            long position = cdOffset;
+            while ( local.hasRemaining() )
+                position += channel.write( local, position );
+            while ( tail.hasRemaining() )
+                position += channel.write( tail, position );
+            channel.truncate( position );
+
+            LOGGER.trace( "Manifest appended successfully" );
+            return true;
+        }
+    }
+}
@@ -19,8 +19,10 @@ import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -99,6 +101,26 @@ public class Package
             files.add( file );
     }
 
+    /**
+     * Replace a file contained in this package with another file, keeping its position in the package.
+     * 
+     * @param file file to be replaced
+     * @param replacement file to replace it with
+     */
+    public void replaceFile( File file, File replacement )
+    {
+        if ( !files.contains( file ) )
+            throw new IllegalArgumentException( "Package " + id + " does not contain file " + file.getTargetPath() );
+        if ( !file.equals( replacement ) && files.contains( replacement ) )
+            throw new IllegalArgumentException( "Package " + id + " already contains file "
+                + replacement.getTargetPath() );
+
+        List<File> oldFiles = new ArrayList<>( files );
+        files.clear();
+        for ( File oldFile : oldFiles )
+            files.add( oldFile.equals( file ) ? replacement : oldFile );
+    }
+
     /**
      * Install this package into specified root.
      * <p>
@@ -113,8 +135,20 @@ public class Package
     public void install( Path installRoot )
         throws IOException
     {
-        for ( File file : getFiles() )
-            file.install( installRoot );
+        install( installRoot, new FileCopier( FileCopier.Strategy.COPY ) );
+    }
+
+    /**
+     * Install this package into specified root, using given copier to install contents of files.
+     * 
+     * @param installRoot target directory where package files will be installed
+     * @param copier file copier
+     * @throws IOException
+     */
+    public void install( Path installRoot, FileCopier copier )
+        throws IOException
+    {
+        new BuildrootMaterializer( installRoot, copier ).install( Collections.singleton( this ) );
     }
 
     /**
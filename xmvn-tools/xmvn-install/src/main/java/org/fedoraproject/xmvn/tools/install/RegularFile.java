@@ -15,7 +15,9 @@
  */
 package org.fedoraproject.xmvn.tools.install;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.function.Supplier;
@@ -37,10 +39,26 @@ public class RegularFile
     private final Path sourcePath;
 
     /**
-     * Provider of byte array used to populate target file. It is used only if source path is not provided (is
+     * Writer of contents used to populate target file. It is used only if source path is not provided (is
      * {@code null}).
      */
-    private final Supplier<byte[]> content;
+    private final ContentWriter content;
+
+    /**
+     * Writes contents of regular file directly to installed file, without keeping all of it in memory.
+     */
+    @FunctionalInterface
+    public interface ContentWriter
+    {
+        /**
+         * Write file contents to given stream.
+         * 
+         * @param stream output stream of installed file, which should not be closed
+         * @throws IOException
+         */
+        void writeTo( OutputStream stream )
+            throws IOException;
+    }
 
     /**
      * Create a regular file object, which contents will be populated from a source file. Target file will have default
@@ -78,6 +96,18 @@ public class RegularFile
         this( targetPath, content, DEFAULT_MODE );
     }
 
+    /**
+     * Create a regular file object, which contents will be written by specified writer. Target file will have default
+     * access mode (0644).
+     * 
+     * @param targetPath file path, relative to installation root
+     * @param content writer of target file contents
+     */
+    public RegularFile( Path targetPath, ContentWriter content )
+    {
+        this( targetPath, content, DEFAULT_MODE );
+    }
+
     /**
      * Create a regular file object, which contents will be populated from a source file. Target file will have
      * specified access mode.
@@ -107,7 +137,7 @@ public class RegularFile
         super( targetPath, accessMode );
 
         sourcePath = null;
-        this.content = () -> content;
+        this.content = stream -> stream.write( content );
     }
 
     /**
@@ -122,21 +152,72 @@ public class RegularFile
     {
         super( targetPath, accessMode );
 
+        sourcePath = null;
+        this.content = stream -> stream.write( content.get() );
+    }
+
+    /**
+     * Create a regular file object, which contents will be written by specified writer. Target file will have
+     * specified access mode.
+     * 
+     * @param targetPath file path, relative to installation root
+     * @param content writer of target file contents
+     * @param accessMode Unix access mode of the file (must be an integer in range from 0 to 0777)
+     */
+    public RegularFile( Path targetPath, ContentWriter content, int accessMode )
+    {
+        super( targetPath, accessMode );
+
         sourcePath = null;
         this.content = content;
     }
 
+    /**
+     * Get path to source file which contents will be copied to create target file.
+     * 
+     * @return path to source file, or {@code null} if file contents are provided as byte array
+     */
+    public Path getSourcePath()
+    {
+        return sourcePath;
+    }
+
+    /**
+     * Write contents of this file to given stream, without installing it.
+     * 
+     * @param stream stream to write file contents to
+     * @throws IOException if source file can't be read or stream can't be written
+     */
+    void writeContent( OutputStream stream )
+        throws IOException
+    {
+        if ( sourcePath != null )
+            Files.copy( sourcePath, stream );
+        else
+            content.writeTo( stream );
+    }
+
     @Override
     protected void installContents( Path targetPath )
         throws IOException
+    {
+        installContents( targetPath, new FileCopier( FileCopier.Strategy.COPY ) );
+    }
+
+    @Override
+    protected void installContents( Path targetPath, FileCopier copier )
+        throws IOException
     {
         if ( sourcePath != null )
         {
-            Files.copy( sourcePath, targetPath );
+            copier.copy( sourcePath, targetPath );
         }
         else
         {
-            Files.write( targetPath, content.get() );
+            try ( OutputStream stream = new BufferedOutputStream( Files.newOutputStream( targetPath ) ) )
+            {
+                content.writeTo( stream );
+            }
         }
     }
 }
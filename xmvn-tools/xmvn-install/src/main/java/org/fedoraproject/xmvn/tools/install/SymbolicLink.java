@@ -55,6 +55,16 @@ public class SymbolicLink
         this.referencedPath = referencedPath;
     }
 
+    /**
+     * Get path referenced by this symbolic link.
+     * 
+     * @return path referenced by this symlink, relative to location of the link
+     */
+    public Path getReferencedPath()
+    {
+        return referencedPath;
+    }
+
     @Override
     protected void installContents( Path targetAbsolutePath )
         throws IOException
@@ -52,6 +52,8 @@ public class InstallerCli
         request.setInstallRoot( Paths.get( cliRequest.getDestDir() ) );
         request.setInstallationPlan( Paths.get( cliRequest.getPlanPath() ) );
         request.setRepositoryId( cliRequest.getRepoId() );
+        if ( cliRequest.isIncremental() )
+            request.setInstallationManifest( Paths.get( cliRequest.getManifestPath() ) );
 
         try
         {
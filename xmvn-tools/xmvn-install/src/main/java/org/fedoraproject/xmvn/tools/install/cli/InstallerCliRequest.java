@@ -56,6 +56,12 @@ class InstallerCliRequest
     @Parameter( names = { "-i", "--repository" }, description = "Installation repository ID" )
     private String repoId = ArtifactInstaller.DEFAULT_REPOSITORY_ID;
 
+    @Parameter( names = { "--incremental" }, description = "Install only files which changed since previous installation" )
+    private boolean incremental;
+
+    @Parameter( names = { "--manifest" }, description = "Path to manifest of installed files" )
+    private String manifestPath = ".xmvn/install-manifest";
+
     @DynamicParameter( names = "-D", description = "Define system property" )
     private Map<String, String> defines = new TreeMap<>();
 
@@ -157,6 +163,26 @@ class InstallerCliRequest
         this.repoId = repoId;
     }
 
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
+    public String getManifestPath()
+    {
+        return manifestPath;
+    }
+
+    public void setManifestPath( String manifestPath )
+    {
+        this.manifestPath = manifestPath;
+    }
+
     public Map<String, String> getDefines()
     {
         return defines;
@@ -25,7 +25,7 @@ class And
 {
     public And( List<BooleanExpression> children )
     {
-        super( true, children );
+        super( true, true, children );
     }
 
     @Override
@@ -33,4 +33,10 @@ class And
     {
         return lhs & rhs;
     }
+
+    @Override
+    protected BooleanOperator create( List<BooleanExpression> children )
+    {
+        return new And( children );
+    }
 }
@@ -23,4 +23,25 @@ import org.fedoraproject.xmvn.repository.ArtifactContext;
 abstract class BooleanExpression
 {
     public abstract boolean getValue( ArtifactContext context );
+
+    /**
+     * Determine whether value of this expression doesn't depend on evaluation context.
+     * 
+     * @return {@code true} iff this expression is constant
+     */
+    public boolean isConstant()
+    {
+        return false;
+    }
+
+    /**
+     * Simplify this expression so that it can be evaluated faster. Returned expression always has the same value as
+     * this expression, but constant subexpressions are folded and nested operators are flattened.
+     * 
+     * @return simplified expression, possibly this expression itself
+     */
+    public BooleanExpression optimize()
+    {
+        return this;
+    }
 }
@@ -35,4 +35,10 @@ class BooleanLiteral
     {
         return value;
     }
+
+    @Override
+    public boolean isConstant()
+    {
+        return true;
+    }
 }
@@ -15,11 +15,18 @@
  */
 package org.fedoraproject.xmvn.tools.install.condition;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.fedoraproject.xmvn.repository.ArtifactContext;
 
 /**
+ * Associative and commutative boolean operator with any number of operands.
+ * <p>
+ * Short-circuit operators stop evaluating operands as soon as intermediate value differs from neutral value of the
+ * operator, as it can't change any more.
+ * 
  * @author Mikolaj Izdebski
  */
 abstract class BooleanOperator
@@ -27,12 +34,15 @@ abstract class BooleanOperator
 {
     private final boolean neutralValue;
 
-    private final List<BooleanExpression> children;
+    private final boolean shortCircuit;
 
-    public BooleanOperator( boolean neutralValue, List<BooleanExpression> children )
+    private final BooleanExpression[] children;
+
+    public BooleanOperator( boolean neutralValue, boolean shortCircuit, List<BooleanExpression> children )
     {
         this.neutralValue = neutralValue;
-        this.children = children;
+        this.shortCircuit = shortCircuit;
+        this.children = children.toArray( new BooleanExpression[children.size()] );
     }
 
     @Override
@@ -43,10 +53,41 @@ abstract class BooleanOperator
         for ( BooleanExpression child : children )
         {
             value = evaluate( value, child.getValue( context ) );
+
+            if ( shortCircuit && value != neutralValue )
+                return value;
         }
 
         return value;
     }
 
+    @Override
+    public BooleanExpression optimize()
+    {
+        boolean constantValue = neutralValue;
+        List<BooleanExpression> operands = new ArrayList<>( children.length );
+
+        for ( BooleanExpression child : children )
+        {
+            BooleanExpression operand = child.optimize();
+
+            if ( operand.getClass() == getClass() )
+                operands.addAll( Arrays.asList( ( (BooleanOperator) operand ).children ) );
+            else if ( operand.isConstant() )
+                constantValue = evaluate( constantValue, operand.getValue( null ) );
+            else
+                operands.add( operand );
+        }
+
+        if ( operands.isEmpty() || shortCircuit && constantValue != neutralValue )
+            return new BooleanLiteral( constantValue );
+
+        BooleanExpression result = operands.size() == 1 ? operands.get( 0 ) : create( operands );
+
+        return constantValue == neutralValue ? result : new Not( result ).optimize();
+    }
+
     protected abstract boolean evaluate( boolean lhs, boolean rhs );
+
+    protected abstract BooleanOperator create( List<BooleanExpression> children );
 }
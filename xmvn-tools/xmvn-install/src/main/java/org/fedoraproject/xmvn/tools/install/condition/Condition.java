@@ -24,6 +24,11 @@ import org.w3c.dom.Element;
 import org.fedoraproject.xmvn.repository.ArtifactContext;
 
 /**
+ * Condition that artifacts can be matched against, parsed from its XML representation.
+ * <p>
+ * Conditions are simplified once, when they are parsed, so that constant subexpressions don't need to be evaluated
+ * again for every artifact.
+ * 
  * @author Mikolaj Izdebski
  */
 public class Condition
@@ -80,7 +85,7 @@ public class Condition
 
             case "false":
                 DomUtils.parseAsEmpty( dom );
-                return new BooleanLiteral( true );
+                return new BooleanLiteral( false );
 
             case "not":
                 return new Not( parseBoolean( DomUtils.parseAsWrapper( dom ) ) );
@@ -121,7 +126,7 @@ public class Condition
         }
         else
         {
-            expr = parseBoolean( DomUtils.parseAsWrapper( dom ) );
+            expr = parseBoolean( DomUtils.parseAsWrapper( dom ) ).optimize();
         }
     }
 
@@ -54,4 +54,13 @@ class Equals
         return lhsValue == null && rhsValue == null
             || lhsValue != null && rhsValue != null && lhsValue.equals( rhsValue );
     }
+
+    @Override
+    public BooleanExpression optimize()
+    {
+        if ( lhs.isConstant() && rhs.isConstant() )
+            return new BooleanLiteral( getValue( null ) );
+
+        return this;
+    }
 }
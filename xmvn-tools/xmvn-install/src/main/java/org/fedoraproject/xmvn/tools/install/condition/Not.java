@@ -35,4 +35,18 @@ class Not
     {
         return !rhs.getValue( context );
     }
+
+    @Override
+    public BooleanExpression optimize()
+    {
+        BooleanExpression operand = rhs.optimize();
+
+        if ( operand.isConstant() )
+            return new BooleanLiteral( !operand.getValue( null ) );
+
+        if ( operand instanceof Not )
+            return ( (Not) operand ).rhs;
+
+        return operand == rhs ? this : new Not( operand );
+    }
 }
@@ -28,4 +28,10 @@ class Null
     {
         return null;
     }
+
+    @Override
+    public boolean isConstant()
+    {
+        return true;
+    }
 }
@@ -25,7 +25,7 @@ class Or
 {
     public Or( List<BooleanExpression> children )
     {
-        super( false, children );
+        super( false, true, children );
     }
 
     @Override
@@ -33,4 +33,10 @@ class Or
     {
         return lhs | rhs;
     }
+
+    @Override
+    protected BooleanOperator create( List<BooleanExpression> children )
+    {
+        return new Or( children );
+    }
 }
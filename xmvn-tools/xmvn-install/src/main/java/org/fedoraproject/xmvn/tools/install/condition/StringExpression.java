@@ -23,4 +23,14 @@ import org.fedoraproject.xmvn.repository.ArtifactContext;
 abstract class StringExpression
 {
     public abstract String getValue( ArtifactContext context );
+
+    /**
+     * Determine whether value of this expression doesn't depend on evaluation context.
+     * 
+     * @return {@code true} iff this expression is constant
+     */
+    public boolean isConstant()
+    {
+        return false;
+    }
 }
@@ -35,4 +35,10 @@ class StringLiteral
     {
         return value;
     }
+
+    @Override
+    public boolean isConstant()
+    {
+        return true;
+    }
 }
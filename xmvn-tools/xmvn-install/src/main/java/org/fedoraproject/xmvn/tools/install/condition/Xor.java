@@ -25,7 +25,7 @@ class Xor
 {
     public Xor( List<BooleanExpression> children )
     {
-        super( false, children );
+        super( false, false, children );
     }
 
     @Override
@@ -33,4 +33,10 @@ class Xor
     {
         return lhs ^ rhs;
     }
+
+    @Override
+    protected BooleanOperator create( List<BooleanExpression> children )
+    {
+        return new Xor( children );
+    }
 }
@@ -17,16 +17,19 @@ package org.fedoraproject.xmvn.tools.install.impl;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,27 +53,28 @@ class ArtifactInstallerFactory
 
     private final Map<String, ArtifactInstaller> cachedPluginsByImplClass = new LinkedHashMap<>();
 
-    private ArtifactInstaller tryLoadPlugin( String type )
+    /**
+     * Implementation classes of all available plugins, indexed by packaging type.
+     */
+    private final Map<String, String> pluginImplClassesByType = new LinkedHashMap<>();
+
+    private synchronized ArtifactInstaller tryLoadPlugin( String type )
     {
         if ( cachedPluginsByType.containsKey( type ) )
             return cachedPluginsByType.get( type );
 
-        try
+        if ( !pluginImplClassesByType.containsKey( type ) )
         {
-            String resourceName = ArtifactInstaller.class.getCanonicalName() + "/" + type;
-            InputStream resourceStream = pluginRealm != null ? pluginRealm.getResourceAsStream( resourceName ) : null;
-            if ( resourceStream == null )
-            {
-                logger.debug( "No XMvn Installer plugin found for packaging type {}", type );
-                cachedPluginsByType.put( type, null );
-                return null;
-            }
+            logger.debug( "No XMvn Installer plugin found for packaging type {}", type );
+            cachedPluginsByType.put( type, null );
+            return null;
+        }
 
-            String pluginImplClass;
-            try ( BufferedReader resourceReader = new BufferedReader( new InputStreamReader( resourceStream ) ) )
-            {
-                pluginImplClass = resourceReader.readLine();
-            }
+        try
+        {
+            String pluginImplClass = pluginImplClassesByType.get( type );
+            if ( pluginImplClass == null )
+                throw new ClassNotFoundException( "Plugin registration doesn't specify implementation class" );
 
             ArtifactInstaller pluggedInInstaller = cachedPluginsByImplClass.get( pluginImplClass );
             if ( pluggedInInstaller == null )
@@ -83,12 +87,45 @@ class ArtifactInstallerFactory
             cachedPluginsByType.put( type, pluggedInInstaller );
             return pluggedInInstaller;
         }
-        catch ( IOException | ReflectiveOperationException e )
+        catch ( ReflectiveOperationException e )
         {
             throw new RuntimeException( "Unable to load XMvn Installer plugin for packaging type " + type, e );
         }
     }
 
+    /**
+     * Read all plugin registrations from given plugin JAR. Registrations from JARs added earlier take precedence, the
+     * same way as they would if they were looked up as class loader resources.
+     */
+    private void indexPlugins( Path jar )
+    {
+        try ( JarFile jarFile = new JarFile( jar.toFile() ) )
+        {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while ( entries.hasMoreElements() )
+            {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if ( entry.isDirectory() || !name.startsWith( PLUGIN_REGISTRATION_PREFIX ) )
+                    continue;
+
+                String type = name.substring( PLUGIN_REGISTRATION_PREFIX.length() );
+                if ( type.isEmpty() || type.contains( "/" ) || pluginImplClassesByType.containsKey( type ) )
+                    continue;
+
+                try ( BufferedReader reader =
+                    new BufferedReader( new InputStreamReader( jarFile.getInputStream( entry ) ) ) )
+                {
+                    pluginImplClassesByType.put( type, reader.readLine() );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Unable to read XMvn Installer plugin registrations from {}", jar, e );
+        }
+    }
+
     public ArtifactInstallerFactory( Configurator configurator )
     {
         this( configurator, Paths.get( "/usr/share/xmvn/lib/installer" ) );
@@ -102,8 +139,23 @@ class ArtifactInstallerFactory
         {
             ClassLoader parentClassLoader = ArtifactInstallerFactory.class.getClassLoader();
             pluginRealm = new IsolatedClassRealm( parentClassLoader );
-            pluginRealm.addJarDirectory( pluginDir );
             PLUGIN_IMPORTS.forEach( pluginRealm::importPackage );
+
+            // Plugin JARs are scanned only once, plugins themselves are instantiated only when they are needed
+            try ( DirectoryStream<Path> stream = Files.newDirectoryStream( pluginDir, "*.jar" ) )
+            {
+                for ( Path jar : stream )
+                {
+                    pluginRealm.addJar( jar );
+                    indexPlugins( jar );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new RuntimeException( e );
+            }
+
+            logger.debug( "Found XMvn Installer plugins for packaging types {}", pluginImplClassesByType.keySet() );
         }
         else
         {
@@ -111,6 +163,8 @@ class ArtifactInstallerFactory
         }
     }
 
+    private static final String PLUGIN_REGISTRATION_PREFIX = ArtifactInstaller.class.getCanonicalName() + "/";
+
     /**
      * List of packages imported from XMvn Installer class loader to plug-in realms.
      */
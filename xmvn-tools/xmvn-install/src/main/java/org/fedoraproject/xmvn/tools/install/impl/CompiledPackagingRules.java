@@ -0,0 +1,161 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.fedoraproject.xmvn.config.Artifact;
+import org.fedoraproject.xmvn.config.PackagingRule;
+
+/**
+ * List of packaging rules compiled for efficient matching against many artifacts.
+ * <p>
+ * Artifact globs of all rules are compiled only once, and rules are indexed by literal prefix of their groupId glob, so
+ * that rules which can't possibly match given groupId are not considered at all.
+ *
+ * @author Mikolaj Izdebski
+ */
+class CompiledPackagingRules
+{
+    private static final Map<Integer, Pattern> BACKREFERENCE_PATTERNS = new ConcurrentHashMap<>();
+
+    private final List<CompiledRule> unindexedRules = new ArrayList<>();
+
+    private final Map<String, List<CompiledRule>> rulesByGroupIdPrefix = new HashMap<>();
+
+    /**
+     * Packaging rule with precompiled artifact glob.
+     */
+    static class CompiledRule
+    {
+        private final PackagingRule rule;
+
+        private final int index;
+
+        private final GlobMatcher[] fieldMatchers;
+
+        CompiledRule( PackagingRule rule, int index )
+        {
+            this.rule = rule;
+            this.index = index;
+
+            Artifact glob = rule.getArtifactGlob();
+            fieldMatchers = new GlobMatcher[] { GlobMatcher.compile( glob.getStereotype() ),
+                GlobMatcher.compile( glob.getGroupId() ), GlobMatcher.compile( glob.getArtifactId() ),
+                GlobMatcher.compile( glob.getExtension() ), GlobMatcher.compile( glob.getClassifier() ),
+                GlobMatcher.compile( glob.getVersion() ) };
+        }
+
+        PackagingRule getRule()
+        {
+            return rule;
+        }
+
+        /**
+         * Match artifact against glob of this rule.
+         *
+         * @param artifact artifact to match
+         * @return list of groups captured by all wildcard fields, in order of fields, or {@code null} if artifact
+         *         doesn't match
+         */
+        List<String> match( Artifact artifact )
+        {
+            String[] values = { artifact.getStereotype(), artifact.getGroupId(), artifact.getArtifactId(),
+                artifact.getExtension(), artifact.getClassifier(), artifact.getVersion() };
+
+            List<String> groups = new ArrayList<>();
+            for ( int i = 0; i < values.length; i++ )
+            {
+                if ( fieldMatchers[i] != null )
+                {
+                    String[] fieldGroups = fieldMatchers[i].match( values[i] );
+                    if ( fieldGroups == null )
+                        return null;
+                    Collections.addAll( groups, fieldGroups );
+                }
+            }
+
+            return groups;
+        }
+
+        String getGroupIdPrefix()
+        {
+            return fieldMatchers[1] == null ? "" : fieldMatchers[1].getLiteralPrefix();
+        }
+    }
+
+    /**
+     * Compile list of packaging rules.
+     *
+     * @param artifactManagement list of raw packaging rules, in order of precedence
+     */
+    public CompiledPackagingRules( List<PackagingRule> artifactManagement )
+    {
+        int index = 0;
+        for ( PackagingRule rule : artifactManagement )
+        {
+            CompiledRule compiledRule = new CompiledRule( rule, index++ );
+
+            String prefix = compiledRule.getGroupIdPrefix();
+            if ( prefix.isEmpty() )
+                unindexedRules.add( compiledRule );
+            else
+                rulesByGroupIdPrefix.computeIfAbsent( prefix, p -> new ArrayList<>() ).add( compiledRule );
+        }
+    }
+
+    /**
+     * Get pattern matching back-reference to given capture group.
+     *
+     * @param group capture group number, starting from 1
+     * @return back-reference pattern
+     */
+    static Pattern getBackreferencePattern( int group )
+    {
+        return BACKREFERENCE_PATTERNS.computeIfAbsent( group, g -> Pattern.compile( "@" + g ) );
+    }
+
+    /**
+     * Get rules which can possibly match artifact with given groupId.
+     *
+     * @param groupId groupId of artifact
+     * @return candidate rules, in order of precedence
+     */
+    public List<CompiledRule> getCandidateRules( String groupId )
+    {
+        if ( rulesByGroupIdPrefix.isEmpty() || groupId == null )
+            return unindexedRules;
+
+        List<CompiledRule> candidates = new ArrayList<>( unindexedRules );
+        for ( int i = 1; i <= groupId.length(); i++ )
+        {
+            List<CompiledRule> rules = rulesByGroupIdPrefix.get( groupId.substring( 0, i ) );
+            if ( rules != null )
+                candidates.addAll( rules );
+        }
+
+        if ( candidates.size() > unindexedRules.size() )
+            Collections.sort( candidates, ( r1, r2 ) -> Integer.compare( r1.index, r2.index ) );
+
+        return candidates;
+    }
+}
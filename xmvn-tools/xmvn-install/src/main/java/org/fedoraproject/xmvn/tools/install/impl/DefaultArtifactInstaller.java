@@ -15,13 +15,13 @@
  */
 package org.fedoraproject.xmvn.tools.install.impl;
 
-import static org.fedoraproject.xmvn.tools.install.JarUtils.containsNativeCode;
-import static org.fedoraproject.xmvn.tools.install.JarUtils.injectManifest;
-import static org.fedoraproject.xmvn.tools.install.JarUtils.usesNativeCode;
+import static org.fedoraproject.xmvn.tools.install.JarUtils.analyzeAndInjectManifest;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
 import org.fedoraproject.xmvn.config.Configurator;
+import org.fedoraproject.xmvn.config.InstallerSettings;
 import org.fedoraproject.xmvn.config.PackagingRule;
 import org.fedoraproject.xmvn.metadata.ArtifactAlias;
 import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
@@ -58,42 +59,98 @@ class DefaultArtifactInstaller
 {
     private final Logger logger = LoggerFactory.getLogger( DefaultArtifactInstaller.class );
 
+    private final Configurator configurator;
+
     private final RepositoryConfigurator repositoryConfigurator;
 
     public DefaultArtifactInstaller( Configurator configurator )
     {
-        this( new DefaultRepositoryConfigurator( configurator ) );
+        this( configurator, new DefaultRepositoryConfigurator( configurator ) );
     }
 
     DefaultArtifactInstaller( RepositoryConfigurator repositoryConfigurator )
     {
+        this( null, repositoryConfigurator );
+    }
+
+    private DefaultArtifactInstaller( Configurator configurator, RepositoryConfigurator repositoryConfigurator )
+    {
+        this.configurator = configurator;
         this.repositoryConfigurator = repositoryConfigurator;
     }
 
-    @Override
-    public void install( JavaPackage targetPackage, ArtifactMetadata am, PackagingRule rule, String basePackageName,
-                         String repositoryId )
+    /**
+     * Result of artifact preparation &ndash; everything that can be determined without modifying target package.
+     */
+    private static class PreparedArtifact
+    {
+        private final Path artifactPath;
+
+        private final Artifact versionedArtifact;
+
+        private final Repository repo;
+
+        private final List<Path> repoPaths;
+
+        private final Set<Path> repoRoots;
+
+        private final Set<Path> absolutePaths;
+
+        PreparedArtifact( Path artifactPath, Artifact versionedArtifact, Repository repo, List<Path> repoPaths,
+                          Set<Path> repoRoots, Set<Path> absolutePaths )
+        {
+            this.artifactPath = artifactPath;
+            this.versionedArtifact = versionedArtifact;
+            this.repo = repo;
+            this.repoPaths = repoPaths;
+            this.repoRoots = repoRoots;
+            this.absolutePaths = absolutePaths;
+        }
+    }
+
+    private final Map<ArtifactMetadata, PreparedArtifact> preparedArtifacts =
+        Collections.synchronizedMap( new IdentityHashMap<>() );
+
+    private Repository configureRepository( String repositoryId )
+        throws ArtifactInstallationException
+    {
+        Repository repo;
+        // Repository configuration is backed by DOM, which is not thread-safe
+        synchronized ( repositoryConfigurator )
+        {
+            repo = repositoryConfigurator.configureRepository( repositoryId );
+        }
+        if ( repo == null )
+            throw new ArtifactInstallationException( "Unable to configure installation repository: " + repositoryId );
+        return repo;
+    }
+
+    private boolean isAppendManifest()
+    {
+        if ( configurator == null )
+            return false;
+
+        InstallerSettings settings = configurator.getConfiguration().getInstallerSettings();
+        return settings != null && Boolean.TRUE.equals( settings.isAppendManifest() );
+    }
+
+    private PreparedArtifact prepareArtifact( ArtifactMetadata am, PackagingRule rule, String basePackageName,
+                                              String repositoryId )
         throws ArtifactInstallationException
     {
         Artifact artifact = am.toArtifact();
 
-        // Handle native JARs/WARs etc
+        // Handle native JARs/WARs etc and inject Javapackages manifests. Manifest can optionally be appended instead of
+        // rewriting the whole archive, which is much faster for big archives.
         Path artifactPath = Paths.get( am.getPath() );
-        if ( usesNativeCode( artifactPath ) || containsNativeCode( artifactPath ) )
+        if ( analyzeAndInjectManifest( artifactPath, artifact, isAppendManifest() ) )
             am.getProperties().setProperty( "native", "true" );
 
-        // Inject Javapackages manifests
-        injectManifest( artifactPath, artifact );
-
         Map<String, String> properties = new LinkedHashMap<>();
         for ( String name : am.getProperties().stringPropertyNames() )
             properties.put( name, am.getProperties().getProperty( name ) );
 
-        logger.info( "Installing artifact {}", artifact );
-
-        Repository repo = repositoryConfigurator.configureRepository( repositoryId );
-        if ( repo == null )
-            throw new ArtifactInstallationException( "Unable to configure installation repository: " + repositoryId );
+        Repository repo = configureRepository( repositoryId );
 
         Set<Path> basePaths = new LinkedHashSet<>();
         for ( String fileName : rule.getFiles() )
@@ -118,6 +175,7 @@ class DefaultArtifactInstaller
         Artifact versionedArtifact = artifact.setVersion( installedVersion );
         ArtifactContext context = new ArtifactContext( versionedArtifact, properties );
         List<Path> repoPaths = new ArrayList<>();
+        Set<Path> repoRoots = new LinkedHashSet<>();
         for ( Path path : relativePaths )
         {
             Path repoPath = repo.getPrimaryArtifactPath( versionedArtifact, context, path.toString() );
@@ -125,12 +183,42 @@ class DefaultArtifactInstaller
                 throw new ArtifactInstallationException( "Installation repository is incapable of holding artifact "
                     + versionedArtifact );
             repoPaths.add( repoPath );
+        }
+        repoRoots.addAll( repo.getRootPaths() );
+
+        return new PreparedArtifact( artifactPath, versionedArtifact, repo, repoPaths, repoRoots, absolutePaths );
+    }
+
+    @Override
+    public void prepare( ArtifactMetadata am, PackagingRule rule, String basePackageName, String repositoryId )
+        throws ArtifactInstallationException
+    {
+        preparedArtifacts.put( am, prepareArtifact( am, rule, basePackageName, repositoryId ) );
+    }
 
-            Set<Path> repoRoots = repo.getRootPaths();
+    @Override
+    public void install( JavaPackage targetPackage, ArtifactMetadata am, PackagingRule rule, String basePackageName,
+                         String repositoryId )
+        throws ArtifactInstallationException
+    {
+        PreparedArtifact prepared = preparedArtifacts.remove( am );
+        if ( prepared == null )
+            prepared = prepareArtifact( am, rule, basePackageName, repositoryId );
+
+        logger.info( "Installing artifact {}", am.toArtifact() );
+
+        Path artifactPath = prepared.artifactPath;
+        Artifact versionedArtifact = prepared.versionedArtifact;
+        Repository repo = prepared.repo;
+        Set<Path> repoRoots = prepared.repoRoots;
+        Set<Path> absolutePaths = prepared.absolutePaths;
+
+        for ( Path repoPath : prepared.repoPaths )
+        {
             for ( Path dir = repoPath.getParent(); dir != null && !repoRoots.contains( dir ); dir = dir.getParent() )
                 targetPackage.addFileIfNotExists( new Directory( dir ) );
         }
-        Iterator<Path> repoPathIterator = repoPaths.iterator();
+        Iterator<Path> repoPathIterator = prepared.repoPaths.iterator();
 
         // Artifact path
         File artifactFile = new RegularFile( repoPathIterator.next(), artifactPath );
@@ -21,11 +21,16 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -48,6 +53,8 @@ import org.fedoraproject.xmvn.resolver.ResolutionResult;
 import org.fedoraproject.xmvn.resolver.Resolver;
 import org.fedoraproject.xmvn.tools.install.ArtifactInstallationException;
 import org.fedoraproject.xmvn.tools.install.ArtifactInstaller;
+import org.fedoraproject.xmvn.tools.install.BuildrootMaterializer;
+import org.fedoraproject.xmvn.tools.install.FileCopier;
 import org.fedoraproject.xmvn.tools.install.InstallationRequest;
 import org.fedoraproject.xmvn.tools.install.InstallationResult;
 import org.fedoraproject.xmvn.tools.install.Installer;
@@ -71,8 +78,12 @@ public class DefaultInstaller
 
     private Configuration configuration;
 
+    private CompiledPackagingRules compiledRules;
+
     private PackageRegistry packageRegistry;
 
+    private int threads;
+
     public DefaultInstaller( Configurator configurator, Resolver resolver )
     {
         this( configurator, resolver, new ArtifactInstallerFactory( configurator ) );
@@ -83,6 +94,14 @@ public class DefaultInstaller
         this.configurator = configurator;
         this.resolver = resolver;
         this.installerFactory = installerFactory;
+
+        // The same number of threads is used for both preparing artifacts and installing files into buildroot
+        threads = Integer.getInteger( "xmvn.install.threads", BuildrootMaterializer.getDefaultThreads() );
+    }
+
+    void setThreads( int threads )
+    {
+        this.threads = threads;
     }
 
     /**
@@ -114,9 +133,9 @@ public class DefaultInstaller
     {
         Artifact artifact = artifactState.getArtifact();
 
-        PackagingRule rule = new EffectivePackagingRule( configuration.getArtifactManagement(), artifact.getGroupId(),
-                                                         artifact.getArtifactId(), artifact.getExtension(),
-                                                         artifact.getClassifier(), artifact.getVersion() );
+        PackagingRule rule = new EffectivePackagingRule( compiledRules, artifact.getGroupId(), artifact.getArtifactId(),
+                                                         artifact.getExtension(), artifact.getClassifier(),
+                                                         artifact.getVersion() );
 
         artifactState.setPackagingRule( rule );
 
@@ -210,6 +229,99 @@ public class DefaultInstaller
                                                                           artifactState.getMetadata().getProperties() ) );
     }
 
+    private void prepareArtifacts( List<ArtifactState> artifacts, String basePackageName, String repositoryId )
+        throws ArtifactInstallationException
+    {
+        for ( ArtifactState artifactState : artifacts )
+        {
+            ArtifactInstaller installer = artifactState.getInstaller();
+            ArtifactMetadata metadata = artifactState.getMetadata();
+            PackagingRule packagingRule = artifactState.getPackagingRule();
+            installer.prepare( metadata, packagingRule, basePackageName, repositoryId );
+        }
+    }
+
+    /**
+     * Prepare all installable artifacts for installation, in parallel. Artifacts sharing the same file are prepared
+     * sequentially, in reactor order, by the same task, as preparation can modify artifact files.
+     * 
+     * @param basePackageName
+     * @param repositoryId
+     * @throws ArtifactInstallationException
+     */
+    private void prepareArtifacts( String basePackageName, String repositoryId )
+        throws ArtifactInstallationException
+    {
+        Map<String, List<ArtifactState>> artifactsByPath = new LinkedHashMap<>();
+        for ( ArtifactState artifactState : reactor )
+        {
+            if ( artifactState.getTargetPackage() != null )
+                artifactsByPath.computeIfAbsent( artifactState.getMetadata().getPath(),
+                                                 path -> new ArrayList<>() ).add( artifactState );
+        }
+
+        int nThreads = Math.min( threads, artifactsByPath.size() );
+        if ( nThreads <= 1 )
+        {
+            for ( List<ArtifactState> artifacts : artifactsByPath.values() )
+                prepareArtifacts( artifacts, basePackageName, repositoryId );
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( nThreads, runnable ->
+        {
+            Thread thread = new Thread( runnable );
+            thread.setName( DefaultInstaller.class.getCanonicalName() + ".worker" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( List<ArtifactState> artifacts : artifactsByPath.values() )
+                futures.add( executor.submit( () ->
+                {
+                    prepareArtifacts( artifacts, basePackageName, repositoryId );
+                    return null;
+                } ) );
+
+            // Wait for all tasks so that no artifact file is being modified after installation fails, then report the
+            // first failure in reactor order.
+            Throwable failure = null;
+            for ( Future<?> future : futures )
+            {
+                try
+                {
+                    future.get();
+                }
+                catch ( ExecutionException e )
+                {
+                    if ( failure == null )
+                        failure = e.getCause();
+                }
+            }
+
+            if ( failure instanceof ArtifactInstallationException )
+                throw (ArtifactInstallationException) failure;
+            if ( failure instanceof RuntimeException )
+                throw (RuntimeException) failure;
+            if ( failure instanceof Error )
+                throw (Error) failure;
+            if ( failure != null )
+                throw new ArtifactInstallationException( "Unable to prepare artifacts for installation", failure );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ArtifactInstallationException( "Interrupted while preparing artifacts for installation", e );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     private void installArtifact( ArtifactState artifactState, String basePackageName, String repositoryId )
         throws ArtifactInstallationException
     {
@@ -249,16 +361,36 @@ public class DefaultInstaller
             }
         }
 
+        // The same dependencies are usually shared by many artifacts, resolve each of them only once
+        Map<Artifact, Dependency> resolvedDependencies = new HashMap<>();
+        int dependencyCount = 0;
+
         for ( JavaPackage pkg : packageRegistry.getPackages() )
         {
             for ( ArtifactMetadata artifactMetadata : pkg.getMetadata().getArtifacts() )
             {
                 for ( Dependency dependency : artifactMetadata.getDependencies() )
                 {
-                    resolveDependency( dependency, installedArtifacts );
+                    dependencyCount++;
+                    Artifact dependencyArtifact = dependency.toArtifact();
+                    Dependency resolvedDependency = resolvedDependencies.get( dependencyArtifact );
+
+                    if ( resolvedDependency == null )
+                    {
+                        resolveDependency( dependency, installedArtifacts );
+                        resolvedDependencies.put( dependencyArtifact, dependency );
+                    }
+                    else
+                    {
+                        dependency.setResolvedVersion( resolvedDependency.getResolvedVersion() );
+                        dependency.setNamespace( resolvedDependency.getNamespace() );
+                    }
                 }
             }
         }
+
+        logger.debug( "Resolved {} unique dependencies out of {} dependencies in total", resolvedDependencies.size(),
+                      dependencyCount );
     }
 
     private void resolveDependency( Dependency dependency, Map<Artifact, ArtifactMetadata> installedArtifacts )
@@ -296,6 +428,19 @@ public class DefaultInstaller
         dependency.setNamespace( "UNKNOWN" );
     }
 
+    private static FileCopier createFileCopier( InstallerSettings settings )
+        throws ArtifactInstallationException
+    {
+        try
+        {
+            return new FileCopier( FileCopier.Strategy.fromString( settings.getInstallStrategy() ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new ArtifactInstallationException( e.getMessage(), e );
+        }
+    }
+
     @Override
     public InstallationResult install( InstallationRequest request )
         throws ArtifactInstallationException, IOException
@@ -309,6 +454,7 @@ public class DefaultInstaller
         buildReactor( installationPlan );
 
         logger.debug( "Creating effective packaging rules for each artifact" );
+        compiledRules = new CompiledPackagingRules( configuration.getArtifactManagement() );
         for ( ArtifactState artifactState : reactor )
             constructEffectivePackagingRule( artifactState );
 
@@ -327,6 +473,9 @@ public class DefaultInstaller
         for ( ArtifactState artifactState : reactor )
             assignArtifactInstaller( artifactState );
 
+        logger.debug( "Preparing artifacts for installation using up to {} threads", threads );
+        prepareArtifacts( request.getBasePackageName(), request.getRepositoryId() );
+
         logger.debug( "Installing artifacts" );
         for ( ArtifactState artifactState : reactor )
         {
@@ -352,12 +501,23 @@ public class DefaultInstaller
         logger.debug( "Resolving artifact dependencies..." );
         resolveArtifactDependencies();
 
-        logger.debug( "Installing packages into buildroot: {}", request.getInstallRoot() );
-        for ( JavaPackage pkg : packageRegistry.getPackages() )
+        if ( Boolean.TRUE.equals( settings.isDeduplicate() ) )
         {
-            logger.debug( "Installing {}", pkg );
-            pkg.install( request.getInstallRoot() );
+            logger.debug( "Deduplicating installed files" );
+            new FileDeduplicator().deduplicate( packageRegistry.getPackages() );
+        }
+
+        FileCopier copier = createFileCopier( settings );
+        logger.debug( "Installing packages into buildroot: {} using {} strategy", request.getInstallRoot(),
+                      copier.getStrategy() );
+        BuildrootMaterializer materializer = new BuildrootMaterializer( request.getInstallRoot(), copier, threads );
+        if ( request.getInstallationManifest() != null )
+            materializer.install( packageRegistry.getPackages(), request.getInstallationManifest() );
+        else
+            materializer.install( packageRegistry.getPackages() );
 
+        for ( JavaPackage pkg : packageRegistry.getPackages() )
+        {
             Path mfiles =
                 Paths.get( pkg.getId() == null || pkg.getId().isEmpty() ? ".mfiles" : ".mfiles-" + pkg.getId() );
             if ( request.getDescriptorRoot() != null )
@@ -367,6 +527,9 @@ public class DefaultInstaller
             pkg.writeDescriptor( mfiles );
         }
 
+        logger.debug( "Installed file contents: {} bytes copied, {} bytes cloned, {} bytes linked",
+                      copier.getBytesCopied(), copier.getBytesCloned(), copier.getBytesLinked() );
+
         logger.info( "Installation successful" );
         return new InstallationResult()
         {
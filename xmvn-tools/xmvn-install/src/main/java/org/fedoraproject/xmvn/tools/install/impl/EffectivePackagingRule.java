@@ -15,9 +15,7 @@
  */
 package org.fedoraproject.xmvn.tools.install.impl;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.fedoraproject.xmvn.config.Artifact;
@@ -48,19 +46,15 @@ class EffectivePackagingRule
         return str == null || str.isEmpty();
     }
 
-    private static String expandBackreferences( List<Matcher> matchers, String result )
+    private static String expandBackreferences( List<String> groups, String result )
     {
-        int group = 1;
-        for ( Matcher matcher : matchers )
-        {
-            for ( int i = 1; i <= matcher.groupCount(); i++, group++ )
-                result = result.replace( "@" + group, matcher.group( i ) );
-        }
+        for ( int group = 1; group <= groups.size(); group++ )
+            result = result.replace( "@" + group, groups.get( group - 1 ) );
 
         return result.trim();
     }
 
-    private static org.fedoraproject.xmvn.config.Artifact expandBackreferences( List<Matcher> matchers,
+    private static org.fedoraproject.xmvn.config.Artifact expandBackreferences( List<String> groups,
                                                                                 org.fedoraproject.xmvn.config.Artifact source )
     {
         org.fedoraproject.xmvn.config.Artifact target = new org.fedoraproject.xmvn.config.Artifact();
@@ -71,62 +65,38 @@ class EffectivePackagingRule
         target.setClassifier( source.getClassifier() );
         target.setVersion( source.getVersion() );
 
-        int group = 1;
-        for ( Matcher matcher : matchers )
+        for ( int group = 1; group <= groups.size(); group++ )
         {
-            for ( int i = 1; i <= matcher.groupCount(); i++, group++ )
-            {
-                Pattern pattern = Pattern.compile( "@" + group );
-                String replacement = matcher.group( i );
-                target.setStereotype( pattern.matcher( target.getStereotype() ).replaceAll( replacement ) );
-                target.setGroupId( pattern.matcher( target.getGroupId() ).replaceAll( replacement ) );
-                target.setArtifactId( pattern.matcher( target.getArtifactId() ).replaceAll( replacement ) );
-                target.setExtension( pattern.matcher( target.getExtension() ).replaceAll( replacement ) );
-                target.setClassifier( pattern.matcher( target.getClassifier() ).replaceAll( replacement ) );
-                target.setVersion( pattern.matcher( target.getVersion() ).replaceAll( replacement ) );
-            }
+            Pattern pattern = CompiledPackagingRules.getBackreferencePattern( group );
+            String replacement = groups.get( group - 1 );
+            target.setStereotype( pattern.matcher( target.getStereotype() ).replaceAll( replacement ) );
+            target.setGroupId( pattern.matcher( target.getGroupId() ).replaceAll( replacement ) );
+            target.setArtifactId( pattern.matcher( target.getArtifactId() ).replaceAll( replacement ) );
+            target.setExtension( pattern.matcher( target.getExtension() ).replaceAll( replacement ) );
+            target.setClassifier( pattern.matcher( target.getClassifier() ).replaceAll( replacement ) );
+            target.setVersion( pattern.matcher( target.getVersion() ).replaceAll( replacement ) );
         }
 
         return target;
     }
 
-    private void applyRule( PackagingRule rule )
+    private void applyRule( CompiledPackagingRules.CompiledRule compiledRule )
     {
-        Artifact glob = rule.getArtifactGlob();
-        Pattern stereotypePattern = GlobUtils.glob2pattern( glob.getStereotype() );
-        Pattern groupIdPattern = GlobUtils.glob2pattern( glob.getGroupId() );
-        Pattern artifactIdPattern = GlobUtils.glob2pattern( glob.getArtifactId() );
-        Pattern extensionPattern = GlobUtils.glob2pattern( glob.getExtension() );
-        Pattern classifierPattern = GlobUtils.glob2pattern( glob.getClassifier() );
-        Pattern versionPattern = GlobUtils.glob2pattern( glob.getVersion() );
-
         Artifact artifact = getArtifactGlob();
-        List<Matcher> matchers = new ArrayList<>( 3 );
-        if ( stereotypePattern != null )
-            matchers.add( stereotypePattern.matcher( artifact.getStereotype() ) );
-        if ( groupIdPattern != null )
-            matchers.add( groupIdPattern.matcher( artifact.getGroupId() ) );
-        if ( artifactIdPattern != null )
-            matchers.add( artifactIdPattern.matcher( artifact.getArtifactId() ) );
-        if ( extensionPattern != null )
-            matchers.add( extensionPattern.matcher( artifact.getExtension() ) );
-        if ( classifierPattern != null )
-            matchers.add( classifierPattern.matcher( artifact.getClassifier() ) );
-        if ( versionPattern != null )
-            matchers.add( versionPattern.matcher( artifact.getVersion() ) );
-
-        for ( Matcher matcher : matchers )
-            if ( !matcher.matches() )
-                return;
+        List<String> groups = compiledRule.match( artifact );
+        if ( groups == null )
+            return;
+
+        PackagingRule rule = compiledRule.getRule();
         rule.setMatched( true );
 
         String targetPackage = rule.getTargetPackage();
         if ( isNullOrEmpty( getTargetPackage() ) && !isNullOrEmpty( targetPackage ) )
-            setTargetPackage( expandBackreferences( matchers, targetPackage ) );
+            setTargetPackage( expandBackreferences( groups, targetPackage ) );
 
         for ( org.fedoraproject.xmvn.config.Artifact alias : rule.getAliases() )
         {
-            alias = expandBackreferences( matchers, alias );
+            alias = expandBackreferences( groups, alias );
 
             if ( isNullOrEmpty( alias.getStereotype() ) )
                 alias.setStereotype( artifact.getStereotype() );
@@ -147,14 +117,14 @@ class EffectivePackagingRule
 
         for ( String file : rule.getFiles() )
         {
-            file = expandBackreferences( matchers, file );
+            file = expandBackreferences( groups, file );
             if ( !getFiles().contains( file ) )
                 addFile( file );
         }
 
         for ( String version : rule.getVersions() )
         {
-            version = expandBackreferences( matchers, version );
+            version = expandBackreferences( groups, version );
             if ( !getVersions().contains( version ) )
                 addVersion( version );
         }
@@ -172,6 +142,23 @@ class EffectivePackagingRule
      */
     public EffectivePackagingRule( List<PackagingRule> artifactManagement, String groupId, String artifactId,
                                    String extension, String classifier, String version )
+    {
+        this( new CompiledPackagingRules( artifactManagement ), groupId, artifactId, extension, classifier, version );
+    }
+
+    /**
+     * Create effective packaging rule for given artifact from precompiled packaging rules. This is more efficient than
+     * using raw packaging rules when effective rules are created for many artifacts.
+     * 
+     * @param compiledRules compiled list of raw packaging rules that are foundation of newly constructed effective rule
+     * @param groupId groupId of artifact for which effective rule is to be created
+     * @param artifactId artifactId of artifact for which effective rule is to be created
+     * @param extension extension of artifact for which effective rule is to be created
+     * @param classifier classifier of artifact for which effective rule is to be created
+     * @param version version of artifact for which effective rule is to be created
+     */
+    public EffectivePackagingRule( CompiledPackagingRules compiledRules, String groupId, String artifactId,
+                                   String extension, String classifier, String version )
     {
         Artifact artifact = new Artifact();
         artifact.setGroupId( groupId );
@@ -183,7 +170,7 @@ class EffectivePackagingRule
         setOptional( false );
         setMatched( true );
 
-        for ( PackagingRule rule : artifactManagement )
+        for ( CompiledPackagingRules.CompiledRule rule : compiledRules.getCandidateRules( groupId ) )
         {
             applyRule( rule );
         }
@@ -0,0 +1,203 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.fedoraproject.xmvn.tools.install.File;
+import org.fedoraproject.xmvn.tools.install.HardLink;
+import org.fedoraproject.xmvn.tools.install.Package;
+import org.fedoraproject.xmvn.tools.install.RegularFile;
+import org.fedoraproject.xmvn.tools.install.SymbolicLink;
+
+/**
+ * Finds regular files with identical contents across all packages and replaces all but the first of them with links.
+ * <p>
+ * Files are first grouped by size and only files of equal size are checksummed. Files with equal checksums are
+ * compared byte by byte before they are considered identical. Duplicates within the same package are replaced with
+ * relative symbolic links, duplicates in other packages with hard links, so that no package contains dangling links
+ * when installed alone.
+ *
+ * @author Mikolaj Izdebski
+ */
+class FileDeduplicator
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger( FileDeduplicator.class );
+
+    private int deduplicatedFiles;
+
+    private long deduplicatedBytes;
+
+    private static class Candidate
+    {
+        private final Package pkg;
+
+        private final RegularFile file;
+
+        private final long size;
+
+        Candidate( Package pkg, RegularFile file, long size )
+        {
+            this.pkg = pkg;
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Replace duplicate files in given packages with links to the first installed copy.
+     *
+     * @param packages packages to deduplicate, in order of installation
+     * @throws IOException if contents of source files can't be read
+     */
+    public void deduplicate( Collection<? extends Package> packages )
+        throws IOException
+    {
+        Map<Long, List<Candidate>> candidatesBySize = new LinkedHashMap<>();
+        for ( Package pkg : packages )
+        {
+            for ( File file : pkg.getFiles() )
+            {
+                if ( file instanceof RegularFile && ( (RegularFile) file ).getSourcePath() != null )
+                {
+                    RegularFile regularFile = (RegularFile) file;
+                    long size = Files.size( regularFile.getSourcePath() );
+                    if ( size > 0 )
+                    {
+                        Candidate candidate = new Candidate( pkg, regularFile, size );
+                        candidatesBySize.computeIfAbsent( size, s -> new ArrayList<>() ).add( candidate );
+                    }
+                }
+            }
+        }
+
+        for ( List<Candidate> sameSize : candidatesBySize.values() )
+        {
+            if ( sameSize.size() < 2 )
+                continue;
+
+            Map<Long, List<Candidate>> candidatesByChecksum = new LinkedHashMap<>();
+            for ( Candidate candidate : sameSize )
+            {
+                long checksum = checksum( candidate.file.getSourcePath() );
+                candidatesByChecksum.computeIfAbsent( checksum, c -> new ArrayList<>() ).add( candidate );
+            }
+
+            for ( List<Candidate> sameChecksum : candidatesByChecksum.values() )
+                deduplicateCandidates( sameChecksum );
+        }
+
+        logger.debug( "Replaced {} duplicate files with links, saving {} bytes", deduplicatedFiles, deduplicatedBytes );
+    }
+
+    private void deduplicateCandidates( List<Candidate> candidates )
+        throws IOException
+    {
+        List<Candidate> primaries = new ArrayList<>();
+
+        for ( Candidate candidate : candidates )
+        {
+            Candidate primary = findIdentical( primaries, candidate );
+            if ( primary != null )
+                replace( primary, candidate );
+            else
+                primaries.add( candidate );
+        }
+    }
+
+    private static Candidate findIdentical( List<Candidate> primaries, Candidate candidate )
+        throws IOException
+    {
+        for ( Candidate primary : primaries )
+        {
+            if ( primary.file.getAccessMode() == candidate.file.getAccessMode()
+                && contentEquals( primary.file.getSourcePath(), candidate.file.getSourcePath() ) )
+                return primary;
+        }
+
+        return null;
+    }
+
+    private void replace( Candidate primary, Candidate duplicate )
+    {
+        Path targetPath = duplicate.file.getTargetPath();
+        File link;
+        if ( primary.pkg == duplicate.pkg )
+            link = new SymbolicLink( targetPath, Paths.get( "/" ).resolve( primary.file.getTargetPath() ) );
+        else
+            link = new HardLink( targetPath, primary.file.getTargetPath(), primary.file.getAccessMode() );
+
+        logger.debug( "File {} in package {} is identical to {}, replacing it with {}", targetPath,
+                      duplicate.pkg.getId(), primary.file.getTargetPath(), link.getClass().getSimpleName() );
+        duplicate.pkg.replaceFile( duplicate.file, link );
+
+        deduplicatedFiles++;
+        deduplicatedBytes += duplicate.size;
+    }
+
+    private static long checksum( Path path )
+        throws IOException
+    {
+        Checksum checksum = new CRC32C();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try ( InputStream is = Files.newInputStream( path ) )
+        {
+            int n;
+            while ( ( n = is.read( buffer ) ) > 0 )
+                checksum.update( buffer, 0, n );
+        }
+        return checksum.getValue();
+    }
+
+    private static boolean contentEquals( Path path1, Path path2 )
+        throws IOException
+    {
+        if ( Files.isSameFile( path1, path2 ) )
+            return true;
+
+        byte[] buffer1 = new byte[BUFFER_SIZE];
+        byte[] buffer2 = new byte[BUFFER_SIZE];
+        try ( InputStream is1 = Files.newInputStream( path1 ); InputStream is2 = Files.newInputStream( path2 ) )
+        {
+            while ( true )
+            {
+                int n1 = is1.readNBytes( buffer1, 0, BUFFER_SIZE );
+                int n2 = is2.readNBytes( buffer2, 0, BUFFER_SIZE );
+                if ( n1 != n2 || !Arrays.equals( buffer1, 0, n1, buffer2, 0, n2 ) )
+                    return false;
+                if ( n1 < BUFFER_SIZE )
+                    return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,491 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled wildcard pattern.
+ * <p>
+ * Globs are matched without regular expressions whenever possible. Literal strings, {@code *} and {@code prefix*} are
+ * matched by simple string comparison, other globs which don't contain nested alternatives are matched by a small
+ * backtracking matcher. Matching results, including captured groups, are always the same as results of matching
+ * regular expression created by {@link GlobUtils#glob2pattern(String)} &ndash; in the rare cases which are not
+ * supported by the matcher, for example for subjects containing line terminators, that regular expression is used.
+ *
+ * @author Mikolaj Izdebski
+ */
+abstract class GlobMatcher
+{
+    /**
+     * Characters which are not escaped by {@link GlobUtils#glob2re(String)} and have special meaning in regular
+     * expressions.
+     */
+    private static final String REGEX_CHARS = "[]^$\\";
+
+    private static final String[] NO_GROUPS = new String[0];
+
+    private final String regex;
+
+    private volatile Pattern pattern;
+
+    private GlobMatcher( String regex )
+    {
+        this.regex = regex;
+    }
+
+    /**
+     * Compile wildcard pattern.
+     *
+     * @param glob wildcard pattern to compile
+     * @return compiled pattern, or {@code null} if glob is empty
+     */
+    public static GlobMatcher compile( String glob )
+    {
+        if ( glob == null || glob.isEmpty() )
+            return null;
+
+        // Always convert glob to regular expression, which validates glob syntax as well
+        String regex = GlobUtils.glob2re( glob );
+
+        List<Node> nodes = parse( glob );
+        if ( nodes == null )
+            return new RegexMatcher( regex, literalPrefix( glob ) );
+
+        if ( nodes.size() == 1 && nodes.get( 0 ).type == NodeType.LITERAL )
+            return new LiteralMatcher( regex, nodes.get( 0 ).literal );
+        if ( nodes.size() == 1 && nodes.get( 0 ).type == NodeType.STAR )
+            return new PrefixMatcher( regex, "" );
+        if ( nodes.size() == 2 && nodes.get( 0 ).type == NodeType.LITERAL && nodes.get( 1 ).type == NodeType.STAR )
+            return new PrefixMatcher( regex, nodes.get( 0 ).literal );
+
+        return new SequenceMatcher( regex, nodes );
+    }
+
+    /**
+     * Get number of capture groups, each corresponding to one alternative in the glob.
+     *
+     * @return number of capture groups
+     */
+    public abstract int getGroupCount();
+
+    /**
+     * Get literal prefix of glob. All strings matching the glob start with this prefix.
+     *
+     * @return literal prefix, possibly empty
+     */
+    public abstract String getLiteralPrefix();
+
+    /**
+     * Match string against the glob.
+     *
+     * @param value string to match
+     * @return captured groups, or {@code null} if string doesn't match the glob
+     */
+    public String[] match( String value )
+    {
+        if ( value == null )
+            return null;
+        if ( !isPlain( value ) )
+            return matchRegex( value );
+        return doMatch( value );
+    }
+
+    /**
+     * Check whether string matches the glob.
+     *
+     * @param value string to match
+     * @return {@code true} if string matches the glob
+     */
+    public boolean matches( String value )
+    {
+        return match( value ) != null;
+    }
+
+    protected abstract String[] doMatch( String value );
+
+    /**
+     * Check if string doesn't contain any characters which would need special handling when matching wildcards.
+     */
+    private static boolean isPlain( String value )
+    {
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char ch = value.charAt( i );
+            if ( ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029'
+                || Character.isSurrogate( ch ) )
+                return false;
+        }
+
+        return true;
+    }
+
+    protected Pattern getPattern()
+    {
+        Pattern result = pattern;
+        if ( result == null )
+        {
+            result = Pattern.compile( regex );
+            pattern = result;
+        }
+        return result;
+    }
+
+    protected String[] matchRegex( String value )
+    {
+        Matcher matcher = getPattern().matcher( value );
+        if ( !matcher.matches() )
+            return null;
+        if ( matcher.groupCount() == 0 )
+            return NO_GROUPS;
+
+        String[] groups = new String[matcher.groupCount()];
+        for ( int i = 0; i < groups.length; i++ )
+            groups[i] = matcher.group( i + 1 );
+        return groups;
+    }
+
+    private enum NodeType
+    {
+        LITERAL, ANY_CHAR, STAR, GROUP
+    }
+
+    private static final class Node
+    {
+        private final NodeType type;
+
+        private final String literal;
+
+        private final List<List<Node>> alternatives;
+
+        private final int group;
+
+        private Node( NodeType type, String literal, List<List<Node>> alternatives, int group )
+        {
+            this.type = type;
+            this.literal = literal;
+            this.alternatives = alternatives;
+            this.group = group;
+        }
+    }
+
+    private static final Node ANY_CHAR = new Node( NodeType.ANY_CHAR, null, null, 0 );
+
+    private static final Node STAR = new Node( NodeType.STAR, null, null, 0 );
+
+    private static void flushLiteral( List<Node> nodes, StringBuilder literal )
+    {
+        if ( literal.length() > 0 )
+        {
+            nodes.add( new Node( NodeType.LITERAL, literal.toString(), null, 0 ) );
+            literal.setLength( 0 );
+        }
+    }
+
+    private static String literalPrefix( String glob )
+    {
+        for ( int i = 0; i < glob.length(); i++ )
+        {
+            if ( "{?*".indexOf( glob.charAt( i ) ) >= 0 || REGEX_CHARS.indexOf( glob.charAt( i ) ) >= 0 )
+                return glob.substring( 0, i );
+        }
+
+        return glob;
+    }
+
+    /**
+     * Parse glob into sequence of nodes, following the same rules as {@link GlobUtils#glob2re(String)}.
+     *
+     * @param glob syntactically valid glob
+     * @return list of nodes, or {@code null} if glob can't be matched without regular expressions
+     */
+    private static List<Node> parse( String glob )
+    {
+        List<Node> nodes = new ArrayList<>();
+        List<List<Node>> alternatives = null;
+        List<Node> current = nodes;
+        StringBuilder literal = new StringBuilder();
+        boolean escape = false;
+        int groups = 0;
+
+        for ( char ch : glob.toCharArray() )
+        {
+            if ( escape )
+            {
+                if ( REGEX_CHARS.indexOf( ch ) >= 0 )
+                    return null;
+                literal.append( ch );
+                escape = false;
+            }
+            else if ( ch == '\\' )
+            {
+                escape = true;
+            }
+            else if ( ch == '{' )
+            {
+                if ( alternatives != null )
+                    return null;
+                flushLiteral( current, literal );
+                alternatives = new ArrayList<>();
+                current = new ArrayList<>();
+                alternatives.add( current );
+            }
+            else if ( ch == '}' && alternatives != null )
+            {
+                flushLiteral( current, literal );
+                nodes.add( new Node( NodeType.GROUP, null, alternatives, ++groups ) );
+                alternatives = null;
+                current = nodes;
+            }
+            else if ( ch == ',' && alternatives != null )
+            {
+                flushLiteral( current, literal );
+                current = new ArrayList<>();
+                alternatives.add( current );
+            }
+            else if ( ch == '?' )
+            {
+                flushLiteral( current, literal );
+                current.add( ANY_CHAR );
+            }
+            else if ( ch == '*' )
+            {
+                flushLiteral( current, literal );
+                current.add( STAR );
+            }
+            else if ( REGEX_CHARS.indexOf( ch ) >= 0 )
+            {
+                return null;
+            }
+            else
+            {
+                literal.append( ch );
+            }
+        }
+
+        flushLiteral( current, literal );
+        return nodes;
+    }
+
+    /**
+     * Glob without any wildcards.
+     */
+    private static class LiteralMatcher
+        extends GlobMatcher
+    {
+        private final String literal;
+
+        LiteralMatcher( String regex, String literal )
+        {
+            super( regex );
+            this.literal = literal;
+        }
+
+        @Override
+        public int getGroupCount()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getLiteralPrefix()
+        {
+            return literal;
+        }
+
+        @Override
+        public String[] match( String value )
+        {
+            return literal.equals( value ) ? NO_GROUPS : null;
+        }
+
+        @Override
+        protected String[] doMatch( String value )
+        {
+            return match( value );
+        }
+    }
+
+    /**
+     * Glob consisting of literal prefix followed by single {@code *}, including glob {@code *} alone.
+     */
+    private static class PrefixMatcher
+        extends GlobMatcher
+    {
+        private final String prefix;
+
+        PrefixMatcher( String regex, String prefix )
+        {
+            super( regex );
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int getGroupCount()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getLiteralPrefix()
+        {
+            return prefix;
+        }
+
+        @Override
+        protected String[] doMatch( String value )
+        {
+            return value.startsWith( prefix ) ? NO_GROUPS : null;
+        }
+    }
+
+    /**
+     * General glob without nested alternatives, matched by backtracking in the same order as regular expression would
+     * be, so that captured groups are the same.
+     */
+    private static class SequenceMatcher
+        extends GlobMatcher
+    {
+        private final List<Node> nodes;
+
+        private final int groupCount;
+
+        SequenceMatcher( String regex, List<Node> nodes )
+        {
+            super( regex );
+            this.nodes = nodes;
+            this.groupCount = (int) nodes.stream().filter( node -> node.type == NodeType.GROUP ).count();
+        }
+
+        @Override
+        public int getGroupCount()
+        {
+            return groupCount;
+        }
+
+        @Override
+        public String getLiteralPrefix()
+        {
+            Node first = nodes.isEmpty() ? null : nodes.get( 0 );
+            return first != null && first.type == NodeType.LITERAL ? first.literal : "";
+        }
+
+        @Override
+        protected String[] doMatch( String value )
+        {
+            int[] captures = new int[2 * groupCount];
+            if ( !match( nodes, 0, value, 0, -1, 0, captures ) )
+                return null;
+            if ( groupCount == 0 )
+                return NO_GROUPS;
+
+            String[] groups = new String[groupCount];
+            for ( int i = 0; i < groupCount; i++ )
+                groups[i] = value.substring( captures[2 * i], captures[2 * i + 1] );
+            return groups;
+        }
+
+        /**
+         * Match part of the string against part of the glob.
+         *
+         * @param seq sequence of nodes being matched &ndash; either top-level nodes or alternative of group
+         * @param i index of node in the sequence
+         * @param s string being matched
+         * @param si index in the string
+         * @param groupNode index of top-level group node if {@code seq} is alternative of that group, otherwise -1
+         * @param groupStart index in the string at which current group starts
+         * @param captures start and end indices of captured groups
+         * @return {@code true} iff the rest of the string matches the rest of the glob
+         */
+        private boolean match( List<Node> seq, int i, String s, int si, int groupNode, int groupStart,
+                               int[] captures )
+        {
+            if ( i == seq.size() )
+            {
+                if ( groupNode < 0 )
+                    return si == s.length();
+
+                int group = nodes.get( groupNode ).group - 1;
+                captures[2 * group] = groupStart;
+                captures[2 * group + 1] = si;
+                return match( nodes, groupNode + 1, s, si, -1, 0, captures );
+            }
+
+            Node node = seq.get( i );
+            switch ( node.type )
+            {
+                case LITERAL:
+                    return s.startsWith( node.literal, si )
+                        && match( seq, i + 1, s, si + node.literal.length(), groupNode, groupStart, captures );
+
+                case ANY_CHAR:
+                    return si < s.length() && match( seq, i + 1, s, si + 1, groupNode, groupStart, captures );
+
+                case STAR:
+                    for ( int end = s.length(); end >= si; end-- )
+                    {
+                        if ( match( seq, i + 1, s, end, groupNode, groupStart, captures ) )
+                            return true;
+                    }
+                    return false;
+
+                default:
+                    for ( List<Node> alternative : node.alternatives )
+                    {
+                        if ( match( alternative, 0, s, si, i, si, captures ) )
+                            return true;
+                    }
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Glob which can't be matched without regular expressions.
+     */
+    private static class RegexMatcher
+        extends GlobMatcher
+    {
+        private final String prefix;
+
+        RegexMatcher( String regex, String prefix )
+        {
+            super( regex );
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int getGroupCount()
+        {
+            return getPattern().matcher( "" ).groupCount();
+        }
+
+        @Override
+        public String getLiteralPrefix()
+        {
+            return prefix;
+        }
+
+        @Override
+        protected String[] doMatch( String value )
+        {
+            return matchRegex( value );
+        }
+    }
+}
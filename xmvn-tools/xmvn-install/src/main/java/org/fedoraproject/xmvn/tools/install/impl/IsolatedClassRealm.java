@@ -19,15 +19,15 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * A generic, isolated class loader.
@@ -47,9 +47,61 @@ class IsolatedClassRealm
 
     private final ClassLoader parent;
 
-    private final Set<String> imports = new HashSet<>();
+    /**
+     * Packages containing classes loaded by bootstrap class loader.
+     */
+    private static final Set<String> BOOTSTRAP_PACKAGES =
+        ModuleLayer.boot().modules().stream() //
+                   .filter( module -> module.getClassLoader() == null ) //
+                   .flatMap( module -> module.getPackages().stream() ) //
+                   .collect( Collectors.toSet() );
+
+    /**
+     * Trie of imported package names, one node per character. Both dots and slashes separate package name components.
+     */
+    private static class PackageTrie
+    {
+        private final Map<Character, PackageTrie> children = new HashMap<>();
+
+        private boolean imported;
+
+        private boolean importedAll;
+
+        private PackageTrie add( String packageName )
+        {
+            PackageTrie node = this;
+            for ( int i = 0; i < packageName.length(); i++ )
+                node = node.children.computeIfAbsent( packageName.charAt( i ), c -> new PackageTrie() );
+            return node;
+        }
+
+        private static boolean isSeparator( char c )
+        {
+            return c == '.' || c == '/';
+        }
+
+        /**
+         * Determine whether package which name is formed by first {@code length} characters of {@code name} is
+         * imported, either directly or as subpackage of package imported with all its subpackages.
+         */
+        private boolean isImported( String name, int length )
+        {
+            PackageTrie node = this;
+            for ( int i = 0; i < length; i++ )
+            {
+                char c = name.charAt( i );
+                node = node.children.get( c == '/' ? '.' : c );
+                if ( node == null )
+                    return false;
+                if ( node.importedAll && ( i + 1 == length || isSeparator( name.charAt( i + 1 ) ) ) )
+                    return true;
+            }
 
-    private final Set<String> importsAll = new HashSet<>();
+            return node.imported;
+        }
+    }
+
+    private final PackageTrie imports = new PackageTrie();
 
     public IsolatedClassRealm( ClassLoader parent )
     {
@@ -69,58 +121,26 @@ class IsolatedClassRealm
         }
     }
 
-    public void addJarDirectory( Path dir )
-    {
-        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( dir, "*.jar" ) )
-        {
-            for ( Path path : stream )
-            {
-                addJar( path );
-            }
-        }
-        catch ( IOException e )
-        {
-            throw new RuntimeException( e );
-        }
-    }
-
     public void importPackage( String packageName )
     {
-        imports.add( packageName );
+        imports.add( packageName ).imported = true;
     }
 
     public void importAllPackages( String packageName )
     {
-        importsAll.add( packageName );
+        imports.add( packageName ).importedAll = true;
     }
 
     boolean isImported( String name )
     {
-        int index = name.lastIndexOf( '/' );
+        int length = name.lastIndexOf( '/' );
 
-        if ( index >= 0 )
-        {
-            name = name.replace( '/', '.' );
-        }
-        else
+        if ( length < 0 )
         {
-            index = Math.max( name.lastIndexOf( '.' ), 0 );
+            length = Math.max( name.lastIndexOf( '.' ), 0 );
         }
 
-        String namespace = name.substring( 0, index );
-
-        if ( imports.contains( namespace ) )
-            return true;
-
-        while ( !namespace.isEmpty() )
-        {
-            if ( importsAll.contains( namespace ) )
-                return true;
-
-            namespace = namespace.substring( 0, Math.max( namespace.lastIndexOf( '.' ), 0 ) );
-        }
-
-        return false;
+        return imports.isImported( name, length );
     }
 
     @Override
@@ -142,35 +162,39 @@ class IsolatedClassRealm
             }
             catch ( ClassNotFoundException e )
             {
+                // Imported packages may be split between parent and realm, fall back to loading from realm
             }
         }
 
-        try
-        {
-            return super.loadClass( name, resolve );
-        }
-        catch ( ClassNotFoundException e )
+        // Classes which don't belong to bootstrap packages can't be loaded by bootstrap class loader, so don't even try
+        // to avoid throwing and catching ClassNotFoundException for every class loaded from realm
+        if ( BOOTSTRAP_PACKAGES.contains( name.substring( 0, Math.max( name.lastIndexOf( '.' ), 0 ) ) ) )
         {
+            try
+            {
+                return super.loadClass( name, resolve );
+            }
+            catch ( ClassNotFoundException e )
+            {
+                // Not a JDK class after all, try loading it from realm
+            }
         }
 
         synchronized ( getClassLoadingLock( name ) )
         {
             Class<?> clazz = findLoadedClass( name );
-            if ( clazz != null )
+            if ( clazz == null )
             {
-                return clazz;
+                clazz = super.findClass( name );
             }
 
-            try
+            if ( resolve )
             {
-                return super.findClass( name );
+                resolveClass( clazz );
             }
-            catch ( ClassNotFoundException e )
-            {
-            }
-        }
 
-        throw new ClassNotFoundException( name );
+            return clazz;
+        }
     }
 
     @Override
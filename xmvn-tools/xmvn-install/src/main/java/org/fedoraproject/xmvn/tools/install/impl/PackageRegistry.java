@@ -56,6 +56,7 @@ class PackageRegistry
         {
             Path metadataDir = Paths.get( settings.getMetadataDir() );
             pkg = new JavaPackage( id, basePackageName, metadataDir );
+            pkg.setCompressMetadata( Boolean.TRUE.equals( settings.isCompressMetadata() ) );
             packages.put( id, pkg );
         }
 
@@ -17,6 +17,8 @@ package org.fedoraproject.xmvn.repository.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.nio.file.Paths;
 
@@ -65,4 +67,32 @@ public class JppRepositoryTest
         assertEquals( Paths.get( "my-target/path/aid.baz" ),
                       repo.getPrimaryArtifactPath( artifact2, context2, "my-target/path/aid" ) );
     }
+
+    @Test
+    public void testRepositoryCaching()
+        throws Exception
+    {
+        Configuration configuration = new Configuration();
+        for ( String id : new String[] { "foo", "bar" } )
+        {
+            Repository repository = new Repository();
+            repository.setId( id );
+            repository.setType( "jpp" );
+            configuration.addRepository( repository );
+        }
+
+        Configurator configurator = EasyMock.createMock( Configurator.class );
+        EasyMock.expect( configurator.getConfiguration() ).andReturn( configuration ).once();
+        EasyMock.replay( configurator );
+
+        RepositoryConfigurator repoConfigurator = new DefaultRepositoryConfigurator( configurator );
+        org.fedoraproject.xmvn.repository.Repository foo = repoConfigurator.configureRepository( "foo" );
+        org.fedoraproject.xmvn.repository.Repository bar = repoConfigurator.configureRepository( "bar" );
+        EasyMock.verify( configurator );
+
+        assertNotSame( foo, bar );
+        assertSame( foo, repoConfigurator.configureRepository( "foo" ) );
+        assertSame( bar, repoConfigurator.configureRepository( "bar", "" ) );
+        assertNotSame( foo, repoConfigurator.configureRepository( "foo", "ns" ) );
+    }
 }
@@ -21,14 +21,25 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermission;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -258,6 +269,189 @@ public class JarUtilsTest
         assertFalse( JarUtils.containsNativeCode( nativeMethodJarPath ) );
     }
 
+    /**
+     * Test if single-pass analysis detects native code and injects manifest.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testAnalyzeAndInjectManifest()
+        throws Exception
+    {
+        Artifact artifact = new DefaultArtifact( "org.apache.maven", "maven-model", "xsd", "model", "2.2.1" );
+
+        for ( String name : Arrays.asList( "example", "native-code", "native-method" ) )
+        {
+            Path testResource = Paths.get( "src/test/resources/" + name + ".jar" );
+            Path testJar = workDir.resolve( "analyze-" + name + ".jar" );
+            Files.copy( testResource, testJar, StandardCopyOption.COPY_ATTRIBUTES,
+                        StandardCopyOption.REPLACE_EXISTING );
+
+            boolean expectedNative =
+                JarUtils.usesNativeCode( testResource ) || JarUtils.containsNativeCode( testResource );
+            assertEquals( !name.equals( "example" ), expectedNative );
+            assertEquals( expectedNative, JarUtils.analyzeAndInjectManifest( testJar, artifact ) );
+
+            try ( JarInputStream jis = new JarInputStream( Files.newInputStream( testJar ) ) )
+            {
+                Manifest mf = jis.getManifest();
+                assertNotNull( mf );
+                assertEquals( "maven-model", mf.getMainAttributes().getValue( "JavaPackages-ArtifactId" ) );
+            }
+        }
+    }
+
+    private static long getCentralDirectoryOffset( byte[] zip )
+    {
+        ByteBuffer bb = ByteBuffer.wrap( zip ).order( ByteOrder.LITTLE_ENDIAN );
+        for ( int pos = zip.length - 22; pos >= 0; pos-- )
+        {
+            if ( bb.getInt( pos ) == 0x06054b50 )
+                return bb.getInt( pos + 16 ) & 0xFFFFFFFFL;
+        }
+        throw new IllegalArgumentException( "Not a ZIP file" );
+    }
+
+    private static byte[] readEntry( JarFile jar, JarEntry entry )
+        throws Exception
+    {
+        try ( InputStream is = jar.getInputStream( entry ) )
+        {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for ( int n = is.read( buffer ); n >= 0; n = is.read( buffer ) )
+                bos.write( buffer, 0, n );
+            return bos.toByteArray();
+        }
+    }
+
+    private static void assertInjectedManifest( Manifest mf )
+    {
+        assertNotNull( mf );
+
+        Attributes attr = mf.getMainAttributes();
+        assertNotNull( attr );
+
+        assertEquals( "org.apache.maven", attr.getValue( "JavaPackages-GroupId" ) );
+        assertEquals( "maven-model", attr.getValue( "JavaPackages-ArtifactId" ) );
+        assertEquals( "xsd", attr.getValue( "JavaPackages-Extension" ) );
+        assertEquals( "model", attr.getValue( "JavaPackages-Classifier" ) );
+        assertEquals( "2.2.1", attr.getValue( "JavaPackages-Version" ) );
+    }
+
+    /**
+     * Test if manifest can be appended to JAR without modifying data of existing entries.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testManifestAppend()
+        throws Exception
+    {
+        for ( String name : Arrays.asList( "example", "late-manifest", "recompression-size" ) )
+        {
+            Path testResource = Paths.get( "src/test/resources/" + name + ".jar" );
+            Path testJar = workDir.resolve( "append-" + name + ".jar" );
+            Files.copy( testResource, testJar, StandardCopyOption.COPY_ATTRIBUTES,
+                        StandardCopyOption.REPLACE_EXISTING );
+
+            Artifact artifact = new DefaultArtifact( "org.apache.maven", "maven-model", "xsd", "model", "2.2.1" );
+            JarUtils.injectManifest( testJar, artifact, true );
+
+            byte[] original = Files.readAllBytes( testResource );
+            byte[] appended = Files.readAllBytes( testJar );
+            int dataSize = (int) getCentralDirectoryOffset( original );
+            assertTrue( appended.length > original.length );
+            assertTrue( Arrays.equals( Arrays.copyOf( original, dataSize ), Arrays.copyOf( appended, dataSize ) ) );
+
+            try ( JarFile originalJar = new JarFile( testResource.toFile() );
+                            JarFile appendedJar = new JarFile( testJar.toFile() ) )
+            {
+                assertInjectedManifest( appendedJar.getManifest() );
+
+                Enumeration<JarEntry> originalEntries = originalJar.entries();
+                Enumeration<JarEntry> appendedEntries = appendedJar.entries();
+                for ( JarEntry originalEntry : Collections.list( originalEntries ) )
+                {
+                    JarEntry appendedEntry = appendedEntries.nextElement();
+                    assertEquals( originalEntry.getName(), appendedEntry.getName() );
+                    if ( !originalEntry.getName().equals( "META-INF/MANIFEST.MF" ) )
+                        assertTrue( Arrays.equals( readEntry( originalJar, originalEntry ),
+                                                   readEntry( appendedJar, appendedEntry ) ) );
+                }
+                assertFalse( appendedEntries.hasMoreElements() );
+            }
+        }
+    }
+
+    /**
+     * Test if appending manifest produces byte-for-byte identical results, independent of current time.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testManifestAppendReproducible()
+        throws Exception
+    {
+        Path testResource = Paths.get( "src/test/resources/example.jar" );
+        Path testJar1 = workDir.resolve( "reproducible1.jar" );
+        Path testJar2 = workDir.resolve( "reproducible2.jar" );
+        Files.copy( testResource, testJar1, StandardCopyOption.REPLACE_EXISTING );
+        Files.copy( testResource, testJar2, StandardCopyOption.REPLACE_EXISTING );
+        // Timestamps differ by more than the 2-second resolution of ZIP entry times
+        Files.setLastModifiedTime( testJar1, FileTime.from( Instant.parse( "2000-01-01T00:00:00Z" ) ) );
+        Files.setLastModifiedTime( testJar2, FileTime.from( Instant.parse( "2020-01-01T00:00:00Z" ) ) );
+
+        Artifact artifact = new DefaultArtifact( "org.apache.maven", "maven-model", "xsd", "model", "2.2.1" );
+        JarUtils.injectManifest( testJar1, artifact, true );
+        JarUtils.injectManifest( testJar2, artifact, true );
+
+        assertTrue( Arrays.equals( Files.readAllBytes( testJar1 ), Files.readAllBytes( testJar2 ) ) );
+
+        try ( JarFile jar1 = new JarFile( testJar1.toFile() ); JarFile jar2 = new JarFile( testResource.toFile() ) )
+        {
+            assertEquals( jar2.getEntry( "META-INF/MANIFEST.MF" ).getTime(),
+                          jar1.getEntry( "META-INF/MANIFEST.MF" ).getTime() );
+        }
+    }
+
+    /**
+     * Test if appending manifest falls back to rewriting JAR when manifest is duplicated or JAR is signed.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testManifestAppendFallback()
+        throws Exception
+    {
+        Path signedJar = workDir.resolve( "signed.jar" );
+        Manifest signedManifest = new Manifest();
+        signedManifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        try ( JarOutputStream jos = new JarOutputStream( Files.newOutputStream( signedJar ), signedManifest ) )
+        {
+            jos.putNextEntry( new JarEntry( "META-INF/SIGNER.SF" ) );
+            jos.write( "Signature-Version: 1.0\r\n".getBytes( "UTF-8" ) );
+            jos.closeEntry();
+        }
+
+        Path duplicateJar = workDir.resolve( "duplicate-append.jar" );
+        Files.copy( Paths.get( "src/test/resources/duplicate-manifest.jar" ), duplicateJar,
+                    StandardCopyOption.REPLACE_EXISTING );
+
+        Artifact artifact = new DefaultArtifact( "org.apache.maven", "maven-model", "xsd", "model", "2.2.1" );
+
+        for ( Path testJar : Arrays.asList( signedJar, duplicateJar ) )
+        {
+            JarUtils.injectManifest( testJar, artifact, true );
+
+            // Rewritten JAR has manifest as the first entry, so it is visible to sequential readers
+            try ( JarInputStream jis = new JarInputStream( Files.newInputStream( testJar ) ) )
+            {
+                assertInjectedManifest( jis.getManifest() );
+            }
+        }
+    }
+
     /**
      * Test if any of utility functions throws exception when trying to access invalid JAR file.
      * 
@@ -280,5 +474,11 @@ public class JarUtilsTest
 
         assertFalse( JarUtils.usesNativeCode( testResource ) );
         assertFalse( JarUtils.containsNativeCode( testResource ) );
+
+        assertFalse( JarUtils.analyzeAndInjectManifest( testJar, artifact ) );
+        assertTrue( Arrays.equals( testResourceContent, Files.readAllBytes( testJar ) ) );
+
+        JarUtils.injectManifest( testJar, artifact, true );
+        assertTrue( Arrays.equals( testResourceContent, Files.readAllBytes( testJar ) ) );
     }
 }
@@ -17,6 +17,7 @@ package org.fedoraproject.xmvn.tools.install.condition;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
@@ -83,4 +84,50 @@ public class BooleanExpressionTest
         BooleanExpression xyzzyDefined = new Defined( "xyzzy" );
         assertFalse( xyzzyDefined.getValue( context ) );
     }
+
+    @Test
+    public void testOptimization()
+    {
+        Artifact artifact = new DefaultArtifact( "foo", "bar" );
+        ArtifactContext context = new ArtifactContext( artifact );
+
+        BooleanExpression trueExpression = new BooleanLiteral( true );
+        BooleanExpression falseExpression = new BooleanLiteral( false );
+        BooleanExpression fooDefined = new Defined( "foo" );
+
+        BooleanExpression andExpression = new And( Arrays.asList( trueExpression, fooDefined ) ).optimize();
+        assertSame( fooDefined, andExpression );
+
+        BooleanExpression orExpression = new Or( Arrays.asList( fooDefined, trueExpression ) ).optimize();
+        assertTrue( orExpression.isConstant() );
+        assertTrue( orExpression.getValue( context ) );
+
+        BooleanExpression xorExpression =
+            new Xor( Arrays.asList( trueExpression, new Not( fooDefined ), falseExpression ) ).optimize();
+        assertSame( fooDefined, xorExpression );
+
+        BooleanExpression nestedExpression =
+            new And( Arrays.asList( fooDefined, new And( Arrays.asList( fooDefined, fooDefined ) ) ) ).optimize();
+        assertFalse( nestedExpression.getValue( context ) );
+    }
+
+    @Test
+    public void testShortCircuit()
+    {
+        Artifact artifact = new DefaultArtifact( "foo", "bar" );
+        ArtifactContext context = new ArtifactContext( artifact );
+
+        BooleanExpression failingExpression = new BooleanExpression()
+        {
+            @Override
+            public boolean getValue( ArtifactContext ctx )
+            {
+                throw new IllegalStateException( "Operand should not have been evaluated" );
+            }
+        };
+
+        BooleanExpression fooDefined = new Defined( "foo" );
+        assertFalse( new And( Arrays.asList( fooDefined, failingExpression ) ).getValue( context ) );
+        assertTrue( new Or( Arrays.asList( new Not( fooDefined ), failingExpression ) ).getValue( context ) );
+    }
 }
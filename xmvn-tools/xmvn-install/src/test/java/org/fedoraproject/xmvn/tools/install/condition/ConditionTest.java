@@ -154,6 +154,37 @@ public class ConditionTest
         assertTrue( cond.getValue( context2 ) );
     }
 
+    /**
+     * Test if constant subexpressions are folded without affecting value of the condition.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testConstantFolding()
+        throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "<filter>" );
+        sb.append( "  <and>" );
+        sb.append( "    <not>" );
+        sb.append( "      <false/>" );
+        sb.append( "    </not>" );
+        sb.append( "    <equals>" );
+        sb.append( "      <string>foo</string>" );
+        sb.append( "      <string>foo</string>" );
+        sb.append( "    </equals>" );
+        sb.append( "    <xor>" );
+        sb.append( "      <true/>" );
+        sb.append( "      <defined>native</defined>" );
+        sb.append( "    </xor>" );
+        sb.append( "  </and>" );
+        sb.append( "</filter>" );
+
+        Condition cond = new Condition( buildDom( sb ) );
+        assertTrue( cond.getValue( context1 ) );
+        assertFalse( cond.getValue( context2 ) );
+    }
+
     /**
      * Test if syntax errors are caught by AST walker.
      * 
@@ -0,0 +1,256 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.tools.install.BuildrootMaterializer;
+import org.fedoraproject.xmvn.tools.install.Directory;
+import org.fedoraproject.xmvn.tools.install.FileCopier;
+import org.fedoraproject.xmvn.tools.install.HardLink;
+import org.fedoraproject.xmvn.tools.install.Package;
+import org.fedoraproject.xmvn.tools.install.RegularFile;
+import org.fedoraproject.xmvn.tools.install.SymbolicLink;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class BuildrootMaterializerTest
+    extends AbstractFileTest
+{
+    private final Path jar = getResource( "example.jar" );
+
+    private void materialize( Package... packages )
+        throws Exception
+    {
+        new BuildrootMaterializer( installRoot, new FileCopier( FileCopier.Strategy.COPY ),
+                                   4 ).install( Arrays.asList( packages ) );
+    }
+
+    private void materializeIncrementally( Package... packages )
+        throws Exception
+    {
+        materializeIncrementally( installRoot, packages );
+    }
+
+    private void materializeIncrementally( Path root, Package... packages )
+        throws Exception
+    {
+        new BuildrootMaterializer( root, new FileCopier( FileCopier.Strategy.COPY ),
+                                   4 ).install( Arrays.asList( packages ), workdir.resolve( "manifest" ) );
+    }
+
+    private Object fileKey( String path )
+        throws Exception
+    {
+        return Files.readAttributes( installRoot.resolve( path ), BasicFileAttributes.class,
+                                     LinkOption.NOFOLLOW_LINKS ).fileKey();
+    }
+
+    @Test
+    public void testMultiplePackages()
+        throws Exception
+    {
+        Package main = new Package( "" );
+        main.addFile( new Directory( Paths.get( "usr/share/java/foo" ) ) );
+        main.addFile( new RegularFile( Paths.get( "usr/share/java/foo/foo.jar" ), jar ) );
+        main.addFile( new SymbolicLink( Paths.get( "usr/share/java/foo.jar" ), Paths.get( "foo/foo.jar" ) ) );
+        Package sub = new Package( "sub" );
+        sub.addFile( new HardLink( Paths.get( "usr/lib/java/bar.jar" ), Paths.get( "usr/share/java/foo/foo.jar" ) ) );
+        sub.addFile( new RegularFile( Paths.get( "usr/share/doc/bar/README" ), new byte[] { 'b', 'a', 'r' } ) );
+
+        materialize( main, sub );
+
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "D /usr/share/java/foo",
+                                  "F /usr/share/java/foo/foo.jar", "L /usr/share/java/foo.jar", "D /usr/lib",
+                                  "D /usr/lib/java", "F /usr/lib/java/bar.jar", "D /usr/share/doc",
+                                  "D /usr/share/doc/bar", "F /usr/share/doc/bar/README" );
+        assertFilesEqual( jar, installRoot.resolve( "usr/share/java/foo.jar" ) );
+        assertTrue( Files.isSameFile( installRoot.resolve( "usr/share/java/foo/foo.jar" ),
+                                      installRoot.resolve( "usr/lib/java/bar.jar" ) ) );
+    }
+
+    @Test
+    public void testManyFiles()
+        throws Exception
+    {
+        List<String> expected = new ArrayList<>();
+        Package pkg = new Package( "javadoc" );
+        expected.add( "D /api" );
+        for ( int i = 0; i < 10; i++ )
+        {
+            expected.add( "D /api/p" + i );
+            for ( int j = 0; j < 50; j++ )
+            {
+                byte[] content = ( i + "/" + j ).getBytes();
+                pkg.addFile( new RegularFile( Paths.get( "api/p" + i + "/C" + j + ".html" ), content ) );
+                expected.add( "F /api/p" + i + "/C" + j + ".html" );
+            }
+        }
+
+        materialize( pkg );
+
+        assertDirectoryStructure( expected.toArray( new String[0] ) );
+        assertTrue( Arrays.equals( "7/42".getBytes(), Files.readAllBytes( installRoot.resolve( "api/p7/C42.html" ) ) ) );
+    }
+
+    @Test
+    public void testConflictingFiles()
+        throws Exception
+    {
+        Package pkg1 = new Package( "" );
+        pkg1.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        Package pkg2 = new Package( "sub" );
+        pkg2.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+
+        assertThrows( FileAlreadyExistsException.class, () -> materialize( pkg1, pkg2 ) );
+    }
+
+    @Test
+    public void testInstallRootIsFile()
+        throws Exception
+    {
+        Files.delete( installRoot );
+        Files.createFile( installRoot );
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+
+        assertThrows( IOException.class, () -> materialize( pkg ) );
+    }
+
+    @Test
+    public void testIncrementalUnchanged()
+        throws Exception
+    {
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/maven-metadata/foo.xml" ), new byte[] { 'x' } ) );
+        pkg.addFile( new SymbolicLink( Paths.get( "usr/share/java/bar.jar" ), Paths.get( "foo.jar" ) ) );
+
+        materializeIncrementally( pkg );
+        Object jarKey = fileKey( "usr/share/java/foo.jar" );
+        Object xmlKey = fileKey( "usr/share/maven-metadata/foo.xml" );
+        Object linkKey = fileKey( "usr/share/java/bar.jar" );
+
+        // Re-installation of the same packages doesn't touch any files
+        materializeIncrementally( pkg );
+        assertEquals( jarKey, fileKey( "usr/share/java/foo.jar" ) );
+        assertEquals( xmlKey, fileKey( "usr/share/maven-metadata/foo.xml" ) );
+        assertEquals( linkKey, fileKey( "usr/share/java/bar.jar" ) );
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foo.jar",
+                                  "L /usr/share/java/bar.jar", "D /usr/share/maven-metadata",
+                                  "F /usr/share/maven-metadata/foo.xml" );
+    }
+
+    @Test
+    public void testIncrementalChanged()
+        throws Exception
+    {
+        Path source = workdir.resolve( "foo.jar" );
+        Files.copy( jar, source );
+
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), source ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/maven-metadata/foo.xml" ), new byte[] { 'x' } ) );
+        pkg.addFile( new HardLink( Paths.get( "usr/share/java/bar.jar" ), Paths.get( "usr/share/java/foo.jar" ) ) );
+        materializeIncrementally( pkg );
+
+        Files.write( source, new byte[] { 'n', 'e', 'w' } );
+        Package changed = new Package( "" );
+        changed.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), source ) );
+        changed.addFile( new RegularFile( Paths.get( "usr/share/maven-metadata/foo.xml" ), new byte[] { 'y' } ) );
+        changed.addFile( new HardLink( Paths.get( "usr/share/java/bar.jar" ),
+                                       Paths.get( "usr/share/java/foo.jar" ) ) );
+        materializeIncrementally( changed );
+
+        assertFilesEqual( source, installRoot.resolve( "usr/share/java/foo.jar" ) );
+        assertTrue( Files.isSameFile( installRoot.resolve( "usr/share/java/foo.jar" ),
+                                      installRoot.resolve( "usr/share/java/bar.jar" ) ) );
+        assertTrue( Arrays.equals( new byte[] { 'y' },
+                                   Files.readAllBytes( installRoot.resolve( "usr/share/maven-metadata/foo.xml" ) ) ) );
+    }
+
+    @Test
+    public void testIncrementalRemoved()
+        throws Exception
+    {
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        pkg.addFile( new Directory( Paths.get( "usr/share/java/bar" ) ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/bar/bar.jar" ), jar ) );
+        materializeIncrementally( pkg );
+
+        Package smaller = new Package( "" );
+        smaller.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        materializeIncrementally( smaller );
+
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foo.jar" );
+    }
+
+    @Test
+    public void testIncrementalMissing()
+        throws Exception
+    {
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        materializeIncrementally( pkg );
+
+        // Files missing from installation root are installed again, even if they didn't change
+        Files.delete( installRoot.resolve( "usr/share/java/foo.jar" ) );
+        materializeIncrementally( pkg );
+
+        assertFilesEqual( jar, installRoot.resolve( "usr/share/java/foo.jar" ) );
+    }
+
+    @Test
+    public void testIncrementalDifferentRoot()
+        throws Exception
+    {
+        Path otherRoot = workdir.resolve( "other-root" );
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/bar.jar" ), jar ) );
+        materializeIncrementally( otherRoot, pkg );
+
+        // Files present in installation root, but not installed by previous run, must be replaced or left intact
+        Files.createDirectories( installRoot.resolve( "usr/share/java" ) );
+        Files.write( installRoot.resolve( "usr/share/java/foo.jar" ), new byte[] { 'x' } );
+        Files.write( installRoot.resolve( "usr/share/java/bar.jar" ), new byte[] { 'x' } );
+        Package smaller = new Package( "" );
+        smaller.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        materializeIncrementally( smaller );
+
+        assertFilesEqual( jar, installRoot.resolve( "usr/share/java/foo.jar" ) );
+        assertTrue( Arrays.equals( new byte[] { 'x' },
+                                   Files.readAllBytes( installRoot.resolve( "usr/share/java/bar.jar" ) ) ) );
+        assertFilesEqual( jar, otherRoot.resolve( "usr/share/java/bar.jar" ) );
+    }
+}
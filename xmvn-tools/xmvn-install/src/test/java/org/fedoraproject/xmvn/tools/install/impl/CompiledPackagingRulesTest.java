@@ -0,0 +1,228 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.config.Artifact;
+import org.fedoraproject.xmvn.config.PackagingRule;
+
+/**
+ * Compares effective packaging rules created from compiled rules with effective rules created by straightforward
+ * matching of every rule against every artifact.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class CompiledPackagingRulesTest
+{
+    private static Artifact glob( String groupId, String artifactId, String version )
+    {
+        Artifact glob = new Artifact();
+        glob.setGroupId( groupId );
+        glob.setArtifactId( artifactId );
+        glob.setVersion( version );
+        return glob;
+    }
+
+    private static PackagingRule rule( Artifact glob, String targetPackage, String file, String alias )
+    {
+        PackagingRule rule = new PackagingRule();
+        rule.setArtifactGlob( glob );
+        rule.setTargetPackage( targetPackage );
+        if ( file != null )
+            rule.addFile( file );
+        if ( alias != null )
+        {
+            String[] coords = alias.split( ":", -1 );
+            Artifact aliasArtifact = new Artifact();
+            aliasArtifact.setGroupId( coords[0] );
+            aliasArtifact.setArtifactId( coords[1] );
+            rule.addAlias( aliasArtifact );
+        }
+        return rule;
+    }
+
+    private static List<PackagingRule> createRules()
+    {
+        List<PackagingRule> rules = new ArrayList<>();
+        rules.add( rule( glob( "org.apache.maven", "maven-core", "" ), "core", null, null ) );
+        rules.add( rule( glob( "org.apache.*", "{*}", "" ), "apache-@1", "apache/@1", null ) );
+        rules.add( rule( glob( "org.{apache,codehaus}.{*}", "*", "" ), "@2", null, "@1:@2" ) );
+        rules.add( rule( glob( "", "{sisu,guice}-{*}", "" ), "@1", "@1/@2", ":@2-alias" ) );
+        rules.add( rule( glob( "com.example", "", "1.?" ), "", null, "org.example:" ) );
+        rules.add( rule( glob( "com.example.[a-z]*", "", "" ), "example-class", null, null ) );
+        rules.add( rule( glob( "org\\.apache\\*", "", "" ), "escaped", null, null ) );
+        rules.add( rule( glob( "org.apache.maven", "maven-{*}", "{*}" ), "", "maven-@1-@2", null ) );
+        rules.add( rule( glob( "*", "", "" ), "fallback", "@1", null ) );
+        rules.add( rule( glob( "org.codehaus.plexus", "", "" ), "plexus", null, null ) );
+        return rules;
+    }
+
+    private static List<String[]> createArtifacts()
+    {
+        List<String[]> artifacts = new ArrayList<>();
+        for ( String groupId : Arrays.asList( "org.apache.maven", "org.apache.maven.plugins", "org.codehaus.plexus",
+                                              "com.example", "com.example.abc", "org.sonatype.sisu",
+                                              "org.apache*", "org", "" ) )
+        {
+            for ( String artifactId : Arrays.asList( "maven-core", "maven-model", "sisu-inject", "guice-core",
+                                                     "plexus-utils", "x" ) )
+            {
+                for ( String version : Arrays.asList( "1.0", "1.10", "SYSTEM" ) )
+                    artifacts.add( new String[] { groupId, artifactId, version } );
+            }
+        }
+        return artifacts;
+    }
+
+    private static String toString( Artifact artifact )
+    {
+        return artifact.getStereotype() + "/" + artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+            + artifact.getExtension() + ":" + artifact.getClassifier() + ":" + artifact.getVersion();
+    }
+
+    private static String describe( PackagingRule rule )
+    {
+        return "target=" + rule.getTargetPackage() + " files=" + rule.getFiles() + " versions=" + rule.getVersions()
+            + " aliases="
+            + rule.getAliases().stream().map( CompiledPackagingRulesTest::toString ).collect( Collectors.toList() );
+    }
+
+    private static String expand( List<Matcher> matchers, String result )
+    {
+        int group = 1;
+        for ( Matcher matcher : matchers )
+        {
+            for ( int i = 1; i <= matcher.groupCount(); i++, group++ )
+                result = result.replace( "@" + group, matcher.group( i ) );
+        }
+        return result.trim();
+    }
+
+    private static String expandAliasField( List<Matcher> matchers, String value )
+    {
+        int group = 1;
+        for ( Matcher matcher : matchers )
+        {
+            for ( int i = 1; i <= matcher.groupCount(); i++, group++ )
+                value = Pattern.compile( "@" + group ).matcher( value ).replaceAll( matcher.group( i ) );
+        }
+        return value;
+    }
+
+    /**
+     * Reference implementation which matches every rule against the artifact, compiling all patterns every time.
+     */
+    private static String referenceRule( List<PackagingRule> rules, String groupId, String artifactId,
+                                         String version )
+    {
+        PackagingRule result = new PackagingRule();
+
+        for ( PackagingRule rule : rules )
+        {
+            Artifact glob = rule.getArtifactGlob();
+            List<Matcher> matchers = new ArrayList<>();
+            String[] globs = { glob.getStereotype(), glob.getGroupId(), glob.getArtifactId(), glob.getExtension(),
+                glob.getClassifier(), glob.getVersion() };
+            String[] values = { "", groupId, artifactId, "jar", "", version };
+            for ( int i = 0; i < globs.length; i++ )
+            {
+                Pattern pattern = GlobUtils.glob2pattern( globs[i] );
+                if ( pattern != null )
+                    matchers.add( pattern.matcher( values[i] ) );
+            }
+            if ( !matchers.stream().allMatch( Matcher::matches ) )
+                continue;
+
+            if ( ( result.getTargetPackage() == null || result.getTargetPackage().isEmpty() )
+                && rule.getTargetPackage() != null && !rule.getTargetPackage().isEmpty() )
+                result.setTargetPackage( expand( matchers, rule.getTargetPackage() ) );
+
+            for ( Artifact alias : rule.getAliases() )
+            {
+                Artifact expanded = new Artifact();
+                expanded.setGroupId( expandAliasField( matchers, alias.getGroupId() ) );
+                expanded.setArtifactId( expandAliasField( matchers, alias.getArtifactId() ) );
+                expanded.setExtension( expandAliasField( matchers, alias.getExtension() ) );
+                expanded.setClassifier( expandAliasField( matchers, alias.getClassifier() ) );
+                expanded.setVersion( expandAliasField( matchers, alias.getVersion() ) );
+                if ( expanded.getGroupId().isEmpty() )
+                    expanded.setGroupId( groupId );
+                if ( expanded.getArtifactId().isEmpty() )
+                    expanded.setArtifactId( artifactId );
+                if ( expanded.getExtension().isEmpty() )
+                    expanded.setExtension( "jar" );
+                if ( expanded.getVersion().isEmpty() )
+                    expanded.setVersion( version );
+                result.addAlias( expanded );
+            }
+
+            for ( String file : rule.getFiles() )
+            {
+                String expanded = expand( matchers, file );
+                if ( !result.getFiles().contains( expanded ) )
+                    result.addFile( expanded );
+            }
+        }
+
+        return describe( result );
+    }
+
+    @Test
+    public void testEquivalence()
+        throws Exception
+    {
+        List<PackagingRule> rules = createRules();
+        CompiledPackagingRules compiledRules = new CompiledPackagingRules( rules );
+
+        for ( String[] coords : createArtifacts() )
+        {
+            String expected = referenceRule( rules, coords[0], coords[1], coords[2] );
+            PackagingRule effectiveRule =
+                new EffectivePackagingRule( compiledRules, coords[0], coords[1], "jar", "", coords[2] );
+            assertEquals( expected, describe( effectiveRule ), String.join( ":", coords ) );
+        }
+    }
+
+    @Test
+    public void testCandidateRulesOrder()
+        throws Exception
+    {
+        List<PackagingRule> rules = createRules();
+        CompiledPackagingRules compiledRules = new CompiledPackagingRules( rules );
+
+        List<PackagingRule> candidates = compiledRules.getCandidateRules( "org.apache.maven" ).stream() //
+                                                      .map( CompiledPackagingRules.CompiledRule::getRule ) //
+                                                      .collect( Collectors.toList() );
+        assertEquals( Arrays.asList( rules.get( 0 ), rules.get( 1 ), rules.get( 2 ), rules.get( 3 ), rules.get( 7 ),
+                                     rules.get( 8 ) ),
+                      candidates );
+
+        candidates = compiledRules.getCandidateRules( "com.example" ).stream() //
+                                  .map( CompiledPackagingRules.CompiledRule::getRule ) //
+                                  .collect( Collectors.toList() );
+        assertEquals( Arrays.asList( rules.get( 3 ), rules.get( 4 ), rules.get( 8 ) ), candidates );
+    }
+}
@@ -0,0 +1,145 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.tools.install.Directory;
+import org.fedoraproject.xmvn.tools.install.FileCopier;
+import org.fedoraproject.xmvn.tools.install.FileCopier.Strategy;
+import org.fedoraproject.xmvn.tools.install.RegularFile;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class FileCopierTest
+    extends AbstractFileTest
+{
+    private Path createSource( int size )
+        throws Exception
+    {
+        byte[] content = new byte[size];
+        new Random( size ).nextBytes( content );
+        Path source = workdir.resolve( "source" );
+        Files.write( source, content );
+        Files.setPosixFilePermissions( source, PosixFilePermissions.fromString( "rwxr-x---" ) );
+        return source;
+    }
+
+    private void testStrategy( Strategy strategy, int size )
+        throws Exception
+    {
+        Path source = createSource( size );
+        Path target = installRoot.resolve( "target" );
+        new FileCopier( strategy ).copy( source, target );
+        assertArrayEquals( Files.readAllBytes( source ), Files.readAllBytes( target ) );
+        assertEquals( Files.getPosixFilePermissions( source ), Files.getPosixFilePermissions( target ) );
+    }
+
+    @Test
+    public void testCopy()
+        throws Exception
+    {
+        testStrategy( Strategy.COPY, 1000 );
+        assertEquals( 1, Files.getAttribute( installRoot.resolve( "target" ), "unix:nlink" ) );
+    }
+
+    @Test
+    public void testCopyEmpty()
+        throws Exception
+    {
+        testStrategy( Strategy.COPY, 0 );
+    }
+
+    @Test
+    public void testReflink()
+        throws Exception
+    {
+        // Falls back to copying on filesystems without reflink support
+        testStrategy( Strategy.REFLINK, 1024 * 1024 );
+        assertEquals( 1, Files.getAttribute( installRoot.resolve( "target" ), "unix:nlink" ) );
+    }
+
+    @Test
+    public void testAuto()
+        throws Exception
+    {
+        Path source = createSource( 1024 * 1024 );
+        Path target = installRoot.resolve( "target" );
+        FileCopier copier = new FileCopier( Strategy.AUTO );
+        copier.copy( source, target );
+        assertArrayEquals( Files.readAllBytes( source ), Files.readAllBytes( target ) );
+        assertFalse( Files.isSameFile( source, target ) );
+        // Reflinks must be explicitly requested
+        assertEquals( 1024 * 1024, copier.getBytesCopied() );
+        assertEquals( 0, copier.getBytesCloned() );
+    }
+
+    @Test
+    public void testHardlink()
+        throws Exception
+    {
+        testStrategy( Strategy.HARDLINK, 1000 );
+        assertEquals( 2, Files.getAttribute( installRoot.resolve( "target" ), "unix:nlink" ) );
+    }
+
+    @Test
+    public void testTargetExists()
+        throws Exception
+    {
+        Path source = createSource( 10 );
+        Path target = installRoot.resolve( "target" );
+        Files.createFile( target );
+        for ( Strategy strategy : Strategy.values() )
+            assertThrows( FileAlreadyExistsException.class, () -> new FileCopier( strategy ).copy( source, target ) );
+    }
+
+    @Test
+    public void testRegularFileInstallation()
+        throws Exception
+    {
+        Path jar = getResource( "example.jar" );
+        FileCopier copier = new FileCopier( Strategy.AUTO );
+        new Directory( Paths.get( "usr/share/java" ) ).install( installRoot, copier );
+        new RegularFile( Paths.get( "usr/share/java/foobar.jar" ), jar ).install( installRoot, copier );
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foobar.jar" );
+        assertFilesEqual( jar, installRoot.resolve( Paths.get( "usr/share/java/foobar.jar" ) ) );
+    }
+
+    @Test
+    public void testStrategyFromString()
+        throws Exception
+    {
+        assertEquals( Strategy.AUTO, Strategy.fromString( null ) );
+        assertEquals( Strategy.AUTO, Strategy.fromString( "" ) );
+        assertEquals( Strategy.COPY, Strategy.fromString( "copy" ) );
+        assertEquals( Strategy.REFLINK, Strategy.fromString( " Reflink " ) );
+        assertEquals( Strategy.HARDLINK, Strategy.fromString( "HARDLINK" ) );
+        assertThrows( IllegalArgumentException.class, () -> Strategy.fromString( "symlink" ) );
+    }
+}
@@ -0,0 +1,136 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.tools.install.Package;
+import org.fedoraproject.xmvn.tools.install.RegularFile;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class FileDeduplicatorTest
+    extends AbstractFileTest
+{
+    private final Path jar = getResource( "example.jar" );
+
+    private Path copyOf( Path source, String name )
+        throws Exception
+    {
+        Path copy = workdir.resolve( name );
+        Files.copy( source, copy );
+        return copy;
+    }
+
+    @Test
+    public void testSamePackage()
+        throws Exception
+    {
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/bar/bar.jar" ), copyOf( jar, "bar.jar" ) ) );
+
+        new FileDeduplicator().deduplicate( Arrays.asList( pkg ) );
+
+        pkg.install( installRoot );
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "D /usr/share/java/bar",
+                                  "F /usr/share/java/foo.jar", "L /usr/share/java/bar/bar.jar" );
+        assertEquals( Paths.get( "../foo.jar" ),
+                      Files.readSymbolicLink( installRoot.resolve( "usr/share/java/bar/bar.jar" ) ) );
+        assertFilesEqual( jar, installRoot.resolve( "usr/share/java/bar/bar.jar" ) );
+        assertDescriptorEquals( pkg, "%attr(0644,root,root) /usr/share/java/foo.jar", "/usr/share/java/bar/bar.jar" );
+    }
+
+    @Test
+    public void testDifferentPackages()
+        throws Exception
+    {
+        Package pkg1 = new Package( "" );
+        pkg1.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        Package pkg2 = new Package( "sub" );
+        pkg2.addFile( new RegularFile( Paths.get( "usr/share/java/bar.jar" ), jar ) );
+
+        new FileDeduplicator().deduplicate( Arrays.asList( pkg1, pkg2 ) );
+
+        pkg1.install( installRoot );
+        pkg2.install( installRoot );
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foo.jar",
+                                  "F /usr/share/java/bar.jar" );
+        assertTrue( Files.isSameFile( installRoot.resolve( "usr/share/java/foo.jar" ),
+                                      installRoot.resolve( "usr/share/java/bar.jar" ) ) );
+        assertDescriptorEquals( pkg2, "%attr(0644,root,root) /usr/share/java/bar.jar" );
+    }
+
+    @Test
+    public void testDifferentContents()
+        throws Exception
+    {
+        Path other = workdir.resolve( "other.jar" );
+        byte[] content = Files.readAllBytes( jar );
+        content[content.length / 2]++;
+        Files.write( other, content );
+
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/bar.jar" ), other ) );
+
+        new FileDeduplicator().deduplicate( Arrays.asList( pkg ) );
+
+        pkg.install( installRoot );
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foo.jar",
+                                  "F /usr/share/java/bar.jar" );
+        assertFilesEqual( other, installRoot.resolve( "usr/share/java/bar.jar" ) );
+    }
+
+    @Test
+    public void testDifferentAccessModes()
+        throws Exception
+    {
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foo.jar" ), jar ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/bar.jar" ), jar, 0755 ) );
+
+        new FileDeduplicator().deduplicate( Arrays.asList( pkg ) );
+
+        pkg.install( installRoot );
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foo.jar",
+                                  "F /usr/share/java/bar.jar" );
+    }
+
+    @Test
+    public void testOrderPreserved()
+        throws Exception
+    {
+        Package pkg = new Package( "" );
+        pkg.addFile( new RegularFile( Paths.get( "a.jar" ), jar ) );
+        pkg.addFile( new RegularFile( Paths.get( "b.jar" ), jar ) );
+        pkg.addFile( new RegularFile( Paths.get( "c.txt" ), new byte[] { 1, 2, 3 } ) );
+
+        new FileDeduplicator().deduplicate( Arrays.asList( pkg ) );
+
+        assertEquals( Arrays.asList( "%attr(0644,root,root) /a.jar", "/b.jar", "%attr(0644,root,root) /c.txt" ),
+                      Arrays.asList( pkg.getFiles().stream().map( f -> f.getDescriptor() ).toArray() ) );
+    }
+}
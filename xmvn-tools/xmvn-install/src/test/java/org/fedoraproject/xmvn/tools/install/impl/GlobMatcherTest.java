@@ -0,0 +1,116 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class GlobMatcherTest
+{
+    private static final List<String> GLOBS =
+        Arrays.asList( "org.apache.maven", "*", "org.apache.*", "*-plugin", "{maven,plexus}-*", "maven-?ore",
+                       "org.{apache,codehaus}.*", "{*}", "{*}-{*}", "{sisu,guice}-{*}", "a*b*c", "{a,ab}{b,}c",
+                       "{}x", "{,maven}", "foo}bar,baz", "org\\.apache\\*", "\\{a\\}", "[a-z]*", "^maven$",
+                       "{a,{b,c}}", "???", "*{-core,}" );
+
+    private static final List<String> SUBJECTS =
+        Arrays.asList( "", "org.apache.maven", "org.apache.maven.plugins", "org.codehaus.plexus", "maven-core",
+                       "plexus-utils", "maven-plugin", "sisu-inject-plexus", "guice-core", "abc", "abbc", "aXbYc",
+                       "abcbc", "x", "maven", "foo}bar,baz", "org.apache*", "{a}", "b", "c", "a[b", "abc-core", "a\\b",
+                       "line\nbreak", "maven-\uD83D\uDE00ore", "\u2028 \u2029" );
+
+    private static String[] regexMatch( Pattern pattern, String subject )
+    {
+        Matcher matcher = pattern.matcher( subject );
+        if ( !matcher.matches() )
+            return null;
+
+        String[] groups = new String[matcher.groupCount()];
+        for ( int i = 0; i < groups.length; i++ )
+            groups[i] = matcher.group( i + 1 );
+        return groups;
+    }
+
+    @Test
+    public void testEquivalenceWithRegex()
+        throws Exception
+    {
+        for ( String glob : GLOBS )
+        {
+            Pattern pattern = GlobUtils.glob2pattern( glob );
+            GlobMatcher matcher = GlobMatcher.compile( glob );
+            assertEquals( pattern.matcher( "" ).groupCount(), matcher.getGroupCount(), glob );
+
+            for ( String subject : SUBJECTS )
+            {
+                String message = glob + " ~ " + subject;
+                assertArrayEquals( regexMatch( pattern, subject ), matcher.match( subject ), message );
+                assertEquals( pattern.matcher( subject ).matches(), matcher.matches( subject ), message );
+                if ( matcher.matches( subject ) )
+                    assertTrue( subject.startsWith( matcher.getLiteralPrefix() ), message );
+            }
+        }
+    }
+
+    @Test
+    public void testCaptureGroups()
+        throws Exception
+    {
+        GlobMatcher matcher = GlobMatcher.compile( "{sisu,guice}-{*}" );
+        assertArrayEquals( new String[] { "sisu", "inject-plexus" }, matcher.match( "sisu-inject-plexus" ) );
+        assertNull( matcher.match( "maven-core" ) );
+        assertEquals( "", matcher.getLiteralPrefix() );
+
+        matcher = GlobMatcher.compile( "org.{apache,codehaus}.{*}" );
+        assertArrayEquals( new String[] { "codehaus", "plexus" }, matcher.match( "org.codehaus.plexus" ) );
+        assertEquals( "org.", matcher.getLiteralPrefix() );
+    }
+
+    @Test
+    public void testSimpleShapes()
+        throws Exception
+    {
+        assertEquals( "org.apache*", GlobMatcher.compile( "org\\.apache\\*" ).getLiteralPrefix() );
+        assertEquals( "org.apache.", GlobMatcher.compile( "org.apache.*" ).getLiteralPrefix() );
+        assertEquals( "", GlobMatcher.compile( "*" ).getLiteralPrefix() );
+        assertTrue( GlobMatcher.compile( "*" ).matches( "" ) );
+        assertFalse( GlobMatcher.compile( "maven" ).matches( "Maven" ) );
+    }
+
+    @Test
+    public void testEmptyAndInvalidGlobs()
+        throws Exception
+    {
+        assertNull( GlobMatcher.compile( null ) );
+        assertNull( GlobMatcher.compile( "" ) );
+        assertThrows( Error.class, () -> GlobMatcher.compile( "foo\\" ) );
+        assertThrows( Error.class, () -> GlobMatcher.compile( "{foo" ) );
+    }
+}
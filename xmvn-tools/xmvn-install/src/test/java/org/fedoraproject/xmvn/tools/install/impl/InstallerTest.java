@@ -21,9 +21,12 @@ import static org.easymock.EasyMock.verify;
 import static org.fedoraproject.xmvn.tools.install.impl.InstallationPlanLoader.prepareInstallationPlanFile;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.BeforeEach;
@@ -70,10 +73,22 @@ public class InstallerTest
     private static class MockArtifactInstaller
         implements ArtifactInstaller
     {
+        private final Set<String> preparedArtifacts = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void prepare( ArtifactMetadata artifactMetadata, PackagingRule packagingRule, String basePackageName,
+                             String repositoryId )
+        {
+            assertEquals( "test-pkg", basePackageName );
+            assertEquals( "test-repo", repositoryId );
+            assertTrue( preparedArtifacts.add( artifactMetadata.getArtifactId() ) );
+        }
+
         @Override
         public void install( JavaPackage targetPackage, ArtifactMetadata artifactMetadata, PackagingRule packagingRule,
                              String basePackageName, String repositoryId )
         {
+            assertTrue( preparedArtifacts.contains( artifactMetadata.getArtifactId() ) );
             assertEquals( "test-pkg", basePackageName );
             assertEquals( "test-repo", repositoryId );
             Path path = Paths.get( "usr/share/java/" + artifactMetadata.getArtifactId() + ".jar" );
@@ -135,6 +150,12 @@ public class InstallerTest
 
     private void install( String planName )
         throws Exception
+    {
+        install( planName, 1 );
+    }
+
+    private void install( String planName, int threads )
+        throws Exception
     {
         ArtifactInstallerFactory installerFactoryMock = EasyMock.createMock( ArtifactInstallerFactory.class );
         expect( installerFactoryMock.getInstallerFor( EasyMock.anyObject(),
@@ -151,6 +172,7 @@ public class InstallerTest
 
         DefaultInstaller installer = new DefaultInstaller( configuratorMock, resolverMock, installerFactoryMock );
         assertNotNull( installer );
+        installer.setThreads( threads );
         installer.install( request );
 
         verify( resolverMock, configuratorMock, installerFactoryMock );
@@ -184,6 +206,26 @@ public class InstallerTest
                              installRoot.resolve( "usr/share/maven-metadata/test-pkg.xml" ) );
     }
 
+    @Test
+    public void testParallelInstall()
+        throws Exception
+    {
+        addEmptyResolutions();
+
+        install( "valid.xml", 4 );
+
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "D /usr/share/maven-metadata",
+                                  "F /usr/share/java/test.jar", "F /usr/share/java/test2.jar",
+                                  "F /usr/share/maven-metadata/test-pkg.xml" );
+        assertDescriptorEquals( descriptorRoot.resolve( ".mfiles" ),
+                                "%attr(0644,root,root) /usr/share/maven-metadata/test-pkg.xml",
+                                "%attr(0644,root,root) /usr/share/java/test.jar",
+                                "%attr(0644,root,root) /usr/share/java/test2.jar" );
+
+        assertMetadataEqual( getResource( "test-pkg.xml" ),
+                             installRoot.resolve( "usr/share/maven-metadata/test-pkg.xml" ) );
+    }
+
     @Test
     public void testResolution()
         throws Exception
@@ -200,6 +242,23 @@ public class InstallerTest
                              installRoot.resolve( "usr/share/maven-metadata/test-pkg.xml" ) );
     }
 
+    @Test
+    public void testSharedDependencyResolution()
+        throws Exception
+    {
+        // Every resolution is expected only once, even though lucene-benchmark is a dependency of two artifacts
+        Path dependencyJar = Paths.get( "/tmp/bla.jar" );
+        addResolution( "org.apache.lucene:lucene-benchmark:4.1" );
+        addResolution( "org.apache.lucene:lucene-benchmark", "4", "ns", dependencyJar );
+        addResolution( "org.apache.lucene:lucene-spatial:4.1" );
+        addResolution( "org.apache.lucene:lucene-spatial", dependencyJar );
+
+        install( "shared-deps.xml" );
+
+        assertMetadataEqual( getResource( "shared-deps-resolved.xml" ),
+                             installRoot.resolve( "usr/share/maven-metadata/test-pkg.xml" ) );
+    }
+
     @Test
     public void testSelfRequires()
         throws Exception
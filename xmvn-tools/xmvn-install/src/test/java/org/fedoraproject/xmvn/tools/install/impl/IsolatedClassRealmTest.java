@@ -0,0 +1,87 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.tools.install.ArtifactInstaller;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class IsolatedClassRealmTest
+{
+    @Test
+    public void testImportPackage()
+    {
+        IsolatedClassRealm realm = new IsolatedClassRealm( getClass().getClassLoader() );
+        realm.importPackage( "org.fedoraproject.xmvn.artifact" );
+
+        assertTrue( realm.isImported( "org.fedoraproject.xmvn.artifact.Artifact" ) );
+        assertTrue( realm.isImported( "org/fedoraproject/xmvn/artifact/Artifact.class" ) );
+        assertFalse( realm.isImported( "org.fedoraproject.xmvn.artifact.impl.DefaultArtifact" ) );
+        assertFalse( realm.isImported( "org.fedoraproject.xmvn.artifactx.Artifact" ) );
+        assertFalse( realm.isImported( "org.fedoraproject.xmvn.Artifact" ) );
+        assertFalse( realm.isImported( "Artifact" ) );
+    }
+
+    @Test
+    public void testImportAllPackages()
+    {
+        IsolatedClassRealm realm = new IsolatedClassRealm( getClass().getClassLoader() );
+        realm.importAllPackages( "org.slf4j" );
+
+        assertTrue( realm.isImported( "org.slf4j.Logger" ) );
+        assertTrue( realm.isImported( "org.slf4j.spi.LocationAwareLogger" ) );
+        assertTrue( realm.isImported( "org/slf4j/impl/StaticLoggerBinder.class" ) );
+        assertFalse( realm.isImported( "org.slf4jx.Logger" ) );
+        assertFalse( realm.isImported( "org.Logger" ) );
+    }
+
+    @Test
+    public void testDefaultPackage()
+    {
+        IsolatedClassRealm realm = new IsolatedClassRealm( getClass().getClassLoader() );
+        assertFalse( realm.isImported( "Foo" ) );
+        realm.importPackage( "" );
+        assertTrue( realm.isImported( "Foo" ) );
+        assertTrue( realm.isImported( "META-INF" ) );
+    }
+
+    @Test
+    public void testClassLoading()
+        throws Exception
+    {
+        IsolatedClassRealm realm = new IsolatedClassRealm( getClass().getClassLoader() );
+        realm.importPackage( "org.fedoraproject.xmvn.tools.install" );
+        realm.addJar( Paths.get( "src/test/resources/plugins/myplugin1.jar" ).toAbsolutePath() );
+
+        assertSame( String.class, realm.loadClass( "java.lang.String" ) );
+        assertSame( ArtifactInstaller.class, realm.loadClass( ArtifactInstaller.class.getName() ) );
+        Class<?> pluginClass = realm.loadClass( "foo.bar.MyPlugin" );
+        assertSame( realm, pluginClass.getClassLoader() );
+        assertSame( pluginClass, realm.loadClass( "foo.bar.MyPlugin" ) );
+        assertThrows( ClassNotFoundException.class, () -> realm.loadClass( "foo.bar.Missing" ) );
+        assertThrows( ClassNotFoundException.class, () -> realm.loadClass( getClass().getName() ) );
+    }
+}
@@ -18,7 +18,11 @@ package org.fedoraproject.xmvn.tools.install.impl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -89,6 +93,30 @@ public class JavaPackageTest
                              installRoot.resolve( "usr/share/maven-metadata/bar-my-pkg-my-id.xml" ) );
     }
 
+    @Test
+    public void testCompressedMetadata()
+        throws Exception
+    {
+        JavaPackage pkg = new JavaPackage( "my-id", "my-pkg", Paths.get( "usr/share/maven-metadata" ) );
+        pkg.setCompressMetadata( true );
+
+        ArtifactMetadata foo = new ArtifactMetadata();
+        foo.setGroupId( "foo" );
+        foo.setArtifactId( "foo" );
+        foo.setNamespace( "foo" );
+        pkg.getMetadata().addArtifact( foo );
+
+        pkg.install( installRoot );
+
+        Path metadataPath = installRoot.resolve( "usr/share/maven-metadata/foo-my-pkg-my-id.xml" );
+        try ( InputStream stream = new GZIPInputStream( Files.newInputStream( metadataPath ) ) )
+        {
+            PackageMetadata actualMetadata = new MetadataStaxReader().read( stream );
+            assertEquals( 1, actualMetadata.getArtifacts().size() );
+            assertEquals( "foo", actualMetadata.getArtifacts().get( 0 ).getNamespace() );
+        }
+    }
+
     @Test
     public void testSpacesInFileNames()
         throws Exception
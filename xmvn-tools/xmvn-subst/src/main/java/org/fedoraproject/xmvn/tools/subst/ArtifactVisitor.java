@@ -16,22 +16,36 @@
 package org.fedoraproject.xmvn.tools.subst;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
 import org.fedoraproject.xmvn.artifact.DefaultArtifact;
@@ -48,18 +62,32 @@ public class ArtifactVisitor
 
     private final Set<String> types = new LinkedHashSet<>();
 
-    private final List<MetadataResult> metadata;
+    private final MetadataIndex metadataIndex;
 
     private boolean followSymlinks;
 
     private boolean dryRun;
 
-    private int failureCount;
+    private int threads = 1;
+
+    private ContentIndex contentIndex;
+
+    private ExecutorService executor;
+
+    private final AtomicInteger failureCount = new AtomicInteger();
+
+    private final Set<Path> visitedFiles = new HashSet<>();
+
+    /**
+     * Output produced when processing files, in order in which files were visited. Output is printed in the same order,
+     * as soon as it is available, so that it doesn't depend on number of threads used.
+     */
+    private final Deque<Future<String>> pendingOutput = new ArrayDeque<>();
 
     public ArtifactVisitor( boolean debug, List<MetadataResult> metadata )
     {
         this.debug = debug;
-        this.metadata = metadata;
+        metadataIndex = new MetadataIndex( metadata );
     }
 
     public void setTypes( Collection<String> types )
@@ -77,9 +105,111 @@ public class ArtifactVisitor
         this.dryRun = dryRun;
     }
 
+    /**
+     * Set maximal number of files which are processed concurrently. Directory structure is always traversed by the
+     * thread which walks file tree, but inspection and substitution of artifact files is done by worker threads.
+     * 
+     * @param threads number of worker threads
+     */
+    public void setThreads( int threads )
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * Set index used to find artifacts by contents of files, which have no artifact coordinates or whose coordinates
+     * are not present in metadata.
+     * 
+     * @param contentIndex content index, or {@code null} if files should be matched by coordinates only
+     */
+    public void setContentIndex( ContentIndex contentIndex )
+    {
+        this.contentIndex = contentIndex;
+    }
+
     public int getFailureCount()
     {
-        return failureCount;
+        return failureCount.get();
+    }
+
+    private void print( String format, Object... args )
+    {
+        pendingOutput.add( CompletableFuture.completedFuture( String.format( format, args ) ) );
+    }
+
+    private void submit( Callable<String> task )
+    {
+        if ( threads <= 1 )
+        {
+            FutureTask<String> future = new FutureTask<>( task );
+            future.run();
+            pendingOutput.add( future );
+            return;
+        }
+
+        if ( executor == null )
+        {
+            executor = Executors.newFixedThreadPool( threads, runnable ->
+            {
+                Thread thread = new Thread( runnable );
+                thread.setName( ArtifactVisitor.class.getCanonicalName() + ".worker" );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+
+        pendingOutput.add( executor.submit( task ) );
+    }
+
+    private void flushOutput( boolean wait )
+        throws IOException
+    {
+        while ( !pendingOutput.isEmpty() && ( wait || pendingOutput.peek().isDone() ) )
+        {
+            try
+            {
+                System.err.print( pendingOutput.poll().get() );
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof IOException )
+                    throw (IOException) cause;
+                if ( cause instanceof RuntimeException )
+                    throw (RuntimeException) cause;
+                if ( cause instanceof Error )
+                    throw (Error) cause;
+                throw new IOException( cause );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while waiting for artifact substitution", e );
+            }
+        }
+    }
+
+    /**
+     * Wait until all visited files are processed and print remaining output.
+     * 
+     * @throws IOException if substitution of any of artifact files failed
+     */
+    public void finish()
+        throws IOException
+    {
+        flushOutput( true );
+    }
+
+    /**
+     * Stop all worker threads, abandoning processing of files which were not processed yet.
+     */
+    public void shutdown()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
     }
 
     @Override
@@ -96,7 +226,7 @@ public class ArtifactVisitor
         if ( Files.isSymbolicLink( path ) && !followSymlinks )
         {
             if ( debug )
-                System.err.printf( "Skipping symlink to directory: %s%n", path );
+                print( "Skipping symlink to directory: %s%n", path );
             return FileVisitResult.SKIP_SUBTREE;
         }
 
@@ -110,20 +240,39 @@ public class ArtifactVisitor
         if ( !Files.isRegularFile( path ) )
         {
             if ( debug )
-                System.err.printf( "Skipping %s: not a regular file%n", path );
+                print( "Skipping %s: not a regular file%n", path );
             return FileVisitResult.CONTINUE;
         }
 
         String fileName = path.getFileName().toString();
 
+        List<String> matchingTypes = new ArrayList<>();
         for ( String type : types )
         {
             if ( fileName.endsWith( "." + type ) )
             {
-                substituteArtifact( path, type );
+                matchingTypes.add( type );
             }
         }
 
+        // The same file can be reached more than once when file trees overlap, but it must be substituted only once
+        if ( !matchingTypes.isEmpty() && visitedFiles.add( path.toAbsolutePath().normalize() ) )
+        {
+            submit( () ->
+            {
+                StringWriter output = new StringWriter();
+                try ( PrintWriter out = new PrintWriter( output ) )
+                {
+                    for ( String type : matchingTypes )
+                    {
+                        substituteArtifact( path, type, out );
+                    }
+                }
+                return output.toString();
+            } );
+        }
+
+        flushOutput( false );
         return FileVisitResult.CONTINUE;
     }
 
@@ -131,66 +280,66 @@ public class ArtifactVisitor
     public FileVisitResult visitFileFailed( Path path, IOException e )
         throws IOException
     {
-        System.err.printf( "WARNING: Failed to access file %s%n", path );
+        print( "WARNING: Failed to access file %s%n", path );
         return FileVisitResult.CONTINUE;
     }
 
-    private Artifact getArtifactFromManifest( Path path )
+    private Artifact getArtifactFromManifest( JarFile jarFile )
         throws IOException
     {
-        try ( JarFile jarFile = new JarFile( path.toFile() ) )
-        {
-            Manifest mf = jarFile.getManifest();
-            if ( mf == null )
-                return null;
+        Manifest mf = jarFile.getManifest();
+        if ( mf == null )
+            return null;
 
-            String groupId = mf.getMainAttributes().getValue( Artifact.MF_KEY_GROUPID );
-            String artifactId = mf.getMainAttributes().getValue( Artifact.MF_KEY_ARTIFACTID );
-            String extension = mf.getMainAttributes().getValue( Artifact.MF_KEY_EXTENSION );
-            String classifier = mf.getMainAttributes().getValue( Artifact.MF_KEY_CLASSIFIER );
-            String version = mf.getMainAttributes().getValue( Artifact.MF_KEY_VERSION );
+        String groupId = mf.getMainAttributes().getValue( Artifact.MF_KEY_GROUPID );
+        String artifactId = mf.getMainAttributes().getValue( Artifact.MF_KEY_ARTIFACTID );
+        String extension = mf.getMainAttributes().getValue( Artifact.MF_KEY_EXTENSION );
+        String classifier = mf.getMainAttributes().getValue( Artifact.MF_KEY_CLASSIFIER );
+        String version = mf.getMainAttributes().getValue( Artifact.MF_KEY_VERSION );
 
-            if ( groupId == null || artifactId == null )
-                return null;
+        if ( groupId == null || artifactId == null )
+            return null;
 
-            return new DefaultArtifact( groupId, artifactId, extension, classifier, version );
-        }
+        return new DefaultArtifact( groupId, artifactId, extension, classifier, version );
     }
 
-    private Artifact getArtifactFromPomProperties( Path path, String extension )
+    private Artifact getArtifactFromPomProperties( JarFile jarFile, String extension )
         throws IOException
     {
-        try ( ZipInputStream zis = new ZipInputStream( Files.newInputStream( path ) ) )
+        // Entry names are read from central directory, only contents of pom.properties itself need to be inflated
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while ( entries.hasMoreElements() )
         {
-            ZipEntry entry;
-            while ( ( entry = zis.getNextEntry() ) != null )
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if ( name.startsWith( "META-INF/maven/" ) && name.endsWith( "/pom.properties" ) )
             {
-                String name = entry.getName();
-                if ( name.startsWith( "META-INF/maven/" ) && name.endsWith( "/pom.properties" ) )
+                Properties properties = new Properties();
+                try ( InputStream is = jarFile.getInputStream( entry ) )
                 {
-                    Properties properties = new Properties();
-                    properties.load( zis );
-
-                    String groupId = properties.getProperty( "groupId" );
-                    String artifactId = properties.getProperty( "artifactId" );
-                    String version = properties.getProperty( "version" );
-                    return new DefaultArtifact( groupId, artifactId, extension, version );
+                    properties.load( is );
                 }
-            }
 
-            return null;
+                String groupId = properties.getProperty( "groupId" );
+                String artifactId = properties.getProperty( "artifactId" );
+                String version = properties.getProperty( "version" );
+                return new DefaultArtifact( groupId, artifactId, extension, version );
+            }
         }
+
+        return null;
     }
 
-    private Artifact readArtifactDefinition( Path path, String extension )
+    private Artifact readArtifactDefinition( Path path, String extension, PrintWriter out )
     {
-        try
+        // Archive is opened only once and accessed randomly, signatures don't need to be verified
+        try ( JarFile jarFile = new JarFile( path.toFile(), false ) )
         {
-            Artifact artifact = getArtifactFromManifest( path );
+            Artifact artifact = getArtifactFromManifest( jarFile );
             if ( artifact != null )
                 return artifact;
 
-            artifact = getArtifactFromPomProperties( path, extension );
+            artifact = getArtifactFromPomProperties( jarFile, extension );
             if ( artifact != null )
                 return artifact;
 
@@ -198,56 +347,53 @@ public class ArtifactVisitor
         }
         catch ( IOException e )
         {
-            System.err.printf( "ERROR: Failed to get artifact definition from file %s%n", path );
-            e.printStackTrace();
+            out.printf( "ERROR: Failed to get artifact definition from file %s%n", path );
+            e.printStackTrace( out );
             return null;
         }
     }
 
-    private void substituteArtifact( Path path, String type )
+    private void substituteArtifact( Path path, String type, PrintWriter out )
         throws IOException
     {
-        Artifact artifact = readArtifactDefinition( path, type );
-        if ( artifact == null )
-        {
-            System.err.printf( "Skipping file %s: No artifact definition found%n", path );
-            failureCount++;
-            return;
-        }
+        Artifact artifact = readArtifactDefinition( path, type, out );
+        ArtifactMetadata metadata = artifact != null ? resolveMetadata( artifact ) : null;
+        Path artifactPath = metadata != null ? Paths.get( metadata.getPath() ) : findArtifactByContent( path, out );
 
-        ArtifactMetadata metadata = resolveMetadata( artifact );
-        if ( metadata == null )
+        if ( artifactPath == null )
         {
-            System.err.printf( "WARNING: Skipping file %s: Artifact %s not found in repository%n", path, artifact );
-            failureCount++;
+            if ( artifact == null )
+                out.printf( "Skipping file %s: No artifact definition found%n", path );
+            else
+                out.printf( "WARNING: Skipping file %s: Artifact %s not found in repository%n", path, artifact );
+            failureCount.incrementAndGet();
             return;
         }
 
-        Path artifactPath = Paths.get( metadata.getPath() );
-
         if ( !dryRun )
         {
             Files.delete( path );
             Files.createSymbolicLink( path, artifactPath );
         }
 
-        System.err.printf( "Linked %s to %s%n", path, artifactPath );
+        out.printf( "Linked %s to %s%n", path, artifactPath );
     }
 
-    private ArtifactMetadata resolveMetadata( Artifact artifact )
+    private Path findArtifactByContent( Path path, PrintWriter out )
+        throws IOException
     {
-        List<Artifact> versionedArtifacts = Arrays.asList( artifact, artifact.setVersion( null ) );
+        if ( contentIndex == null )
+            return null;
 
-        for ( MetadataResult metadataResult : metadata )
-        {
-            for ( Artifact versionedArtifact : versionedArtifacts )
-            {
-                ArtifactMetadata metadata = metadataResult.getMetadataFor( versionedArtifact );
-                if ( metadata != null )
-                    return metadata;
-            }
-        }
+        Path artifactPath = contentIndex.find( path );
+        if ( artifactPath != null && debug )
+            out.printf( "File %s has the same contents as artifact %s%n", path, artifactPath );
 
-        return null;
+        return artifactPath;
+    }
+
+    private ArtifactMetadata resolveMetadata( Artifact artifact )
+    {
+        return metadataIndex.lookup( artifact );
     }
 }
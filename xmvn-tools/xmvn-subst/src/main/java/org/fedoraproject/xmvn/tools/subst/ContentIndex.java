@@ -0,0 +1,311 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.subst;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.ListableMetadataResult;
+import org.fedoraproject.xmvn.metadata.MetadataResult;
+
+/**
+ * Index of artifact files referenced by metadata, which allows finding artifacts by their contents rather than by
+ * their coordinates.
+ * <p>
+ * The index is built lazily, when it is first queried. Artifact files are grouped by their size, which only requires
+ * them to be stat-ed. SHA-256 digests are computed only for artifacts which have the same size as the file being
+ * looked up. Digests are cached in a file, together with size and modification time of artifact files, so that
+ * subsequent invocations don't need to compute them again as long as artifact files don't change.
+ *
+ * @author Mikolaj Izdebski
+ */
+class ContentIndex
+{
+    private static final String CACHE_FILE_NAME = "subst-content-v1.cache";
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    private static final int FIELD_COUNT = 4;
+
+    private static final int MTIME_FIELD = 2;
+
+    private static final int DIGEST_FIELD = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static class Digest
+    {
+        private final long size;
+
+        private final long mtime;
+
+        private final String sha256;
+
+        Digest( long size, long mtime, String sha256 )
+        {
+            this.size = size;
+            this.mtime = mtime;
+            this.sha256 = sha256;
+        }
+    }
+
+    private final List<MetadataResult> metadata;
+
+    private final Path cachePath;
+
+    private final Map<Path, Digest> digests = new ConcurrentHashMap<>();
+
+    private volatile boolean cacheModified;
+
+    /**
+     * Paths of artifact files grouped by file size, in order of precedence. Built lazily, guarded by {@code this}.
+     */
+    private Map<Long, List<Path>> artifactsBySize;
+
+    /**
+     * Create content index of artifacts from given metadata.
+     *
+     * @param metadata metadata results, in order of precedence, which must refer to artifact files by paths valid in
+     *            the running system
+     * @param cachePath path to file in which artifact digests are cached, or {@code null} if digests should not be
+     *            cached persistently
+     */
+    public ContentIndex( List<MetadataResult> metadata, Path cachePath )
+    {
+        this.metadata = metadata;
+        this.cachePath = cachePath;
+    }
+
+    /**
+     * Determine default location of digest cache &ndash; a file in {@code $XDG_CACHE_HOME/xmvn}, or in
+     * {@code $HOME/.cache/xmvn} if {@code $XDG_CACHE_HOME} is not set.
+     *
+     * @return default path to digest cache
+     */
+    public static Path getDefaultCachePath()
+    {
+        String cacheHome = System.getenv( "XDG_CACHE_HOME" );
+        if ( cacheHome == null || cacheHome.isEmpty() || !Paths.get( cacheHome ).isAbsolute() )
+        {
+            String home = System.getenv( "HOME" );
+            if ( home == null || home.isEmpty() )
+                home = System.getProperty( "user.home" );
+            cacheHome = Paths.get( home, ".cache" ).toString();
+        }
+
+        return Paths.get( cacheHome, "xmvn", CACHE_FILE_NAME );
+    }
+
+    private synchronized Map<Long, List<Path>> getArtifactsBySize()
+    {
+        if ( artifactsBySize == null )
+        {
+            readCache();
+
+            Set<Path> paths = new LinkedHashSet<>();
+            for ( MetadataResult result : metadata )
+            {
+                // Results which can't list their artifacts can't be searched by content
+                if ( !( result instanceof ListableMetadataResult ) )
+                    continue;
+
+                for ( ArtifactMetadata am : ( (ListableMetadataResult) result ).getArtifactMetadata() )
+                {
+                    if ( am.getPath() != null )
+                        paths.add( Paths.get( am.getPath() ) );
+                }
+            }
+
+            Map<Long, List<Path>> index = new HashMap<>();
+            for ( Path path : paths )
+            {
+                try
+                {
+                    BasicFileAttributes attrs = Files.readAttributes( path, BasicFileAttributes.class );
+                    if ( attrs.isRegularFile() )
+                        index.computeIfAbsent( attrs.size(), size -> new ArrayList<>() ).add( path );
+                }
+                catch ( IOException e )
+                {
+                    // Artifacts which are not present on the file system can't be linked to anyways
+                }
+            }
+
+            digests.keySet().retainAll( paths );
+            artifactsBySize = index;
+        }
+
+        return artifactsBySize;
+    }
+
+    /**
+     * Find artifact file with the same contents as given file.
+     *
+     * @param file file to look up
+     * @return path to artifact file with identical contents, or {@code null} if there is no such artifact
+     * @throws IOException if given file can't be read
+     */
+    public Path find( Path file )
+        throws IOException
+    {
+        List<Path> candidates = getArtifactsBySize().get( Files.size( file ) );
+        if ( candidates == null )
+            return null;
+
+        String sha256 = computeDigest( file );
+
+        for ( Path candidate : candidates )
+        {
+            try
+            {
+                // File which already is an artifact must not be replaced with link to itself
+                if ( !Files.isSameFile( file, candidate ) && sha256.equals( getDigest( candidate ) ) )
+                    return candidate;
+            }
+            catch ( IOException e )
+            {
+                // Artifact may have been removed after the index was built, skip it
+            }
+        }
+
+        return null;
+    }
+
+    private String getDigest( Path path )
+        throws IOException
+    {
+        BasicFileAttributes attrs = Files.readAttributes( path, BasicFileAttributes.class );
+        long mtime = attrs.lastModifiedTime().toMillis();
+
+        Digest digest = digests.get( path );
+        if ( digest == null || digest.size != attrs.size() || digest.mtime != mtime )
+        {
+            digest = new Digest( attrs.size(), mtime, computeDigest( path ) );
+            digests.put( path, digest );
+            cacheModified = true;
+        }
+
+        return digest.sha256;
+    }
+
+    private static String computeDigest( Path path )
+        throws IOException
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try ( InputStream is = Files.newInputStream( path ) )
+            {
+                int n;
+                while ( ( n = is.read( buffer ) ) > 0 )
+                    md.update( buffer, 0, n );
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for ( byte b : md.digest() )
+                sb.append( String.format( "%02x", b ) );
+            return sb.toString();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new RuntimeException( "SHA-256 digest is not available", e );
+        }
+    }
+
+    private void readCache()
+    {
+        if ( cachePath == null || !Files.exists( cachePath ) )
+            return;
+
+        try
+        {
+            for ( String line : Files.readAllLines( cachePath, StandardCharsets.UTF_8 ) )
+            {
+                String[] fields = line.split( FIELD_SEPARATOR );
+                if ( fields.length != FIELD_COUNT )
+                    throw new IllegalArgumentException( "expected " + FIELD_COUNT + " fields" );
+
+                digests.put( Paths.get( fields[0] ), new Digest( Long.parseLong( fields[1] ),
+                                                                 Long.parseLong( fields[MTIME_FIELD] ),
+                                                                 fields[DIGEST_FIELD] ) );
+            }
+        }
+        catch ( IOException | IllegalArgumentException e )
+        {
+            // Cache is only an optimization, digests will be computed again
+            System.err.printf( "WARNING: Ignoring content digest cache %s: %s%n", cachePath, e.getMessage() );
+            digests.clear();
+            cacheModified = true;
+        }
+    }
+
+    /**
+     * Write digests of artifact files to the cache file, if any new digests were computed. Digests of artifacts which
+     * are no longer referenced by metadata are dropped from the cache.
+     *
+     * @throws IOException if cache file can't be written
+     */
+    public void save()
+        throws IOException
+    {
+        if ( cachePath == null || !cacheModified )
+            return;
+
+        Path directory = cachePath.toAbsolutePath().getParent();
+        Files.createDirectories( directory );
+
+        Path tempPath = Files.createTempFile( directory, cachePath.getFileName().toString(), ".tmp" );
+        try
+        {
+            try ( BufferedWriter writer = Files.newBufferedWriter( tempPath, StandardCharsets.UTF_8 ) )
+            {
+                for ( Map.Entry<Path, Digest> entry : digests.entrySet() )
+                {
+                    Digest digest = entry.getValue();
+                    writer.write( String.join( FIELD_SEPARATOR, entry.getKey().toString(),
+                                               Long.toString( digest.size ), Long.toString( digest.mtime ),
+                                               digest.sha256 ) );
+                    writer.newLine();
+                }
+            }
+
+            Files.move( tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            cacheModified = false;
+        }
+        finally
+        {
+            Files.deleteIfExists( tempPath );
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.subst;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.metadata.ArtifactAlias;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.ListableMetadataResult;
+import org.fedoraproject.xmvn.metadata.MetadataResult;
+
+/**
+ * Lookup table merging several metadata results into one.
+ * <p>
+ * Metadata results are ordered by precedence. Artifact found in any result takes precedence over artifacts found in
+ * results which follow it, regardless of whether it was found by its exact version or by the default version. Within a
+ * single result exact versions take precedence over the default version. Every lookup requires at most two hash table
+ * lookups, regardless of the number of merged results.
+ * <p>
+ * Only results which can list their artifacts are indexed. Other results are queried for every lookup, in order of
+ * precedence, first by exact version and then by the default version.
+ *
+ * @author Mikolaj Izdebski
+ */
+class MetadataIndex
+{
+    private static final List<String> DEFAULT_VERSIONS = Collections.singletonList( Artifact.DEFAULT_VERSION );
+
+    private static class Binding
+    {
+        private final int rank;
+
+        private final ArtifactMetadata metadata;
+
+        Binding( int rank, ArtifactMetadata metadata )
+        {
+            this.rank = rank;
+            this.metadata = metadata;
+        }
+    }
+
+    private final Map<Artifact, Binding> bindings = new HashMap<>();
+
+    private final List<MetadataResult> metadata;
+
+    /**
+     * Ranks of results which could not be indexed, in increasing order.
+     */
+    private final List<Integer> unindexedRanks = new ArrayList<>();
+
+    /**
+     * Build index of artifacts from given metadata results.
+     *
+     * @param metadata metadata results, in order of precedence
+     */
+    public MetadataIndex( List<MetadataResult> metadata )
+    {
+        this.metadata = metadata;
+
+        for ( int rank = 0; rank < metadata.size(); rank++ )
+        {
+            MetadataResult result = metadata.get( rank );
+            if ( !( result instanceof ListableMetadataResult ) )
+            {
+                unindexedRanks.add( rank );
+                continue;
+            }
+
+            for ( ArtifactMetadata am : ( (ListableMetadataResult) result ).getArtifactMetadata() )
+            {
+                Binding binding = new Binding( rank, am );
+                List<String> versions = am.getCompatVersions().isEmpty() ? DEFAULT_VERSIONS : am.getCompatVersions();
+
+                Artifact coordinates = new DefaultArtifact( am.getGroupId(), am.getArtifactId(), am.getExtension(),
+                                                            am.getClassifier(), null );
+                bind( result, binding, coordinates, versions );
+
+                for ( ArtifactAlias alias : am.getAliases() )
+                {
+                    Artifact aliasCoordinates =
+                        new DefaultArtifact( alias.getGroupId(), alias.getArtifactId(), alias.getExtension(),
+                                             alias.getClassifier(), null );
+                    bind( result, binding, aliasCoordinates, versions );
+                }
+            }
+        }
+    }
+
+    private void bind( MetadataResult result, Binding binding, Artifact coordinates, List<String> versions )
+    {
+        for ( String version : versions )
+        {
+            Artifact artifact = coordinates.setVersion( version );
+
+            // Coordinates can be bound to other metadata in the same result, for example when duplicate metadata is
+            // resolved in favor of artifact with namespace, so the result is the authority on what it contains
+            if ( result.getMetadataFor( artifact ) == binding.metadata )
+                bindings.putIfAbsent( artifact, binding );
+        }
+    }
+
+    /**
+     * Look up metadata for given artifact, trying both its exact version and the default version.
+     *
+     * @param artifact artifact to look up
+     * @return metadata of artifact with highest precedence, or {@code null} if artifact was not found
+     */
+    public ArtifactMetadata lookup( Artifact artifact )
+    {
+        Binding exact = bindings.get( new DefaultArtifact( artifact.getGroupId(), artifact.getArtifactId(),
+                                                           artifact.getExtension(), artifact.getClassifier(),
+                                                           artifact.getVersion() ) );
+        Binding unversioned = bindings.get( new DefaultArtifact( artifact.getGroupId(), artifact.getArtifactId(),
+                                                                 artifact.getExtension(), artifact.getClassifier(),
+                                                                 Artifact.DEFAULT_VERSION ) );
+
+        Binding binding = exact != null && ( unversioned == null || exact.rank <= unversioned.rank ) ? exact
+                        : unversioned;
+
+        for ( int rank : unindexedRanks )
+        {
+            if ( binding != null && rank > binding.rank )
+                break;
+
+            MetadataResult result = metadata.get( rank );
+            ArtifactMetadata am = result.getMetadataFor( artifact );
+            if ( am == null )
+                am = result.getMetadataFor( artifact.setVersion( null ) );
+            if ( am != null )
+                return am;
+        }
+
+        return binding != null ? binding.metadata : null;
+    }
+}
@@ -20,6 +20,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.fedoraproject.xmvn.config.Configurator;
@@ -45,17 +46,16 @@ public class SubstCli
         resolverSettings = configurator.getConfiguration().getResolverSettings();
     }
 
-    private MetadataResult resolveMetadata( List<String> repos )
+    private MetadataRequest createMetadataRequest( List<String> repos )
     {
         MetadataRequest request = new MetadataRequest( repos );
         request.setIgnoreDuplicates( resolverSettings.isIgnoreDuplicateMetadata() );
-        MetadataResult result = metadataResolver.resolveMetadata( request );
-        return result;
+        return request;
     }
 
     private void run( SubstCliRequest cliRequest )
     {
-        List<MetadataResult> metadataResults = new ArrayList<>();
+        List<MetadataRequest> metadataRequests = new ArrayList<>();
 
         if ( cliRequest.getRoot() != null )
         {
@@ -71,16 +71,32 @@ public class SubstCli
                 }
             }
 
-            metadataResults.add( resolveMetadata( metadataRepos ) );
+            metadataRequests.add( createMetadataRequest( metadataRepos ) );
         }
 
-        metadataResults.add( resolveMetadata( resolverSettings.getMetadataRepositories() ) );
+        metadataRequests.add( createMetadataRequest( resolverSettings.getMetadataRepositories() ) );
+
+        // Fragments present both under root and in the system are read only once
+        List<MetadataResult> metadataResults = metadataResolver.resolveMetadata( metadataRequests );
 
         ArtifactVisitor visitor = new ArtifactVisitor( cliRequest.isDebug(), metadataResults );
 
         visitor.setTypes( cliRequest.getTypes() );
         visitor.setFollowSymlinks( cliRequest.isFollowSymlinks() );
         visitor.setDryRun( cliRequest.isDryRun() );
+        visitor.setThreads( cliRequest.getThreads() );
+
+        ContentIndex contentIndex = null;
+        if ( cliRequest.isMatchContent() )
+        {
+            Path cachePath = cliRequest.getContentCache() != null ? Paths.get( cliRequest.getContentCache() )
+                            : ContentIndex.getDefaultCachePath();
+            // Artifact paths in root-relative metadata are runtime paths, which don't necessarily refer to files with
+            // the same contents as the ones installed under root, so only system metadata can be searched by content
+            MetadataResult systemMetadata = metadataResults.get( metadataResults.size() - 1 );
+            contentIndex = new ContentIndex( Collections.singletonList( systemMetadata ), cachePath );
+            visitor.setContentIndex( contentIndex );
+        }
 
         try
         {
@@ -88,11 +104,20 @@ public class SubstCli
             {
                 Files.walkFileTree( Paths.get( path ), visitor );
             }
+
+            visitor.finish();
+
+            if ( contentIndex != null )
+                contentIndex.save();
         }
         catch ( IOException e )
         {
             e.printStackTrace();
         }
+        finally
+        {
+            visitor.shutdown();
+        }
 
         if ( cliRequest.isStrict() && visitor.getFailureCount() > 0 )
             System.exit( 1 );
@@ -32,6 +32,8 @@ import com.beust.jcommander.ParameterException;
  */
 class SubstCliRequest
 {
+    private static final int MAX_THREADS = 8;
+
     @Parameter
     private List<String> parameters = new LinkedList<>();
 
@@ -58,6 +60,16 @@ class SubstCliRequest
     @Parameter( names = { "-R", "--root" }, description = "Consider another root when looking for artifacts" )
     private String root;
 
+    @Parameter( names = { "-j", "--threads" }, description = "Number of artifact files processed concurrently" )
+    private int threads = Math.min( Math.max( Runtime.getRuntime().availableProcessors(), 1 ), MAX_THREADS );
+
+    @Parameter( names = { "-c",
+        "--match-content" }, description = "Match artifacts by contents if they can't be matched by coordinates" )
+    private boolean matchContent = false;
+
+    @Parameter( names = "--content-cache", description = "File in which digests of artifact files are cached" )
+    private String contentCache;
+
     @DynamicParameter( names = "-D", description = "Define system property" )
     private Map<String, String> defines = new TreeMap<>();
 
@@ -157,6 +169,36 @@ class SubstCliRequest
         this.root = root;
     }
 
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    public void setThreads( int threads )
+    {
+        this.threads = threads;
+    }
+
+    public boolean isMatchContent()
+    {
+        return matchContent;
+    }
+
+    public void setMatchContent( boolean matchContent )
+    {
+        this.matchContent = matchContent;
+    }
+
+    public String getContentCache()
+    {
+        return contentCache;
+    }
+
+    public void setContentCache( String contentCache )
+    {
+        this.contentCache = contentCache;
+    }
+
     public Map<String, String> getDefines()
     {
         return defines;
@@ -0,0 +1,206 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.subst;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.ListableMetadataResult;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class ContentIndexTest
+{
+    @TempDir
+    Path workDir;
+
+    private Path cachePath;
+
+    private final List<ArtifactMetadata> artifacts = new ArrayList<>();
+
+    private final ListableMetadataResult metadata = new ListableMetadataResult()
+    {
+        @Override
+        public ArtifactMetadata getMetadataFor( Artifact artifact )
+        {
+            return null;
+        }
+
+        @Override
+        public Collection<ArtifactMetadata> getArtifactMetadata()
+        {
+            return artifacts;
+        }
+    };
+
+    @BeforeEach
+    public void setUp()
+    {
+        cachePath = workDir.resolve( "cache" ).resolve( "content.cache" );
+    }
+
+    private Path createFile( String name, String content )
+        throws Exception
+    {
+        Path path = workDir.resolve( name );
+        Files.write( path, content.getBytes( StandardCharsets.UTF_8 ) );
+        return path;
+    }
+
+    private Path createArtifact( String name, String content )
+        throws Exception
+    {
+        Path path = createFile( name, content );
+        ArtifactMetadata am = new ArtifactMetadata();
+        am.setGroupId( "gid" );
+        am.setArtifactId( name );
+        am.setPath( path.toString() );
+        artifacts.add( am );
+        return path;
+    }
+
+    private ContentIndex createIndex()
+    {
+        return new ContentIndex( Collections.singletonList( metadata ), cachePath );
+    }
+
+    private static String sha256( String content )
+        throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( byte b : MessageDigest.getInstance( "SHA-256" ).digest( content.getBytes( StandardCharsets.UTF_8 ) ) )
+            sb.append( String.format( "%02x", b ) );
+        return sb.toString();
+    }
+
+    private void writeCache( Path artifact, long size, long mtime, String sha256 )
+        throws Exception
+    {
+        Files.createDirectories( cachePath.getParent() );
+        String line = String.join( "\t", artifact.toString(), Long.toString( size ), Long.toString( mtime ), sha256 );
+        Files.write( cachePath, Collections.singletonList( line ) );
+    }
+
+    private static long mtime( Path path )
+        throws Exception
+    {
+        return Files.getLastModifiedTime( path ).toMillis();
+    }
+
+    @Test
+    public void testFind()
+        throws Exception
+    {
+        Path foo = createArtifact( "foo", "foo-content" );
+        createArtifact( "bar", "bar-content" );
+        Path file = createFile( "file", "foo-content" );
+
+        ContentIndex index = createIndex();
+
+        assertEquals( foo, index.find( file ) );
+        assertNull( index.find( createFile( "other", "xyz-content" ) ) );
+        assertNull( index.find( createFile( "short", "foo" ) ) );
+    }
+
+    @Test
+    public void testSameFileSkipped()
+        throws Exception
+    {
+        Path foo = createArtifact( "foo", "foo-content" );
+        Path link = Files.createLink( workDir.resolve( "link" ), foo );
+
+        ContentIndex index = createIndex();
+
+        // File which already is an artifact is not an identical copy of it
+        assertNull( index.find( foo ) );
+        assertNull( index.find( link ) );
+    }
+
+    @Test
+    public void testCacheSaved()
+        throws Exception
+    {
+        Path foo = createArtifact( "foo", "foo-content" );
+
+        ContentIndex index = createIndex();
+        assertEquals( foo, index.find( createFile( "file", "foo-content" ) ) );
+        index.save();
+
+        List<String> lines = Files.readAllLines( cachePath );
+        assertEquals( 1, lines.size() );
+        assertEquals( String.join( "\t", foo.toString(), Long.toString( Files.size( foo ) ),
+                                   Long.toString( mtime( foo ) ), sha256( "foo-content" ) ),
+                      lines.get( 0 ) );
+    }
+
+    @Test
+    public void testCacheReused()
+        throws Exception
+    {
+        Path foo = createArtifact( "foo", "foo-content" );
+        writeCache( foo, Files.size( foo ), mtime( foo ), sha256( "bar-content" ) );
+
+        // Cached digest is trusted as long as size and modification time of artifact match
+        ContentIndex index = createIndex();
+        assertEquals( foo, index.find( createFile( "file", "bar-content" ) ) );
+        assertNull( index.find( createFile( "other", "foo-content" ) ) );
+    }
+
+    @Test
+    public void testCacheInvalidatedBySize()
+        throws Exception
+    {
+        Path foo = createArtifact( "foo", "foo-content" );
+        writeCache( foo, Files.size( foo ) + 1, mtime( foo ), sha256( "bar-content" ) );
+
+        ContentIndex index = createIndex();
+        assertNull( index.find( createFile( "file", "bar-content" ) ) );
+        assertEquals( foo, index.find( createFile( "other", "foo-content" ) ) );
+    }
+
+    @Test
+    public void testCacheInvalidatedByModificationTime()
+        throws Exception
+    {
+        Path foo = createArtifact( "foo", "foo-content" );
+        writeCache( foo, Files.size( foo ), mtime( foo ) - 1000, sha256( "bar-content" ) );
+
+        ContentIndex index = createIndex();
+        assertNull( index.find( createFile( "file", "bar-content" ) ) );
+        assertEquals( foo, index.find( createFile( "other", "foo-content" ) ) );
+
+        // Recomputed digest replaces the stale one
+        index.save();
+        assertTrue( Files.readAllLines( cachePath ).get( 0 ).endsWith( sha256( "foo-content" ) ) );
+    }
+}
@@ -0,0 +1,167 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.subst;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.metadata.ArtifactAlias;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.ListableMetadataResult;
+import org.fedoraproject.xmvn.metadata.MetadataResult;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class MetadataIndexTest
+{
+    private static ArtifactMetadata metadata( String artifactId, String... compatVersions )
+    {
+        ArtifactMetadata am = new ArtifactMetadata();
+        am.setGroupId( "gid" );
+        am.setArtifactId( artifactId );
+        am.setVersion( "1.0" );
+        for ( String version : compatVersions )
+            am.addCompatVersion( version );
+        return am;
+    }
+
+    private static Map<Artifact, ArtifactMetadata> index( ArtifactMetadata... ams )
+    {
+        Map<Artifact, ArtifactMetadata> map = new HashMap<>();
+        for ( ArtifactMetadata am : ams )
+        {
+            List<Artifact> coordinates = new ArrayList<>();
+            coordinates.add( am.toArtifact() );
+            for ( ArtifactAlias alias : am.getAliases() )
+                coordinates.add( new DefaultArtifact( alias.getGroupId(), alias.getArtifactId(),
+                                                      alias.getExtension(), alias.getClassifier(), null ) );
+
+            List<String> versions = am.getCompatVersions().isEmpty() ? Arrays.asList( Artifact.DEFAULT_VERSION )
+                            : am.getCompatVersions();
+            for ( Artifact artifact : coordinates )
+            {
+                for ( String version : versions )
+                    map.putIfAbsent( artifact.setVersion( version ), am );
+            }
+        }
+        return map;
+    }
+
+    private static ListableMetadataResult listable( ArtifactMetadata... ams )
+    {
+        Map<Artifact, ArtifactMetadata> map = index( ams );
+
+        return new ListableMetadataResult()
+        {
+            @Override
+            public ArtifactMetadata getMetadataFor( Artifact artifact )
+            {
+                return map.get( artifact );
+            }
+
+            @Override
+            public Collection<ArtifactMetadata> getArtifactMetadata()
+            {
+                return Arrays.asList( ams );
+            }
+        };
+    }
+
+    private static MetadataResult unlistable( ArtifactMetadata... ams )
+    {
+        return index( ams )::get;
+    }
+
+    @Test
+    public void testExactVersionTakesPrecedenceWithinResult()
+        throws Exception
+    {
+        ArtifactMetadata unversioned = metadata( "aid" );
+        ArtifactMetadata versioned = metadata( "aid", "1.0" );
+
+        MetadataIndex index = new MetadataIndex( Arrays.asList( listable( unversioned, versioned ) ) );
+
+        assertSame( versioned, index.lookup( new DefaultArtifact( "gid:aid:1.0" ) ) );
+        assertSame( unversioned, index.lookup( new DefaultArtifact( "gid:aid:2.0" ) ) );
+        assertSame( unversioned, index.lookup( new DefaultArtifact( "gid:aid:SYSTEM" ) ) );
+    }
+
+    @Test
+    public void testEarlierResultTakesPrecedence()
+        throws Exception
+    {
+        ArtifactMetadata first = metadata( "aid" );
+        ArtifactMetadata second = metadata( "aid", "1.0" );
+        ArtifactMetadata other = metadata( "other", "1.0" );
+
+        MetadataIndex index = new MetadataIndex( Arrays.asList( listable( first ), listable( second, other ) ) );
+
+        // Default version in earlier result wins over exact version in later result
+        assertSame( first, index.lookup( new DefaultArtifact( "gid:aid:1.0" ) ) );
+        assertSame( other, index.lookup( new DefaultArtifact( "gid:other:1.0" ) ) );
+        assertNull( index.lookup( new DefaultArtifact( "gid:other:2.0" ) ) );
+        assertNull( index.lookup( new DefaultArtifact( "gid:missing:1.0" ) ) );
+    }
+
+    @Test
+    public void testAliases()
+        throws Exception
+    {
+        ArtifactMetadata am = metadata( "aid", "1.0" );
+        ArtifactAlias alias = new ArtifactAlias();
+        alias.setGroupId( "a-gid" );
+        alias.setArtifactId( "a-aid" );
+        am.addAlias( alias );
+
+        MetadataIndex index = new MetadataIndex( Arrays.asList( listable( am ) ) );
+
+        assertSame( am, index.lookup( new DefaultArtifact( "a-gid:a-aid:1.0" ) ) );
+        assertNull( index.lookup( new DefaultArtifact( "a-gid:a-aid:2.0" ) ) );
+    }
+
+    @Test
+    public void testUnlistableResults()
+        throws Exception
+    {
+        ArtifactMetadata first = metadata( "aid" );
+        ArtifactMetadata second = metadata( "aid", "1.0" );
+        ArtifactMetadata third = metadata( "other" );
+
+        MetadataIndex index =
+            new MetadataIndex( Arrays.asList( unlistable( first ), listable( second ), unlistable( third ) ) );
+
+        assertSame( first, index.lookup( new DefaultArtifact( "gid:aid:1.0" ) ) );
+        assertSame( third, index.lookup( new DefaultArtifact( "gid:other:1.0" ) ) );
+        assertNull( index.lookup( new DefaultArtifact( "gid:missing:1.0" ) ) );
+
+        index = new MetadataIndex( Arrays.asList( listable( second ), unlistable( first ) ) );
+
+        assertSame( second, index.lookup( new DefaultArtifact( "gid:aid:1.0" ) ) );
+        assertSame( first, index.lookup( new DefaultArtifact( "gid:aid:2.0" ) ) );
+    }
+}
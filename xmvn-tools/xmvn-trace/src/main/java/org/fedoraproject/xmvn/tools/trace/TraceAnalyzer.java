@@ -0,0 +1,213 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.trace;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates resolution trace records into a report listing the slowest artifacts, duplicated requests and per-thread
+ * timelines.
+ *
+ * @author Mikolaj Izdebski
+ */
+class TraceAnalyzer
+{
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final List<TraceRecord> records = new ArrayList<>();
+
+    static class ArtifactStats
+    {
+        private final String artifact;
+
+        private int count;
+
+        private long totalNanos;
+
+        private long maxNanos;
+
+        private long firstNanos;
+
+        private boolean resolved;
+
+        ArtifactStats( String artifact )
+        {
+            this.artifact = artifact;
+        }
+
+        void add( TraceRecord record )
+        {
+            if ( count++ == 0 )
+                firstNanos = record.getDurationNanos();
+            totalNanos += record.getDurationNanos();
+            maxNanos = Math.max( maxNanos, record.getDurationNanos() );
+            resolved |= record.isResolved();
+        }
+
+        public String getArtifact()
+        {
+            return artifact;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public long getTotalNanos()
+        {
+            return totalNanos;
+        }
+
+        public long getMaxNanos()
+        {
+            return maxNanos;
+        }
+
+        /**
+         * Time spent on resolving the artifact again after it was resolved for the first time.
+         */
+        public long getWastedNanos()
+        {
+            return totalNanos - firstNanos;
+        }
+
+        public boolean isResolved()
+        {
+            return resolved;
+        }
+    }
+
+    public void addRecord( TraceRecord record )
+    {
+        records.add( record );
+    }
+
+    public List<TraceRecord> getRecords()
+    {
+        return records;
+    }
+
+    public Map<String, ArtifactStats> getArtifactStats()
+    {
+        Map<String, ArtifactStats> stats = new LinkedHashMap<>();
+        for ( TraceRecord record : records )
+            stats.computeIfAbsent( record.getArtifact(), ArtifactStats::new ).add( record );
+        return stats;
+    }
+
+    public List<ArtifactStats> getSlowestArtifacts( int limit )
+    {
+        return getArtifactStats().values().stream() //
+                                 .sorted( Comparator.comparingLong( ArtifactStats::getTotalNanos ).reversed() ) //
+                                 .limit( limit ).collect( Collectors.toList() );
+    }
+
+    public List<ArtifactStats> getDuplicatedArtifacts( int limit )
+    {
+        return getArtifactStats().values().stream() //
+                                 .filter( s -> s.getCount() > 1 ) //
+                                 .sorted( Comparator.comparingLong( ArtifactStats::getWastedNanos ).reversed() ) //
+                                 .limit( limit ).collect( Collectors.toList() );
+    }
+
+    public Map<String, List<TraceRecord>> getThreadTimelines()
+    {
+        Map<String, List<TraceRecord>> timelines = new TreeMap<>();
+        for ( TraceRecord record : records )
+            timelines.computeIfAbsent( String.valueOf( record.getThread() ), t -> new ArrayList<>() ).add( record );
+        for ( List<TraceRecord> timeline : timelines.values() )
+            timeline.sort( Comparator.comparingLong( TraceRecord::getStartNanos ) );
+        return timelines;
+    }
+
+    private static String millis( long nanos )
+    {
+        return String.format( "%.3f ms", nanos / NANOS_PER_MILLI );
+    }
+
+    public void printReport( PrintStream out, int limit, boolean timeline )
+    {
+        if ( records.isEmpty() )
+        {
+            out.println( "Trace contains no resolution requests" );
+            return;
+        }
+
+        long traceStart = records.stream().mapToLong( TraceRecord::getStartNanos ).min().getAsLong();
+        long traceEnd = records.stream().mapToLong( TraceRecord::getEndNanos ).max().getAsLong();
+        long totalNanos = records.stream().mapToLong( TraceRecord::getDurationNanos ).sum();
+        Map<String, ArtifactStats> stats = getArtifactStats();
+
+        out.println( "Summary:" );
+        out.printf( "  requests: %d%n", records.size() );
+        out.printf( "  distinct artifacts: %d%n", stats.size() );
+        out.printf( "  unresolved artifacts: %d%n", stats.values().stream().filter( s -> !s.isResolved() ).count() );
+        out.printf( "  repeated requests: %d%n", records.stream().filter( TraceRecord::isRepeated ).count() );
+        out.printf( "  total resolution time: %s%n", millis( totalNanos ) );
+        out.printf( "  trace duration: %s%n", millis( traceEnd - traceStart ) );
+
+        out.println();
+        out.println( "Slowest artifacts:" );
+        for ( ArtifactStats s : getSlowestArtifacts( limit ) )
+        {
+            out.printf( "  %s: total %s, max %s, %d requests%s%n", s.getArtifact(), millis( s.getTotalNanos() ),
+                        millis( s.getMaxNanos() ), s.getCount(), s.isResolved() ? "" : " (unresolved)" );
+        }
+
+        out.println();
+        out.println( "Duplicated requests:" );
+        List<ArtifactStats> duplicated = getDuplicatedArtifacts( limit );
+        if ( duplicated.isEmpty() )
+            out.println( "  none" );
+        for ( ArtifactStats s : duplicated )
+        {
+            out.printf( "  %s: %d requests, %s spent on repeated requests%n", s.getArtifact(), s.getCount(),
+                        millis( s.getWastedNanos() ) );
+        }
+
+        out.println();
+        out.println( "Thread timelines:" );
+        for ( Map.Entry<String, List<TraceRecord>> entry : getThreadTimelines().entrySet() )
+        {
+            List<TraceRecord> threadRecords = entry.getValue();
+            TraceRecord first = threadRecords.get( 0 );
+            TraceRecord last = threadRecords.get( threadRecords.size() - 1 );
+            long busyNanos = threadRecords.stream().mapToLong( TraceRecord::getDurationNanos ).sum();
+
+            out.printf( "  %s: %d requests, busy %s, active from +%s to +%s%n", entry.getKey(), threadRecords.size(),
+                        millis( busyNanos ), millis( first.getStartNanos() - traceStart ),
+                        millis( last.getEndNanos() - traceStart ) );
+
+            if ( timeline )
+            {
+                for ( TraceRecord record : threadRecords )
+                {
+                    out.printf( "    +%s %s %s (%s)%s%n", millis( record.getStartNanos() - traceStart ),
+                                record.getOperation(), record.getArtifact(), millis( record.getDurationNanos() ),
+                                record.isRepeated() ? " [repeated]" : "" );
+                }
+            }
+        }
+    }
+}
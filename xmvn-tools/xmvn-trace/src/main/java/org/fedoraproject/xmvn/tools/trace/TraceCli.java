@@ -0,0 +1,95 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.trace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Analyze resolution traces written by XMvn Connector for Maven when {@code xmvn.trace.file} property is set.
+ * <p>
+ * Return 0 on success, 1 when some trace file can't be read or parsed and 2 when some other error occurs. In the last
+ * case a stack trace is printed too.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class TraceCli
+{
+    private final TraceAnalyzer analyzer = new TraceAnalyzer();
+
+    private void readTrace( Path traceFile )
+        throws IOException
+    {
+        try ( BufferedReader reader = Files.newBufferedReader( traceFile, StandardCharsets.UTF_8 ) )
+        {
+            int lineNumber = 0;
+            String line = reader.readLine();
+            for ( ; line != null; line = reader.readLine() )
+            {
+                lineNumber++;
+                if ( line.trim().isEmpty() )
+                    continue;
+
+                try
+                {
+                    analyzer.addRecord( TraceRecord.parse( line ) );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                    throw new IllegalArgumentException( traceFile + ":" + lineNumber + ": " + e.getMessage(), e );
+                }
+            }
+        }
+    }
+
+    private void run( TraceCliRequest cliRequest )
+    {
+        try
+        {
+            for ( String traceFile : cliRequest.getParameters() )
+                readTrace( Paths.get( traceFile ) );
+        }
+        catch ( IOException | IllegalArgumentException e )
+        {
+            System.err.println( "ERROR: Unable to read trace: " + e.getMessage() );
+            System.exit( 1 );
+        }
+
+        analyzer.printReport( System.out, cliRequest.getLimit(), cliRequest.isTimeline() );
+    }
+
+    public static void main( String[] args )
+    {
+        try
+        {
+            TraceCliRequest cliRequest = new TraceCliRequest( args );
+
+            TraceCli cli = new TraceCli();
+
+            cli.run( cliRequest );
+        }
+        catch ( Throwable e )
+        {
+            System.err.println( "Unhandled exception" );
+            e.printStackTrace();
+            System.exit( 2 );
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.trace;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+class TraceCliRequest
+{
+    @Parameter
+    private List<String> parameters = new LinkedList<>();
+
+    @Parameter( names = { "-h", "--help" }, help = true, description = "Display usage information" )
+    private boolean help;
+
+    @Parameter( names = { "-n", "--limit" }, description = "Maximal number of artifacts listed in each report section" )
+    private int limit = 10;
+
+    @Parameter( names = { "-t", "--timeline" }, description = "List all requests in per-thread timelines" )
+    private boolean timeline = false;
+
+    public TraceCliRequest( String[] args )
+    {
+        try
+        {
+            JCommander jcomm = new JCommander( this );
+            jcomm.setProgramName( "xmvn-trace" );
+            jcomm.parse( args );
+
+            if ( help )
+            {
+                System.out.println( "xmvn-trace: Analyze XMvn resolution traces" );
+                System.out.println();
+                jcomm.usage();
+                System.exit( 0 );
+            }
+
+            if ( parameters.isEmpty() )
+                throw new ParameterException( "At least one trace file must be specified" );
+
+            if ( limit <= 0 )
+                throw new ParameterException( "Limit must be a positive number" );
+        }
+        catch ( ParameterException e )
+        {
+            System.err.println( e.getMessage() + ". Specify -h for usage." );
+            System.exit( 1 );
+        }
+    }
+
+    public List<String> getParameters()
+    {
+        return parameters;
+    }
+
+    public void setParameters( List<String> parameters )
+    {
+        this.parameters = parameters;
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public void setLimit( int limit )
+    {
+        this.limit = limit;
+    }
+
+    public boolean isTimeline()
+    {
+        return timeline;
+    }
+
+    public void setTimeline( boolean timeline )
+    {
+        this.timeline = timeline;
+    }
+}
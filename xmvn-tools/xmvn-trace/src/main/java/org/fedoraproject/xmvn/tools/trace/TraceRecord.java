@@ -0,0 +1,266 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.trace;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single record of resolution trace, corresponding to one line of trace file.
+ *
+ * @author Mikolaj Izdebski
+ */
+class TraceRecord
+{
+    private final String artifact;
+
+    private final String operation;
+
+    private final String thread;
+
+    private final long startNanos;
+
+    private final long endNanos;
+
+    private final String path;
+
+    private final boolean repeated;
+
+    public TraceRecord( String artifact, String operation, String thread, long startNanos, long endNanos, String path,
+                        boolean repeated )
+    {
+        this.artifact = artifact;
+        this.operation = operation;
+        this.thread = thread;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.path = path;
+        this.repeated = repeated;
+    }
+
+    public String getArtifact()
+    {
+        return artifact;
+    }
+
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    public String getThread()
+    {
+        return thread;
+    }
+
+    public long getStartNanos()
+    {
+        return startNanos;
+    }
+
+    public long getEndNanos()
+    {
+        return endNanos;
+    }
+
+    public long getDurationNanos()
+    {
+        return endNanos - startNanos;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public boolean isResolved()
+    {
+        return path != null;
+    }
+
+    public boolean isRepeated()
+    {
+        return repeated;
+    }
+
+    private static long parseLong( Map<String, String> fields, String key )
+    {
+        String value = fields.get( key );
+        if ( value == null )
+            throw new IllegalArgumentException( "Missing field \"" + key + "\"" );
+        return Long.parseLong( value );
+    }
+
+    /**
+     * Parse trace record from a single line of trace file. Only flat JSON objects with string, number, boolean and
+     * null values, as written by XMvn, are supported.
+     *
+     * @param line line of trace file
+     * @return parsed trace record
+     * @throws IllegalArgumentException if line is not a valid trace record
+     */
+    public static TraceRecord parse( String line )
+    {
+        Map<String, String> fields = new JsonLineParser( line ).parse();
+
+        String artifact = fields.get( "artifact" );
+        if ( artifact == null )
+            throw new IllegalArgumentException( "Missing field \"artifact\"" );
+
+        return new TraceRecord( artifact, fields.get( "operation" ), fields.get( "thread" ),
+                                parseLong( fields, "startNanos" ), parseLong( fields, "endNanos" ),
+                                fields.get( "path" ), Boolean.parseBoolean( fields.get( "repeated" ) ) );
+    }
+
+    private static class JsonLineParser
+    {
+        private final String line;
+
+        private int pos;
+
+        public JsonLineParser( String line )
+        {
+            this.line = line;
+        }
+
+        private IllegalArgumentException error( String message )
+        {
+            return new IllegalArgumentException( message + " at position " + pos + " in: " + line );
+        }
+
+        private void skipWhitespace()
+        {
+            while ( pos < line.length() && Character.isWhitespace( line.charAt( pos ) ) )
+                pos++;
+        }
+
+        private void expect( char c )
+        {
+            skipWhitespace();
+            if ( pos >= line.length() || line.charAt( pos ) != c )
+                throw error( "Expected '" + c + "'" );
+            pos++;
+        }
+
+        private String parseString()
+        {
+            expect( '"' );
+            StringBuilder sb = new StringBuilder();
+
+            while ( true )
+            {
+                if ( pos >= line.length() )
+                    throw error( "Unterminated string" );
+
+                char c = line.charAt( pos++ );
+                if ( c == '"' )
+                    return sb.toString();
+
+                if ( c != '\\' )
+                {
+                    sb.append( c );
+                    continue;
+                }
+
+                if ( pos >= line.length() )
+                    throw error( "Unterminated string" );
+
+                c = line.charAt( pos++ );
+                switch ( c )
+                {
+                    case 'u':
+                        if ( pos + 4 > line.length() )
+                            throw error( "Invalid unicode escape" );
+                        sb.append( (char) Integer.parseInt( line.substring( pos, pos + 4 ), 16 ) );
+                        pos += 4;
+                        break;
+                    case 'n':
+                        sb.append( '\n' );
+                        break;
+                    case 't':
+                        sb.append( '\t' );
+                        break;
+                    case 'r':
+                        sb.append( '\r' );
+                        break;
+                    case 'b':
+                        sb.append( '\b' );
+                        break;
+                    case 'f':
+                        sb.append( '\f' );
+                        break;
+                    default:
+                        sb.append( c );
+                }
+            }
+        }
+
+        private String parseValue()
+        {
+            skipWhitespace();
+            if ( pos < line.length() && line.charAt( pos ) == '"' )
+                return parseString();
+
+            int start = pos;
+            while ( pos < line.length() && line.charAt( pos ) != ',' && line.charAt( pos ) != '}' )
+                pos++;
+
+            String value = line.substring( start, pos ).trim();
+            if ( value.isEmpty() )
+                throw error( "Expected value" );
+
+            return value.equals( "null" ) ? null : value;
+        }
+
+        public Map<String, String> parse()
+        {
+            Map<String, String> fields = new HashMap<>();
+
+            expect( '{' );
+            skipWhitespace();
+
+            if ( pos < line.length() && line.charAt( pos ) == '}' )
+            {
+                pos++;
+            }
+            else
+            {
+                while ( true )
+                {
+                    String key = parseString();
+                    expect( ':' );
+                    fields.put( key, parseValue() );
+
+                    skipWhitespace();
+                    if ( pos < line.length() && line.charAt( pos ) == ',' )
+                    {
+                        pos++;
+                        continue;
+                    }
+
+                    expect( '}' );
+                    break;
+                }
+            }
+
+            skipWhitespace();
+            if ( pos < line.length() )
+                throw error( "Unexpected trailing characters" );
+
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*-
+ * Copyright (c) 2020 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.fedoraproject.xmvn.tools.trace.TraceAnalyzer.ArtifactStats;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class TraceAnalyzerTest
+{
+    private static String line( String artifact, String thread, long start, long end, String path, boolean repeated )
+    {
+        return "{\"artifact\":\"" + artifact + "\",\"operation\":\"findArtifact\",\"providerNeeded\":false,"
+            + "\"persistentFileNeeded\":false,\"thread\":\"" + thread + "\",\"startNanos\":" + start
+            + ",\"endNanos\":" + end + ",\"path\":" + ( path != null ? "\"" + path + "\"" : "null" )
+            + ",\"compatVersion\":null,\"namespace\":\"\",\"repeated\":" + repeated + "}";
+    }
+
+    private TraceAnalyzer analyzer()
+    {
+        TraceAnalyzer analyzer = new TraceAnalyzer();
+        analyzer.addRecord( TraceRecord.parse( line( "g:a:jar:1", "main", 100, 1100, "/a.jar", false ) ) );
+        analyzer.addRecord( TraceRecord.parse( line( "g:b:pom:1", "main", 1200, 6200, null, false ) ) );
+        analyzer.addRecord( TraceRecord.parse( line( "g:a:jar:1", "worker", 1000, 1300, "/a.jar", true ) ) );
+        analyzer.addRecord( TraceRecord.parse( line( "g:a:jar:1", "worker", 1400, 1600, "/a.jar", true ) ) );
+        return analyzer;
+    }
+
+    @Test
+    public void testParse()
+        throws Exception
+    {
+        TraceRecord record =
+            TraceRecord.parse( "{\"artifact\":\"g:a:jar:1\", \"thread\":\"pool-1 \\\"x\\\"\\u0041\", "
+                + "\"startNanos\":-5,\"endNanos\":10,\"path\":null,\"repeated\":true}" );
+
+        assertEquals( "g:a:jar:1", record.getArtifact() );
+        assertEquals( "pool-1 \"x\"A", record.getThread() );
+        assertEquals( 15, record.getDurationNanos() );
+        assertNull( record.getPath() );
+        assertFalse( record.isResolved() );
+        assertTrue( record.isRepeated() );
+    }
+
+    @Test
+    public void testParseInvalid()
+        throws Exception
+    {
+        assertThrows( IllegalArgumentException.class, () -> TraceRecord.parse( "{\"artifact\":\"g:a:jar:1\"" ) );
+        assertThrows( IllegalArgumentException.class, () -> TraceRecord.parse( "{\"startNanos\":1,\"endNanos\":2}" ) );
+        assertThrows( IllegalArgumentException.class,
+                      () -> TraceRecord.parse( "{\"artifact\":\"x\",\"startNanos\":1,\"endNanos\":2} x" ) );
+    }
+
+    @Test
+    public void testSlowestArtifacts()
+        throws Exception
+    {
+        List<ArtifactStats> slowest = analyzer().getSlowestArtifacts( 10 );
+
+        assertEquals( 2, slowest.size() );
+        assertEquals( "g:b:pom:1", slowest.get( 0 ).getArtifact() );
+        assertEquals( 5000, slowest.get( 0 ).getTotalNanos() );
+        assertFalse( slowest.get( 0 ).isResolved() );
+        assertEquals( "g:a:jar:1", slowest.get( 1 ).getArtifact() );
+        assertEquals( 1500, slowest.get( 1 ).getTotalNanos() );
+        assertEquals( 1000, slowest.get( 1 ).getMaxNanos() );
+
+        assertEquals( 1, analyzer().getSlowestArtifacts( 1 ).size() );
+    }
+
+    @Test
+    public void testDuplicatedArtifacts()
+        throws Exception
+    {
+        List<ArtifactStats> duplicated = analyzer().getDuplicatedArtifacts( 10 );
+
+        assertEquals( 1, duplicated.size() );
+        assertEquals( "g:a:jar:1", duplicated.get( 0 ).getArtifact() );
+        assertEquals( 3, duplicated.get( 0 ).getCount() );
+        assertEquals( 500, duplicated.get( 0 ).getWastedNanos() );
+    }
+
+    @Test
+    public void testThreadTimelines()
+        throws Exception
+    {
+        Map<String, List<TraceRecord>> timelines = analyzer().getThreadTimelines();
+
+        assertEquals( 2, timelines.size() );
+        assertEquals( 2, timelines.get( "main" ).size() );
+        assertEquals( 2, timelines.get( "worker" ).size() );
+        assertEquals( 1000, timelines.get( "worker" ).get( 0 ).getStartNanos() );
+    }
+
+    @Test
+    public void testReport()
+        throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        analyzer().printReport( new PrintStream( bos, true, "UTF-8" ), 10, true );
+        String report = new String( bos.toByteArray(), StandardCharsets.UTF_8 );
+
+        assertTrue( report.contains( "requests: 4" ) );
+        assertTrue( report.contains( "distinct artifacts: 2" ) );
+        assertTrue( report.contains( "unresolved artifacts: 1" ) );
+        assertTrue( report.contains( "repeated requests: 2" ) );
+        assertTrue( report.contains( "g:a:jar:1: 3 requests" ) );
+        assertTrue( report.contains( "worker: 2 requests" ) );
+        assertTrue( report.contains( "[repeated]" ) );
+    }
+}
@@ -204,6 +204,15 @@ This package provides XMvn Install, which is a command-line interface
 to XMvn installer.  The installer reads reactor metadata and performs
 artifact installation according to specified configuration.
 
+%package        trace
+Summary:        XMvn Trace
+
+%description    trace
+This package provides XMvn Trace, which is a command-line tool for
+analyzing resolution traces written by XMvn Connector for Maven.  It
+reports the slowest artifacts, duplicated resolution requests and
+per-thread resolution timelines.
+
 %package        javadoc
 Summary:        API documentation for %{name}
 
@@ -262,7 +271,7 @@ chmod -R +rwX %{name}-%{version}*
 # These are installed as doc
 rm -f %{name}-%{version}*/{AUTHORS-XMVN,README-XMVN.md,LICENSE,NOTICE,NOTICE-XMVN}
 # Not needed - we use JPackage launcher scripts
-rm -Rf %{name}-%{version}*/lib/{installer,resolver,subst,bisect}/
+rm -Rf %{name}-%{version}*/lib/{installer,resolver,subst,bisect,trace}/
 # Irrelevant Maven launcher scripts
 rm -f %{name}-%{version}*/bin/*
 
@@ -289,6 +298,7 @@ done
 %jpackage_script org.fedoraproject.xmvn.tools.install.cli.InstallerCli "" "" xmvn/xmvn-install:xmvn/xmvn-api:xmvn/xmvn-core:beust-jcommander:slf4j/api:slf4j/simple:objectweb-asm/asm:commons-compress xmvn-install
 %jpackage_script org.fedoraproject.xmvn.tools.resolve.ResolverCli "" "" xmvn/xmvn-resolve:xmvn/xmvn-api:xmvn/xmvn-core:beust-jcommander xmvn-resolve
 %jpackage_script org.fedoraproject.xmvn.tools.subst.SubstCli "" "" xmvn/xmvn-subst:xmvn/xmvn-api:xmvn/xmvn-core:beust-jcommander xmvn-subst
+%jpackage_script org.fedoraproject.xmvn.tools.trace.TraceCli "" "" xmvn/xmvn-trace:beust-jcommander xmvn-trace
 
 # copy over maven lib directory
 cp -r ${maven_home}/lib/* %{buildroot}%{_datadir}/%{name}/lib/
@@ -357,6 +367,9 @@ cp -P ${maven_home}/bin/m2.conf %{buildroot}%{_datadir}/%{name}/bin/
 %files install -f .mfiles-xmvn-install
 %{_bindir}/%{name}-install
 
+%files trace -f .mfiles-xmvn-trace
+%{_bindir}/%{name}-trace
+
 %files javadoc
 %doc LICENSE NOTICE
 